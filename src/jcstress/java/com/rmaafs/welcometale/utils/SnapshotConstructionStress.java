@@ -0,0 +1,43 @@
+package com.rmaafs.welcometale.utils;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.LL_Result;
+
+import com.rmaafs.welcometale.WelcomeTaleConfig;
+
+/**
+ * A snapshot handed to another thread through a plain field, without any
+ * synchronization. Since snapshots and templates only have final fields, the
+ * reader sees either no snapshot or a complete one.
+ */
+@JCStressTest
+@Outcome(id = "null, null", expect = ACCEPTABLE, desc = "Snapshot not published yet")
+@Outcome(id = "B, B", expect = ACCEPTABLE, desc = "Complete snapshot")
+@Outcome(expect = FORBIDDEN, desc = "Partially constructed snapshot")
+@State
+public class SnapshotConstructionStress {
+
+    private static final WelcomeTaleConfig CONFIG = StressConfigs.tagged("B");
+
+    private ConfigSnapshot snapshot;
+
+    @Actor
+    public void reload() {
+        snapshot = ConfigSnapshot.of(2, CONFIG);
+    }
+
+    @Actor
+    public void connect(LL_Result result) {
+        ConfigSnapshot config = snapshot;
+        if (config != null) {
+            result.r1 = config.getJoinMessage().getSource();
+            result.r2 = config.getWelcomePlayerMessage().getSource();
+        }
+    }
+}
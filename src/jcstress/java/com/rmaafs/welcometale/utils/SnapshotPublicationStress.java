@@ -0,0 +1,46 @@
+package com.rmaafs.welcometale.utils;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.LLL_Result;
+
+/**
+ * A reload publishing a new snapshot while a connect handler reads the join,
+ * welcome and leave messages from the snapshot it read once.
+ */
+@JCStressTest
+@Outcome(id = { "A, A, A", "B, B, B" }, expect = ACCEPTABLE, desc = "Handler used a single configuration")
+@Outcome(expect = FORBIDDEN, desc = "Handler mixed messages of two configurations")
+@State
+public class SnapshotPublicationStress {
+
+    private static final ConfigSnapshot A = StressConfigs.snapshot(1, "A");
+    private static final ConfigSnapshot B = StressConfigs.snapshot(2, "B");
+    private static final AtomicBoolean NEXT_IS_A = new AtomicBoolean();
+
+    static {
+        FileConfiguration.publish(A);
+    }
+
+    private final ConfigSnapshot next = NEXT_IS_A.getAndSet(!NEXT_IS_A.get()) ? A : B;
+
+    @Actor
+    public void reload() {
+        FileConfiguration.publish(next);
+    }
+
+    @Actor
+    public void connect(LLL_Result result) {
+        ConfigSnapshot config = FileConfiguration.getSnapshot();
+        result.r1 = config.getJoinMessage().getSource();
+        result.r2 = config.getWelcomePlayerMessage().getSource();
+        result.r3 = config.getLeaveMessage().getSource();
+    }
+}
@@ -0,0 +1,37 @@
+package com.rmaafs.welcometale.utils;
+
+import java.lang.reflect.Field;
+
+import com.rmaafs.welcometale.WelcomeTaleConfig;
+
+/**
+ * Configurations whose messages all carry the same tag, so a reader can tell
+ * which configuration each message came from.
+ */
+final class StressConfigs {
+
+    private StressConfigs() {
+    }
+
+    static WelcomeTaleConfig tagged(String tag) {
+        WelcomeTaleConfig config = new WelcomeTaleConfig();
+        set(config, "joinMessage", tag);
+        set(config, "welcomePlayerMessage", tag);
+        set(config, "leaveMessage", tag);
+        return config;
+    }
+
+    static ConfigSnapshot snapshot(long version, String tag) {
+        return ConfigSnapshot.of(version, tagged(tag));
+    }
+
+    private static void set(WelcomeTaleConfig config, String name, String value) {
+        try {
+            Field field = WelcomeTaleConfig.class.getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(config, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
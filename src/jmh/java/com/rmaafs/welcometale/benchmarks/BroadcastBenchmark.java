@@ -0,0 +1,74 @@
+package com.rmaafs.welcometale.benchmarks;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.Universe;
+import com.hypixel.hytale.server.core.universe.world.PlayerUtil;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.rmaafs.welcometale.utils.EncodedMessage;
+import com.rmaafs.welcometale.utils.MessageFormatter;
+
+/**
+ * Sending one join announcement to every player of a world: as a Message the
+ * server converts for each recipient, and encoded once into a chat packet
+ * written to all of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+
+    @Param({ "100", "500", "2000" })
+    public int recipients;
+
+    private World world;
+    private Message message;
+
+    @Setup
+    public void setUp() {
+        if (!EncodedMessage.isSupported()) {
+            throw new IllegalStateException(EncodedMessage.getUnsupportedReason());
+        }
+
+        world = Universe.get().addWorld("broadcast");
+        for (int i = 0; i < recipients; i++) {
+            Universe.get().addPlayer(new PlayerRef(new UUID(0, i), "Player" + i), world);
+        }
+        message = MessageFormatter.format("&3&l > &3Steve &bjoined &7(&f42&7/&f" + recipients + "&7) "
+                + "&8- &bwww.example.com");
+    }
+
+    @TearDown
+    public void tearDown() {
+        Universe.get().clear();
+    }
+
+    @Benchmark
+    public void perRecipient() {
+        PlayerUtil.broadcastMessageToPlayers(null, message, world.getEntityStore().getStore());
+    }
+
+    @Benchmark
+    public int encodeOnce() {
+        return EncodedMessage.encode(message).sendTo(world);
+    }
+}
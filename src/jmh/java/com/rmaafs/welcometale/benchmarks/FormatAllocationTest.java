@@ -0,0 +1,71 @@
+package com.rmaafs.welcometale.benchmarks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Runs {@link FormatBenchmark} with the GC profiler and checks the bytes
+ * allocated per call. Formatting should only allocate the Message nodes and
+ * their text, so each budget is what that costs for the benchmark text on
+ * the stand-ins, plus a few percent. A budget that is exceeded means a
+ * collection, boxed key or copy crept back into the hot path.
+ */
+class FormatAllocationTest {
+
+    private static final Map<String, Double> BYTES_PER_OP = Map.of(
+            "format SHORT", 264.0,
+            "format MULTILINE", 1280.0,
+            "format URLS", 1264.0,
+            "format COLORS", 1752.0,
+            "stripColorCodes SHORT", 128.0,
+            "stripColorCodes MULTILINE", 432.0,
+            "stripColorCodes URLS", 8.0,
+            "stripColorCodes COLORS", 232.0);
+
+    @Test
+    void formattingStaysWithinItsAllocationBudget() throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(FormatBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .warmupIterations(2)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.seconds(1))
+                .forks(1)
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        Set<String> measured = new HashSet<>();
+        for (RunResult result : results) {
+            String benchmark = result.getParams().getBenchmark();
+            String name = benchmark.substring(benchmark.lastIndexOf('.') + 1) + " "
+                    + result.getParams().getParam("text");
+            Double budget = BYTES_PER_OP.get(name);
+            assertNotNull(budget, () -> "No allocation budget for " + name);
+
+            Result<?> allocated = result.getSecondaryResults().get("gc.alloc.rate.norm");
+            assertNotNull(allocated, "The GC profiler reported no allocation rate");
+            assertTrue(allocated.getScore() <= budget,
+                    () -> name + " allocates " + Math.round(allocated.getScore()) + " bytes per call, budget is "
+                            + Math.round(budget));
+            measured.add(name);
+        }
+        assertEquals(BYTES_PER_OP.keySet(), measured);
+    }
+}
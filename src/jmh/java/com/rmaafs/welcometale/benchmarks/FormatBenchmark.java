@@ -0,0 +1,58 @@
+package com.rmaafs.welcometale.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hypixel.hytale.server.core.Message;
+import com.rmaafs.welcometale.utils.MessageFormatter;
+
+/**
+ * Formatting configured text into a Message, and stripping its color codes
+ * for the console.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatBenchmark {
+
+    public enum Text {
+        SHORT("&3&l > &3Steve &bjoined"),
+        MULTILINE("&6&lWelcome to the server, &eSteve&6!\n&7Rules: &fbe nice, no griefing\n"
+                + "&7Discord: &bhttps://discord.gg/example\n&7Store: &bwww.example.com/store\n"
+                + "&8&oHave fun and see you around."),
+        URLS("See https://example.com/a, www.example.org/b?c=d and HTTP://EXAMPLE.NET/e (https://x.io/f)."),
+        COLORS("&a&lR&b&la&c&li&d&ln&e&lb&f&lo&1w &2c&3o&4l&5o&6r&7s &8a&9n&0d &r&ostyles&r &kmixed §a§lhere");
+
+        private final String text;
+
+        Text(String text) {
+            this.text = text;
+        }
+    }
+
+    @Param
+    public Text text;
+
+    @Benchmark
+    public Message format() {
+        return MessageFormatter.format(text.text);
+    }
+
+    @Benchmark
+    public String stripColorCodes() {
+        return MessageFormatter.stripColorCodes(text.text);
+    }
+}
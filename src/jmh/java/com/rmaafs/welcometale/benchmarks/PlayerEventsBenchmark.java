@@ -0,0 +1,75 @@
+package com.rmaafs.welcometale.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.rmaafs.welcometale.standalone.StandaloneServer;
+
+/**
+ * A player connecting and disconnecting on a server with other players
+ * online: both event handlers, including the join and leave broadcasts to
+ * every stub player. Broadcasts are sent on the calling thread so each
+ * operation includes its delivery.
+ * The reconnect rate limit is off, since the benchmark reconnects the same
+ * pool of players far more often than any real player would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerEventsBenchmark {
+
+    private static final int WORLDS = 4;
+    private static final int POOL_SIZE = 4096;
+
+    @Param({ "100", "1000" })
+    public int online;
+
+    private StandaloneServer server;
+    private PlayerRef[] pool;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void start() {
+        server = StandaloneServer.start(WORLDS, Map.of(
+                "BroadcastOnWorldThreads", "false",
+                "AnnounceRateLimit", "0"));
+        for (int i = 0; i < online; i++) {
+            server.addPlayer(server.createPlayer(POOL_SIZE + i));
+        }
+
+        pool = new PlayerRef[POOL_SIZE];
+        for (int i = 0; i < POOL_SIZE; i++) {
+            pool[i] = server.createPlayer(i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        server.close();
+    }
+
+    @Benchmark
+    public void connectDisconnect() {
+        PlayerRef player = pool[next++ & (POOL_SIZE - 1)];
+        server.connect(player);
+        server.disconnect(player);
+    }
+}
@@ -0,0 +1,59 @@
+package com.rmaafs.welcometale.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hypixel.hytale.server.core.Message;
+import com.rmaafs.welcometale.placeholders.PlaceholderContext;
+import com.rmaafs.welcometale.placeholders.Placeholders;
+import com.rmaafs.welcometale.utils.MessageTemplate;
+
+/**
+ * Rendering compiled templates: resolving their placeholders and formatting
+ * the result, or reusing the pre-built Message of a template without any.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateBenchmark {
+
+    private final MessageTemplate join = MessageTemplate.compile("JoinMessage",
+            "&3&l > &3{player} &bjoined &7({join_count} visits)");
+    private final MessageTemplate welcome = MessageTemplate.compile("WelcomePlayerMessage",
+            "&7Welcome &a{player} &7to &e{world}&7!\n&7Visit &bwww.example.com/{player} &7for your stats");
+    private final MessageTemplate rules = MessageTemplate.compile("Rules",
+            "&6Rules: &fbe nice, no griefing\n&7Discord: &bhttps://discord.gg/example");
+
+    private int next;
+
+    @Benchmark
+    public Message renderPlaceholders() {
+        return join.render(PlaceholderContext.global()
+                .with(Placeholders.PLAYER, "Player" + (next++ & 1023))
+                .with(Placeholders.JOIN_COUNT, "12"));
+    }
+
+    @Benchmark
+    public Message renderMultiline() {
+        return welcome.render(PlaceholderContext.global()
+                .with(Placeholders.PLAYER, "Player" + (next++ & 1023))
+                .with(Placeholders.WORLD, "default"));
+    }
+
+    @Benchmark
+    public Message renderStatic() {
+        return rules.render(PlaceholderContext.global());
+    }
+}
@@ -1,11 +1,22 @@
 package com.rmaafs.welcometale;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 import javax.annotation.Nonnull;
 
 import com.rmaafs.welcometale.commands.PatchCommand;
 import com.rmaafs.welcometale.commands.WelcomeTaleCommand;
 import com.rmaafs.welcometale.listeners.PlayerEvents;
+import com.rmaafs.welcometale.listeners.WorldLeaveAnnouncer;
+import com.rmaafs.welcometale.utils.ConfigSnapshot;
+import com.rmaafs.welcometale.utils.ConfigWatcher;
+import com.rmaafs.welcometale.utils.EncodedMessage;
 import com.rmaafs.welcometale.utils.FileConfiguration;
+import com.rmaafs.welcometale.utils.Metrics;
+import com.rmaafs.welcometale.utils.PatchCompatibility;
+import com.rmaafs.welcometale.utils.PlayerSeenStore;
+import com.rmaafs.welcometale.utils.Scheduler;
 import com.rmaafs.welcometale.utils.UpdateChecker;
 import com.hypixel.hytale.server.core.plugin.JavaPlugin;
 import com.hypixel.hytale.server.core.plugin.JavaPluginInit;
@@ -19,6 +30,10 @@ public class Main extends JavaPlugin {
 
     public static Main MAIN_INSTANCE = null;
     public static UpdateChecker updateChecker = null;
+    public static PlayerSeenStore playerSeenStore = null;
+
+    private static final String UPDATE_CACHE_FILE = "update-cache.properties";
+    private static final String PLAYER_STORE_FILE = "players.dat";
 
     public Main(@Nonnull JavaPluginInit init) {
         super(init);
@@ -33,23 +48,61 @@ public class Main extends JavaPlugin {
 
     /**
      * Setup method called during plugin initialization.
-     * Registers commands and event listeners.
+     * Registers commands and event listeners. The update check runs in the
+     * background and never delays startup.
      */
     @Override
     protected void setup() {
+        ConfigSnapshot config = FileConfiguration.publishSnapshot();
+        this.openPlayerSeenStore();
         this.registerCommands();
         this.registerEvents();
+        ConfigWatcher.setEnabled(this, config.isWatchConfig());
+        Metrics.setDumpInterval(this, config.getStatsDumpIntervalSeconds());
+        PatchCompatibility.logStatus(this);
+        if (config.isEncodeBroadcastsOnce() && !EncodedMessage.isSupported()) {
+            getLogger().atWarning().log("Broadcasts are sent as messages, chat packets are not available: "
+                    + EncodedMessage.getUnsupportedReason());
+        }
+
+        if (config.isCheckForUpdates()) {
+            updateChecker = new UpdateChecker(this.getManifest().getVersion().toString(),
+                    FileConfiguration.getPluginDirectory().resolve(UPDATE_CACHE_FILE));
+            updateChecker.check().thenAccept(checker -> {
+                if (!checker.isUsingLatest()) {
+                    getLogger().atWarning().log("════════════════════ WelcomeTale ═════════════════════");
+                    getLogger().atWarning()
+                            .log("New version available! (v" + checker.getLatestVersion() + ") - Current: (v"
+                                    + checker.getCurrentVersion() + ")");
+                    getLogger().atWarning().log("Download it at " + UpdateChecker.REPO_URL + "/releases");
+                    getLogger().atWarning().log("════════════════════ WelcomeTale ═════════════════════");
+                }
+            });
+        }
+    }
+
+    /**
+     * Stops background work when the plugin shuts down.
+     */
+    @Override
+    protected void shutdown() {
+        ConfigWatcher.stop();
+        Metrics.stopDump();
+        if (playerSeenStore != null) {
+            playerSeenStore.close();
+        }
+        Scheduler.shutdown();
+    }
 
-        if (FileConfiguration.getConfig().isCheckForUpdates()) {
-            updateChecker = new UpdateChecker(this.getManifest().getVersion().toString());
-            if (!updateChecker.isUsingLatest()) {
-                getLogger().atWarning().log("════════════════════ WelcomeTale ═════════════════════");
-                getLogger().atWarning()
-                        .log("New version available! (v" + updateChecker.getLatestVersion() + ") - Current: (v"
-                                + updateChecker.getCurrentVersion() + ")");
-                getLogger().atWarning().log("Download it at " + updateChecker.REPO_URL + "/releases");
-                getLogger().atWarning().log("════════════════════ WelcomeTale ═════════════════════");
-            }
+    private void openPlayerSeenStore() {
+        Path file = FileConfiguration.getPluginDirectory().resolve(PLAYER_STORE_FILE);
+        try {
+            long start = System.nanoTime();
+            playerSeenStore = PlayerSeenStore.open(file);
+            getLogger().atInfo().log("Loaded " + playerSeenStore.size() + " known players in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (IOException e) {
+            getLogger().atSevere().log("Could not open " + file + ", first join messages are disabled", e);
         }
     }
 
@@ -60,5 +113,6 @@ public class Main extends JavaPlugin {
 
     private void registerEvents() {
         new PlayerEvents(this);
+        WorldLeaveAnnouncer.start(this);
     }
 }
\ No newline at end of file
@@ -39,6 +39,10 @@ public class WelcomeTaleConfig {
                                         (config, value, info) -> config.messageReloaded = value,
                                         (config, info) -> config.messageReloaded)
                         .add()
+                        .append(new KeyedCodec<String>("MessageReloadFailed", Codec.STRING),
+                                        (config, value, info) -> config.messageReloadFailed = value,
+                                        (config, info) -> config.messageReloadFailed)
+                        .add()
                         .append(new KeyedCodec<String>("NoPermission", Codec.STRING),
                                         (config, value, info) -> config.noPermission = value,
                                         (config, info) -> config.noPermission)
@@ -47,6 +51,74 @@ public class WelcomeTaleConfig {
                                         (config, value, info) -> config.checkForUpdates = value,
                                         (config, info) -> config.checkForUpdates)
                         .add()
+                        .append(new KeyedCodec<Boolean>("WatchConfig", Codec.BOOLEAN),
+                                        (config, value, info) -> config.watchConfig = value,
+                                        (config, info) -> config.watchConfig)
+                        .add()
+                        .append(new KeyedCodec<Boolean>("BroadcastOnWorldThreads", Codec.BOOLEAN),
+                                        (config, value, info) -> config.broadcastOnWorldThreads = value,
+                                        (config, info) -> config.broadcastOnWorldThreads)
+                        .add()
+                        .append(new KeyedCodec<Boolean>("EncodeBroadcastsOnce", Codec.BOOLEAN),
+                                        (config, value, info) -> config.encodeBroadcastsOnce = value,
+                                        (config, info) -> config.encodeBroadcastsOnce)
+                        .add()
+                        .append(new KeyedCodec<Boolean>("CoalesceJoinLeave", Codec.BOOLEAN),
+                                        (config, value, info) -> config.coalesceJoinLeave = value,
+                                        (config, info) -> config.coalesceJoinLeave)
+                        .add()
+                        .append(new KeyedCodec<Integer>("CoalesceWindowMillis", Codec.INTEGER),
+                                        (config, value, info) -> config.coalesceWindowMillis = value,
+                                        (config, info) -> config.coalesceWindowMillis)
+                        .add()
+                        .append(new KeyedCodec<Integer>("CoalesceThreshold", Codec.INTEGER),
+                                        (config, value, info) -> config.coalesceThreshold = value,
+                                        (config, info) -> config.coalesceThreshold)
+                        .add()
+                        .append(new KeyedCodec<String>("JoinSummaryMessage", MESSAGE_CODEC),
+                                        (config, value, info) -> config.joinSummaryMessage = value,
+                                        (config, info) -> config.joinSummaryMessage)
+                        .add()
+                        .append(new KeyedCodec<String>("LeaveSummaryMessage", MESSAGE_CODEC),
+                                        (config, value, info) -> config.leaveSummaryMessage = value,
+                                        (config, info) -> config.leaveSummaryMessage)
+                        .add()
+                        .append(new KeyedCodec<Integer>("RenderCacheSize", Codec.INTEGER),
+                                        (config, value, info) -> config.renderCacheSize = value,
+                                        (config, info) -> config.renderCacheSize)
+                        .add()
+                        .append(new KeyedCodec<Integer>("StatsDumpIntervalSeconds", Codec.INTEGER),
+                                        (config, value, info) -> config.statsDumpIntervalSeconds = value,
+                                        (config, info) -> config.statsDumpIntervalSeconds)
+                        .add()
+                        .append(new KeyedCodec<Integer>("AnnounceRateLimit", Codec.INTEGER),
+                                        (config, value, info) -> config.announceRateLimit = value,
+                                        (config, info) -> config.announceRateLimit)
+                        .add()
+                        .append(new KeyedCodec<Integer>("AnnounceRateWindowSeconds", Codec.INTEGER),
+                                        (config, value, info) -> config.announceRateWindowSeconds = value,
+                                        (config, info) -> config.announceRateWindowSeconds)
+                        .add()
+                        .append(new KeyedCodec<String>("FirstJoinMessage", MESSAGE_CODEC),
+                                        (config, value, info) -> config.firstJoinMessage = value,
+                                        (config, info) -> config.firstJoinMessage)
+                        .add()
+                        .append(new KeyedCodec<String>("DateFormat", Codec.STRING),
+                                        (config, value, info) -> config.dateFormat = value,
+                                        (config, info) -> config.dateFormat)
+                        .add()
+                        .append(new KeyedCodec<Integer>("BroadcastRecipientsPerTick", Codec.INTEGER),
+                                        (config, value, info) -> config.broadcastRecipientsPerTick = value,
+                                        (config, info) -> config.broadcastRecipientsPerTick)
+                        .add()
+                        .append(new KeyedCodec<Integer>("BroadcastMaxDelayTicks", Codec.INTEGER),
+                                        (config, value, info) -> config.broadcastMaxDelayTicks = value,
+                                        (config, info) -> config.broadcastMaxDelayTicks)
+                        .add()
+                        .append(new KeyedCodec<String>("LeaveWorldMessage", MESSAGE_CODEC),
+                                        (config, value, info) -> config.leaveWorldMessage = value,
+                                        (config, info) -> config.leaveWorldMessage)
+                        .add()
                         .build();
 
         private String joinMessage = "&3&l > &3{player} &bjoined";
@@ -54,26 +126,46 @@ public class WelcomeTaleConfig {
         private String leaveMessage = "&4&l > &4{player} &cleft";
         private boolean disableDefaultJoinMessage = true;
         private String messageReloaded = "&aConfiguration reloaded successfully!";
+        private String messageReloadFailed = "&cCould not reload the configuration, check the server log";
         private String noPermission = "&cYou don't have permission to use this command!";
         private boolean checkForUpdates = true;
+        private boolean watchConfig = false;
+        private boolean broadcastOnWorldThreads = false;
+        private boolean encodeBroadcastsOnce = false;
+        private boolean coalesceJoinLeave = false;
+        private int coalesceWindowMillis = 500;
+        private int coalesceThreshold = 5;
+        private String joinSummaryMessage = "&3&l > &3{players} &bjoined";
+        private String leaveSummaryMessage = "&4&l > &4{players} &cleft";
+        private int renderCacheSize = 256;
+        private int statsDumpIntervalSeconds = 0;
+        private int announceRateLimit = 0;
+        private int announceRateWindowSeconds = 60;
+        private String firstJoinMessage = "";
+        private String dateFormat = "yyyy-MM-dd";
+        private int broadcastRecipientsPerTick = 0;
+        private int broadcastMaxDelayTicks = 100;
+        private String leaveWorldMessage = "";
 
         /**
-         * @return Join broadcast message with {player} placeholder support
+         * @return Join broadcast message with {player}, {world}, {online} and
+         *         other placeholder support
          */
         public String getJoinMessage() {
                 return joinMessage;
         }
 
         /**
-         * @return Welcome private message sent to player with {player} placeholder
-         *         support
+         * @return Welcome private message sent to player with {player},
+         *         {first_seen}, {last_seen} and {join_count} placeholder support
          */
         public String getWelcomePlayerMessage() {
                 return welcomePlayerMessage;
         }
 
         /**
-         * @return Leave broadcast message with {player} placeholder support
+         * @return Leave broadcast message with {player}, {online} and other
+         *         placeholder support
          */
         public String getLeaveMessage() {
                 return leaveMessage;
@@ -93,6 +185,13 @@ public class WelcomeTaleConfig {
                 return messageReloaded;
         }
 
+        /**
+         * @return Message displayed when the configuration could not be reloaded
+         */
+        public String getMessageReloadFailed() {
+                return messageReloadFailed;
+        }
+
         /**
          * @return Message displayed when player lacks permission
          */
@@ -106,4 +205,137 @@ public class WelcomeTaleConfig {
         public boolean isCheckForUpdates() {
                 return checkForUpdates;
         }
+
+        /**
+         * @return true if config.json should be reloaded automatically when it
+         *         changes on disk
+         */
+        public boolean isWatchConfig() {
+                return watchConfig;
+        }
+
+        /**
+         * @return true if broadcasts are handed to each world's own thread,
+         *         false to send them synchronously on the calling thread
+         */
+        public boolean isBroadcastOnWorldThreads() {
+                return broadcastOnWorldThreads;
+        }
+
+        /**
+         * @return true if broadcasts are converted to a chat packet once and
+         *         that packet is written to every recipient
+         */
+        public boolean isEncodeBroadcastsOnce() {
+                return encodeBroadcastsOnce;
+        }
+
+        /**
+         * @return true if join/leave storms should be batched into summary broadcasts
+         */
+        public boolean isCoalesceJoinLeave() {
+                return coalesceJoinLeave;
+        }
+
+        /**
+         * @return Length of the join/leave batching window in milliseconds
+         */
+        public int getCoalesceWindowMillis() {
+                return coalesceWindowMillis;
+        }
+
+        /**
+         * @return Join or leave events per window announced individually before
+         *         batching starts
+         */
+        public int getCoalesceThreshold() {
+                return coalesceThreshold;
+        }
+
+        /**
+         * @return Batched join broadcast with {players} and {count} placeholder
+         *         support
+         */
+        public String getJoinSummaryMessage() {
+                return joinSummaryMessage;
+        }
+
+        /**
+         * @return Batched leave broadcast with {players} and {count} placeholder
+         *         support
+         */
+        public String getLeaveSummaryMessage() {
+                return leaveSummaryMessage;
+        }
+
+        /**
+         * @return Maximum number of rendered per-player messages kept in memory, 0
+         *         to disable the cache
+         */
+        public int getRenderCacheSize() {
+                return renderCacheSize;
+        }
+
+        /**
+         * @return Seconds between writes of stats.json, 0 to disable the dump
+         */
+        public int getStatsDumpIntervalSeconds() {
+                return statsDumpIntervalSeconds;
+        }
+
+        /**
+         * @return Join announcements allowed per player within the rate window, 0 to
+         *         disable rate limiting
+         */
+        public int getAnnounceRateLimit() {
+                return announceRateLimit;
+        }
+
+        /**
+         * @return Length of the announcement rate window in seconds
+         */
+        public int getAnnounceRateWindowSeconds() {
+                return announceRateWindowSeconds;
+        }
+
+        /**
+         * @return Private welcome message for players joining for the first time,
+         *         with the same placeholders as WelcomePlayerMessage. Empty to use
+         *         WelcomePlayerMessage for everyone
+         */
+        public String getFirstJoinMessage() {
+                return firstJoinMessage;
+        }
+
+        /**
+         * @return Pattern used for the {first_seen} and {last_seen} placeholders
+         */
+        public String getDateFormat() {
+                return dateFormat;
+        }
+
+        /**
+         * @return Recipients a paced broadcast is delivered to per tick, 0 to deliver
+         *         broadcasts at once
+         */
+        public int getBroadcastRecipientsPerTick() {
+                return broadcastRecipientsPerTick;
+        }
+
+        /**
+         * @return Most ticks a paced broadcast may wait before delivery, the per-tick
+         *         budget grows when the queue would take longer
+         */
+        public int getBroadcastMaxDelayTicks() {
+                return broadcastMaxDelayTicks;
+        }
+
+        /**
+         * @return Broadcast to the players of a world when someone leaves it
+         *         for another world, with {player} and {world} placeholder support.
+         *         Needs the leave message patch
+         */
+        public String getLeaveWorldMessage() {
+                return leaveWorldMessage;
+        }
 }
@@ -5,37 +5,43 @@ import com.hypixel.hytale.server.core.command.system.basecommands.CommandBase;
 import com.rmaafs.welcometale.Main;
 import com.rmaafs.welcometale.utils.MessageFormatter;
 import com.rmaafs.welcometale.utils.FileConfiguration;
+import com.rmaafs.welcometale.utils.PatchCompatibility;
+import com.rmaafs.welcometale.utils.ResourceExtractor;
+import com.rmaafs.welcometale.utils.Scheduler;
 import com.rmaafs.welcometale.utils.UpdateChecker;
 
 import javax.annotation.Nonnull;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Command to install the ClassTransformer early plugin.
  * Requires double confirmation within 10 minutes to apply the patch.
+ * Installation runs in the background and replaces an outdated transformer.
  * Usage: /welcometalepatch (first time shows warning, second time applies)
  */
 public class PatchCommand extends CommandBase {
 
         public static final String PERMISSION = "welcometale.admin";
         private static final String TRANSFORMER_RESOURCE = "/earlyplugins/LeaveMessageTransformer.jar";
-        private static final String TARGET_DIR = "earlyplugins";
-        private static final String TARGET_FILE = "LeaveMessageTransformer.jar";
+        private static final String CHECKSUM_RESOURCE = TRANSFORMER_RESOURCE + ".sha256";
         private static final long CONFIRMATION_TIMEOUT_MINUTES = 10;
-        private static final String DOCS_URL = new UpdateChecker("").REPO_URL + "/blob/main/leaveWorldMessagePatch.md";
+        private static final String DOCS_URL = UpdateChecker.REPO_URL + "/blob/main/leaveWorldMessagePatch.md";
 
         // Track pending confirmations: UUID -> timestamp of first execution
-        private static final Map<UUID, Instant> pendingConfirmations = new HashMap<>();
+        private static final Map<UUID, Instant> pendingConfirmations = new ConcurrentHashMap<>();
+        private static final AtomicBoolean installing = new AtomicBoolean();
 
         private static final String WARNING_MESSAGE = """
                         §e==============================================
@@ -44,7 +50,8 @@ public class PatchCommand extends CommandBase {
                         §fthe Hytale server's default behavior.
 
                         §eWhat it does:
-                        §f• Disables the default "player left world" message
+                        §f• Replaces the default "player left world" broadcast
+                        §f• Hands it to §eLeaveWorldMessage§f instead (see docs)
                         §f• Uses Hytale's official earlyplugins system
                         §f• Only affects the leave message broadcast
 
@@ -64,10 +71,28 @@ public class PatchCommand extends CommandBase {
                         §a{path}
 
                         §eServer restart required to apply changes.
-                        §fAfter restart, the default leave messages will be disabled.
+                        §fAfter restart, the default leave messages will be removed.
                         §a==============================================
                         """;
 
+        private static final String UPGRADED_MESSAGE = """
+                        §a==============================================
+                        §a§lPATCH UPGRADED!
+                        §fThe outdated earlyplugin was replaced at:
+                        §a{path}
+
+                        §eServer restart required to apply changes.
+                        §a==============================================
+                        """;
+
+        private static final String ALREADY_INSTALLED_MESSAGE = """
+                        §e==============================================
+                        §e§lALREADY INSTALLED
+                        §fThe patch is installed and up to date at:
+                        §7{path}
+                        §e==============================================
+                        """;
+
         public PatchCommand() {
                 super("welcometalepatch", "Install the earlyplugin patch for custom leave messages", false);
         }
@@ -77,7 +102,7 @@ public class PatchCommand extends CommandBase {
                 if (!commandContext.sender().hasPermission(PERMISSION)) {
                         commandContext.sender()
                                         .sendMessage(MessageFormatter
-                                                        .format(FileConfiguration.getConfig().getNoPermission()));
+                                                        .format(FileConfiguration.getSnapshot().getNoPermission()));
                         return;
                 }
 
@@ -87,85 +112,149 @@ public class PatchCommand extends CommandBase {
                 // Second execution within timeout - apply patch
                 if (firstExecution != null && Duration.between(firstExecution, Instant.now())
                                 .toMinutes() < CONFIRMATION_TIMEOUT_MINUTES) {
-                        applyPatch(commandContext);
                         pendingConfirmations.remove(senderId);
+                        applyPatch(commandContext);
                         return;
                 }
 
                 // First execution or timeout expired - show warning
                 pendingConfirmations.put(senderId, Instant.now());
                 commandContext.sender().sendMessage(MessageFormatter.format(WARNING_MESSAGE));
+                reportCompatibility(commandContext);
+        }
+
+        /**
+         * Tells the sender whether the patch matches this server, once the
+         * (usually cached) compatibility check is done.
+         */
+        private void reportCompatibility(@Nonnull CommandContext commandContext) {
+                PatchCompatibility.check().thenAccept(report -> {
+                        StringBuilder message = new StringBuilder(report.isCompatible()
+                                        ? "§aCompatibility: §f" + report.summary()
+                                        : "§cCompatibility: §f" + report.summary()
+                                                        + "\n§cThe patch may not work on this server version.");
+                        for (PatchCompatibility.Result patch : report.getResults()) {
+                                message.append("\n§7• ").append(patch.getId()).append(": ")
+                                                .append(patch.getStatus() == PatchCompatibility.Status.COMPATIBLE
+                                                                ? "§a"
+                                                                : "§c")
+                                                .append(patch.getStatus().getDescription());
+                        }
+                        commandContext.sender().sendMessage(MessageFormatter.format(message.toString()));
+                });
         }
 
         /**
-         * Applies the patch by extracting the transformer JAR to earlyplugins
-         * directory.
+         * Installs the patch off the command thread and reports the outcome to
+         * the sender. Only one installation runs at a time.
          */
         private void applyPatch(@Nonnull CommandContext commandContext) {
+                if (!installing.compareAndSet(false, true)) {
+                        commandContext.sender().sendMessage(
+                                        MessageFormatter.format("§eThe patch is already being installed."));
+                        return;
+                }
+
                 try {
-                        // Create earlyplugins directory if it doesn't exist
-                        Path earlyPluginsDir = Paths.get(TARGET_DIR);
-                        if (!Files.exists(earlyPluginsDir)) {
-                                Files.createDirectories(earlyPluginsDir);
-                                Main.MAIN_INSTANCE.getLogger().atInfo()
-                                                .log("Created earlyplugins directory at: "
-                                                                + earlyPluginsDir.toAbsolutePath());
+                        CompletableFuture.supplyAsync(PatchCommand::install, Scheduler.get())
+                                        .whenComplete((outcome, error) -> {
+                                                installing.set(false);
+                                                if (error != null) {
+                                                        reportFailure(commandContext,
+                                                                        error instanceof CompletionException
+                                                                                        ? error.getCause()
+                                                                                        : error);
+                                                } else {
+                                                        reportOutcome(commandContext, outcome);
+                                                }
+                                        });
+                } catch (RejectedExecutionException e) {
+                        // Plugin is shutting down
+                        installing.set(false);
+                        reportFailure(commandContext, e);
+                }
+        }
+
+        /**
+         * Extracts the embedded transformer JAR to the earlyplugins directory.
+         * The JAR is checked against the SHA-256 computed when the plugin was
+         * built, written to a temp file, verified again and moved into place
+         * atomically. An installed JAR with a different checksum is an older
+         * version and is replaced.
+         */
+        private static Outcome install() {
+                try {
+                        byte[] transformer = ResourceExtractor.readResource(PatchCommand.class, TRANSFORMER_RESOURCE);
+                        byte[] checksumFile = ResourceExtractor.readResource(PatchCommand.class, CHECKSUM_RESOURCE);
+                        if (transformer == null || checksumFile == null) {
+                                throw new IOException("Transformer JAR or its checksum not found in plugin resources");
                         }
 
-                        // Extract the embedded JAR
-                        Path targetPath = earlyPluginsDir.resolve(TARGET_FILE);
-
-                        // Check if patch is already installed
-                        if (Files.exists(targetPath)) {
-                                String alreadyInstalledMsg = """
-                                                §e==============================================
-                                                §e§lALREADY INSTALLED
-                                                §fThe patch was previously installed at:
-                                                §7""" + targetPath.toAbsolutePath() + """
-
-                                                §fIf you need to reinstall, delete the file first.
-                                                §e==============================================
-                                                """;
-                                commandContext.sender().sendMessage(MessageFormatter.format(alreadyInstalledMsg));
-                                return;
+                        String checksum = new String(checksumFile, StandardCharsets.US_ASCII).trim().split("\\s+")[0]
+                                        .toLowerCase();
+                        if (!checksum.equals(ResourceExtractor.sha256(transformer))) {
+                                throw new IOException("Embedded transformer JAR does not match its checksum, "
+                                                + "the plugin JAR may be corrupt");
                         }
 
-                        try (InputStream resourceStream = getClass().getResourceAsStream(TRANSFORMER_RESOURCE)) {
-                                if (resourceStream == null) {
-                                        commandContext.sender().sendMessage(
-                                                        MessageFormatter.format(
-                                                                        "§cERROR: Transformer JAR not found in plugin resources"));
-                                        Main.MAIN_INSTANCE.getLogger().atSevere()
-                                                        .log("Transformer JAR not found in resources: "
-                                                                        + TRANSFORMER_RESOURCE);
-                                        return;
-                                }
-
-                                // Copy with replacement
-                                Files.copy(resourceStream, targetPath, StandardCopyOption.REPLACE_EXISTING);
-
-                                Main.MAIN_INSTANCE.getLogger().atInfo()
-                                                .log("Successfully installed transformer to: "
-                                                                + targetPath.toAbsolutePath());
-
-                                // Send success message
-                                String successMsg = SUCCESS_MESSAGE.replace("{path}",
-                                                targetPath.toAbsolutePath().toString());
-                                commandContext.sender().sendMessage(MessageFormatter.format(successMsg));
+                        Path targetPath = PatchCompatibility.INSTALLED_TRANSFORMER;
+                        boolean upgrade = Files.exists(targetPath);
+                        if (upgrade && checksum.equals(ResourceExtractor.sha256(Files.readAllBytes(targetPath)))) {
+                                return new Outcome(Outcome.Kind.UP_TO_DATE, targetPath);
                         }
 
+                        ResourceExtractor.writeVerified(targetPath, transformer, checksum);
+                        Main.MAIN_INSTANCE.getLogger().atInfo()
+                                        .log((upgrade ? "Upgraded" : "Installed") + " transformer at: "
+                                                        + targetPath.toAbsolutePath() + " (sha256 " + checksum + ")");
+                        return new Outcome(upgrade ? Outcome.Kind.UPGRADED : Outcome.Kind.INSTALLED, targetPath);
+
                 } catch (IOException e) {
+                        throw new CompletionException(e);
+                }
+        }
+
+        private static void reportOutcome(@Nonnull CommandContext commandContext, @Nonnull Outcome outcome) {
+                String path = outcome.path.toAbsolutePath().toString();
+                String message = switch (outcome.kind) {
+                        case INSTALLED -> SUCCESS_MESSAGE.replace("{path}", path);
+                        case UPGRADED -> UPGRADED_MESSAGE.replace("{path}", path);
+                        case UP_TO_DATE -> ALREADY_INSTALLED_MESSAGE.replace("{path}", path);
+                };
+                commandContext.sender().sendMessage(MessageFormatter.format(message));
+        }
+
+        private static void reportFailure(@Nonnull CommandContext commandContext, @Nonnull Throwable error) {
+                if (error instanceof SecurityException) {
                         commandContext.sender().sendMessage(
-                                        MessageFormatter.format(
-                                                        "§cERROR: Failed to install patch: " + e.getMessage()));
-                        Main.MAIN_INSTANCE.getLogger().atSevere()
-                                        .log("Failed to extract transformer JAR", e);
-                } catch (SecurityException e) {
-                        commandContext.sender().sendMessage(
-                                        MessageFormatter.format(
-                                                        "§cERROR: No permission to write to server directory"));
+                                        MessageFormatter.format("§cERROR: No permission to write to server directory"));
                         Main.MAIN_INSTANCE.getLogger().atSevere()
-                                        .log("Permission denied when creating earlyplugins directory", e);
+                                        .log("Permission denied when installing the transformer", error);
+                        return;
+                }
+
+                commandContext.sender().sendMessage(
+                                MessageFormatter.format("§cERROR: Failed to install patch: " + error.getMessage()));
+                Main.MAIN_INSTANCE.getLogger().atSevere().log("Failed to install transformer JAR", error);
+        }
+
+        /**
+         * What an installation did and where.
+         */
+        private static final class Outcome {
+
+                private enum Kind {
+                        INSTALLED,
+                        UPGRADED,
+                        UP_TO_DATE
+                }
+
+                private final Kind kind;
+                private final Path path;
+
+                Outcome(Kind kind, Path path) {
+                        this.kind = kind;
+                        this.path = path;
                 }
         }
 }
@@ -0,0 +1,89 @@
+package com.rmaafs.welcometale.commands;
+
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.basecommands.CommandBase;
+import com.rmaafs.welcometale.utils.FileConfiguration;
+import com.rmaafs.welcometale.utils.Histogram;
+import com.rmaafs.welcometale.utils.LatencyRecorder;
+import com.rmaafs.welcometale.utils.MessageFormatter;
+import com.rmaafs.welcometale.utils.Metrics;
+import com.rmaafs.welcometale.utils.RenderCache;
+import com.rmaafs.welcometale.utils.ServerUtils;
+
+/**
+ * Subcommand /welcometale stats.
+ * Prints counts and p50/p99/max latencies of everything WelcomeTale measures.
+ * Usage: /welcometale stats, /welcometale stats reset
+ */
+public class StatsCommand extends CommandBase {
+
+    public StatsCommand() {
+        super("stats", "Show WelcomeTale performance stats", false);
+        this.addSubCommand(new ResetCommand());
+    }
+
+    @Override
+    protected void executeSync(@Nonnull CommandContext commandContext) {
+        if (!commandContext.sender().hasPermission(WelcomeTaleCommand.PERMISSION)) {
+            commandContext.sender()
+                    .sendMessage(MessageFormatter.format(FileConfiguration.getSnapshot().getNoPermission()));
+            return;
+        }
+
+        StringBuilder stats = new StringBuilder("&6&lWelcomeTale stats &7(since last reset)");
+        for (Map.Entry<String, LatencyRecorder> entry : Metrics.getLatencies().entrySet()) {
+            LatencyRecorder latency = entry.getValue();
+            stats.append("\n&e").append(entry.getKey()).append("&7: &f").append(latency.getCount())
+                    .append(" &7| p50 &f").append(Metrics.formatNanos(latency.getPercentile(50)))
+                    .append(" &7| p99 &f").append(Metrics.formatNanos(latency.getPercentile(99)))
+                    .append(" &7| max &f").append(Metrics.formatNanos(latency.getMax()));
+        }
+
+        Histogram recipients = Metrics.RECIPIENTS;
+        stats.append("\n&erecipients&7: p50 &f").append(recipients.getPercentile(50))
+                .append(" &7| p99 &f").append(recipients.getPercentile(99))
+                .append(" &7| max &f").append(recipients.getMax());
+
+        Histogram queueDepth = Metrics.QUEUE_DEPTH;
+        stats.append("\n&epaced queue&7: &f").append(ServerUtils.getBroadcastPacer().getQueuedRecipients())
+                .append(" &7recipients | p50 &f").append(queueDepth.getPercentile(50))
+                .append(" &7| p99 &f").append(queueDepth.getPercentile(99))
+                .append(" &7| max &f").append(queueDepth.getMax());
+
+        stats.append("\n&esuppressed announcements&7: &f").append(Metrics.SUPPRESSED_ANNOUNCEMENTS.sum());
+
+        RenderCache renderCache = FileConfiguration.getRenderCache();
+        stats.append("\n&erender cache&7: &f").append(renderCache.size())
+                .append(" &7entries | hits &f").append(renderCache.getHits())
+                .append(" &7| misses &f").append(renderCache.getMisses())
+                .append(" &7| evictions &f").append(renderCache.getEvictions());
+
+        commandContext.sender().sendMessage(MessageFormatter.format(stats.toString()));
+    }
+
+    /**
+     * Subcommand /welcometale stats reset.
+     */
+    private static class ResetCommand extends CommandBase {
+
+        ResetCommand() {
+            super("reset", "Reset WelcomeTale performance stats", false);
+        }
+
+        @Override
+        protected void executeSync(@Nonnull CommandContext commandContext) {
+            if (!commandContext.sender().hasPermission(WelcomeTaleCommand.PERMISSION)) {
+                commandContext.sender()
+                        .sendMessage(MessageFormatter.format(FileConfiguration.getSnapshot().getNoPermission()));
+                return;
+            }
+
+            Metrics.reset();
+            commandContext.sender().sendMessage(MessageFormatter.format("&aWelcomeTale stats reset."));
+        }
+    }
+}
@@ -4,12 +4,14 @@ import javax.annotation.Nonnull;
 
 import com.hypixel.hytale.server.core.command.system.CommandContext;
 import com.hypixel.hytale.server.core.command.system.basecommands.CommandBase;
+import com.rmaafs.welcometale.utils.ConfigSnapshot;
 import com.rmaafs.welcometale.utils.MessageFormatter;
 import com.rmaafs.welcometale.utils.FileConfiguration;
 
 /**
  * Command handler for /welcometale.
  * Allows reloading plugin configuration with proper permission check.
+ * The stats subcommand shows performance metrics.
  */
 public class WelcomeTaleCommand extends CommandBase {
 
@@ -17,6 +19,7 @@ public class WelcomeTaleCommand extends CommandBase {
 
     public WelcomeTaleCommand() {
         super("welcometale", "WelcomeTale command", false);
+        this.addSubCommand(new StatsCommand());
     }
 
     /**
@@ -27,12 +30,13 @@ public class WelcomeTaleCommand extends CommandBase {
     protected void executeSync(@Nonnull CommandContext commandContext) {
         if (!commandContext.sender().hasPermission(PERMISSION)) {
             commandContext.sender()
-                    .sendMessage(MessageFormatter.format(FileConfiguration.getConfig().getNoPermission()));
+                    .sendMessage(MessageFormatter.format(FileConfiguration.getSnapshot().getNoPermission()));
             return;
         }
 
-        FileConfiguration.reloadConfig();
-        commandContext.sender()
-                .sendMessage(MessageFormatter.format(FileConfiguration.getConfig().getMessageReloaded()));
+        boolean reloaded = FileConfiguration.reloadConfig();
+        ConfigSnapshot snapshot = FileConfiguration.getSnapshot();
+        commandContext.sender().sendMessage(MessageFormatter
+                .format(reloaded ? snapshot.getMessageReloaded() : snapshot.getMessageReloadFailed()));
     }
 }
\ No newline at end of file
@@ -0,0 +1,124 @@
+package com.rmaafs.welcometale.listeners;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.rmaafs.welcometale.placeholders.PlaceholderContext;
+import com.rmaafs.welcometale.placeholders.Placeholders;
+import com.rmaafs.welcometale.utils.ConfigSnapshot;
+import com.rmaafs.welcometale.utils.FileConfiguration;
+import com.rmaafs.welcometale.utils.MessageTemplate;
+import com.rmaafs.welcometale.utils.Scheduler;
+import com.rmaafs.welcometale.utils.ServerUtils;
+
+/**
+ * Batches join/leave announcements during reconnect storms.
+ * While fewer than CoalesceThreshold events of one kind arrive within a
+ * window, they are announced individually as usual. Beyond that, further
+ * events are collected and announced once per window as a single summary,
+ * e.g. "Alice, Bob, Carol and 47 others joined".
+ */
+public class AnnouncementCoalescer {
+
+    private static final int MAX_LISTED_NAMES = 3;
+
+    private final Lane joins = new Lane(true);
+    private final Lane leaves = new Lane(false);
+
+    /**
+     * Offers a join announcement for batching.
+     *
+     * @return true if the announcement was batched, false if the caller should
+     *         broadcast it right away
+     */
+    public boolean offerJoin(ConfigSnapshot config, String playerName) {
+        return config.isCoalesceJoinLeave() && joins.offer(config, playerName);
+    }
+
+    /**
+     * Offers a leave announcement for batching.
+     *
+     * @return true if the announcement was batched, false if the caller should
+     *         broadcast it right away
+     */
+    public boolean offerLeave(ConfigSnapshot config, String playerName) {
+        return config.isCoalesceJoinLeave() && leaves.offer(config, playerName);
+    }
+
+    /**
+     * Formats the listed names and the number of unlisted players, e.g.
+     * "Alice", "Alice and Bob" or "Alice, Bob, Carol and 47 others".
+     */
+    static String formatNames(List<String> names, int total) {
+        int others = total - names.size();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < names.size(); i++) {
+            if (i > 0) {
+                text.append(i == names.size() - 1 && others == 0 ? " and " : ", ");
+            }
+            text.append(names.get(i));
+        }
+
+        if (others > 0) {
+            text.append(" and ").append(others).append(others == 1 ? " other" : " others");
+        }
+        return text.toString();
+    }
+
+    /**
+     * Batching state for one kind of announcement.
+     */
+    private static final class Lane {
+        private final boolean join;
+        private long windowStart;
+        private int eventsInWindow;
+        private final List<String> names = new ArrayList<>(MAX_LISTED_NAMES);
+        private int pending;
+
+        Lane(boolean join) {
+            this.join = join;
+        }
+
+        synchronized boolean offer(ConfigSnapshot config, String playerName) {
+            long now = System.nanoTime();
+            if (eventsInWindow == 0
+                    || now - windowStart > TimeUnit.MILLISECONDS.toNanos(config.getCoalesceWindowMillis())) {
+                windowStart = now;
+                eventsInWindow = 0;
+            }
+            eventsInWindow++;
+
+            if (pending == 0 && eventsInWindow <= config.getCoalesceThreshold()) {
+                return false;
+            }
+
+            if (names.size() < MAX_LISTED_NAMES) {
+                names.add(playerName);
+            }
+            if (pending++ == 0) {
+                Scheduler.get().schedule(this::flush, config.getCoalesceWindowMillis(), TimeUnit.MILLISECONDS);
+            }
+            return true;
+        }
+
+        private void flush() {
+            String players;
+            int count;
+            synchronized (this) {
+                players = formatNames(names, pending);
+                count = pending;
+                names.clear();
+                pending = 0;
+            }
+
+            ConfigSnapshot config = FileConfiguration.getSnapshot();
+            MessageTemplate summary = join ? config.getJoinSummaryMessage() : config.getLeaveSummaryMessage();
+            if (!summary.isBlank()) {
+                ServerUtils.broadcast(summary.render(PlaceholderContext.global()
+                        .with(Placeholders.PLAYERS, players)
+                        .with(Placeholders.COUNT, Integer.toString(count))));
+            }
+        }
+    }
+}
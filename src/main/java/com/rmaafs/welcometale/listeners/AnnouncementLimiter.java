@@ -0,0 +1,122 @@
+package com.rmaafs.welcometale.listeners;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.rmaafs.welcometale.utils.ConfigSnapshot;
+import com.rmaafs.welcometale.utils.Metrics;
+import com.rmaafs.welcometale.utils.Scheduler;
+
+/**
+ * Per-player rate limit for join/leave announcements.
+ * Each player has a token bucket holding AnnounceRateLimit join
+ * announcements, refilled evenly over AnnounceRateWindowSeconds. Joins beyond
+ * that are not announced, and neither is the matching leave, so a bot or an
+ * unstable connection reconnecting in a loop cannot flood the chat. Players
+ * idle for a whole window are dropped from the map by a periodic sweep.
+ */
+public class AnnouncementLimiter {
+
+    private static final long SWEEP_INTERVAL_SECONDS = 60;
+
+    private final ConcurrentHashMap<UUID, Bucket> buckets = new ConcurrentHashMap<>();
+    private volatile long idleNanos = TimeUnit.SECONDS.toNanos(60);
+
+    public AnnouncementLimiter() {
+        Scheduler.get().scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL_SECONDS, SWEEP_INTERVAL_SECONDS,
+                TimeUnit.SECONDS);
+    }
+
+    /**
+     * Takes a token for a join announcement.
+     *
+     * @return true if the join should be announced
+     */
+    public boolean allowJoin(ConfigSnapshot config, UUID playerUuid) {
+        int limit = config.getAnnounceRateLimit();
+        if (limit == 0) {
+            return true;
+        }
+
+        long windowNanos = TimeUnit.SECONDS.toNanos(config.getAnnounceRateWindowSeconds());
+        idleNanos = windowNanos;
+
+        boolean allowed = buckets.computeIfAbsent(playerUuid, uuid -> new Bucket(limit))
+                .tryJoin(limit, windowNanos, System.nanoTime());
+        if (!allowed) {
+            Metrics.SUPPRESSED_ANNOUNCEMENTS.increment();
+        }
+        return allowed;
+    }
+
+    /**
+     * @return true if the leave should be announced, which is the case
+     *         whenever the player's last join was announced
+     */
+    public boolean allowLeave(ConfigSnapshot config, UUID playerUuid) {
+        if (config.getAnnounceRateLimit() == 0) {
+            return true;
+        }
+
+        Bucket bucket = buckets.get(playerUuid);
+        boolean allowed = bucket == null || bucket.leave(System.nanoTime());
+        if (!allowed) {
+            Metrics.SUPPRESSED_ANNOUNCEMENTS.increment();
+        }
+        return allowed;
+    }
+
+    /**
+     * Drops players that have neither joined nor left for a whole window. Their
+     * bucket would be full again, so forgetting them changes nothing.
+     */
+    private void sweep() {
+        long now = System.nanoTime();
+        long idle = idleNanos;
+        buckets.values().removeIf(bucket -> bucket.isIdle(now, idle));
+    }
+
+    /**
+     * Token bucket of one player.
+     */
+    private static final class Bucket {
+        private double tokens;
+        private long lastRefill;
+        private long lastSeen;
+        private boolean joinAnnounced = true;
+
+        Bucket(int limit) {
+            this.tokens = limit;
+            this.lastRefill = System.nanoTime();
+            this.lastSeen = lastRefill;
+        }
+
+        synchronized boolean tryJoin(int limit, long windowNanos, long now) {
+            tokens = Math.min(limit, tokens + (double) (now - lastRefill) * limit / windowNanos);
+            lastRefill = now;
+            lastSeen = now;
+
+            joinAnnounced = tokens >= 1;
+            if (joinAnnounced) {
+                tokens--;
+            }
+            return joinAnnounced;
+        }
+
+        synchronized boolean leave(long now) {
+            lastSeen = now;
+            boolean announced = joinAnnounced;
+            joinAnnounced = true;
+            return announced;
+        }
+
+        /**
+         * Players whose join was suppressed stay tracked until they leave, so
+         * their leave is suppressed too.
+         */
+        synchronized boolean isIdle(long now, long idleNanos) {
+            return joinAnnounced && now - lastSeen > idleNanos;
+        }
+    }
+}
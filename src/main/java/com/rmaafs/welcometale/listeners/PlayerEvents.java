@@ -1,11 +1,27 @@
 package com.rmaafs.welcometale.listeners;
 
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.hypixel.hytale.server.core.Message;
 import com.hypixel.hytale.server.core.event.events.player.AddPlayerToWorldEvent;
 import com.hypixel.hytale.server.core.event.events.player.PlayerConnectEvent;
 import com.hypixel.hytale.server.core.event.events.player.PlayerDisconnectEvent;
 import com.hypixel.hytale.server.core.plugin.JavaPlugin;
 import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.rmaafs.welcometale.placeholders.PlaceholderContext;
+import com.rmaafs.welcometale.placeholders.Placeholders;
+import com.rmaafs.welcometale.utils.BroadcastPacer;
+import com.rmaafs.welcometale.utils.ConfigSnapshot;
 import com.rmaafs.welcometale.utils.MessageFormatter;
+import com.rmaafs.welcometale.utils.MessageTemplate;
+import com.rmaafs.welcometale.utils.Metrics;
+import com.rmaafs.welcometale.utils.PlayerSeenStore;
+import com.rmaafs.welcometale.utils.RenderCache;
 import com.rmaafs.welcometale.utils.ServerUtils;
 import com.rmaafs.welcometale.utils.UpdateChecker;
 import com.rmaafs.welcometale.commands.WelcomeTaleCommand;
@@ -18,6 +34,11 @@ import com.rmaafs.welcometale.Main;
  */
 public class PlayerEvents {
 
+    private final AnnouncementCoalescer coalescer = new AnnouncementCoalescer();
+    private final AnnouncementLimiter limiter = new AnnouncementLimiter();
+    /** World each online player was last added to, for {world} in LeaveMessage */
+    private final ConcurrentHashMap<UUID, String> worldNames = new ConcurrentHashMap<>();
+
     public PlayerEvents(JavaPlugin plugin) {
         this.registerEvents(plugin);
     }
@@ -29,63 +50,148 @@ public class PlayerEvents {
     }
 
     /**
-     * Controls visibility of join messages based on configuration.
+     * Controls visibility of join messages based on configuration, and
+     * remembers the world the player is now in.
      */
     private void onPlayerJoinWorld(AddPlayerToWorldEvent event) {
-        event.setBroadcastJoinMessage(!FileConfiguration.getConfig().isDisableDefaultJoinMessage());
+        event.setBroadcastJoinMessage(!FileConfiguration.getSnapshot().isDisableDefaultJoinMessage());
+        rememberWorld(event.getPlayerRef(), event.getWorld());
     }
 
     /**
      * Handles player connection events by sending custom welcome and join messages.
      * Broadcasts a join message to all players and sends a private welcome message
-     * to the connecting player. Messages are formatted with the player's username
-     * replacing the {player} placeholder.
+     * to the connecting player, using FirstJoinMessage for players never seen
+     * before. Messages are rendered from the precompiled
+     * templates, resolving only the placeholders they use, and messages that
+     * only depend on the player's name are cached for players who reconnect.
+     * During join storms the broadcast may be batched into a summary, and
+     * players reconnecting in a loop are rate limited, while the private
+     * welcome message is always sent immediately.
      *
      * @param event the player connect event containing player and world information
      */
     private void onPlayerConnect(PlayerConnectEvent event) {
+        long start = System.nanoTime();
         PlayerRef player = event.getPlayerRef();
         String playerName = player.getUsername();
+        ConfigSnapshot config = FileConfiguration.getSnapshot();
+        RenderCache renderCache = FileConfiguration.getRenderCache();
+        String worldName = rememberWorld(player, event.getWorld());
+        PlaceholderContext placeholders = PlaceholderContext.forPlayer(player, worldName);
 
-        String joinMessage = FileConfiguration.getConfig().getJoinMessage().replace("{player}", playerName);
-        String welcomeMessage = FileConfiguration.getConfig().getWelcomePlayerMessage().replace("{player}", playerName);
+        PlayerSeenStore.Visit visit = recordVisit(player);
+        addVisitPlaceholders(placeholders, visit, config.getDateFormat());
+        MessageTemplate joinMessage = config.getJoinMessage();
+        boolean firstJoin = visit != null && visit.isFirstJoin();
+        MessageTemplate welcomeMessage = firstJoin && !config.getFirstJoinMessage().isBlank()
+                ? config.getFirstJoinMessage()
+                : config.getWelcomePlayerMessage();
 
-        if (!joinMessage.trim().isEmpty()) {
-            ServerUtils.broadcast(MessageFormatter.format(joinMessage));
+        if (!joinMessage.isBlank() && limiter.allowJoin(config, player.getUuid())
+                && !coalescer.offerJoin(config, playerName)) {
+            ServerUtils.broadcast(renderCache.render(joinMessage, placeholders));
         }
 
-        if (!welcomeMessage.trim().isEmpty()) {
-            player.sendMessage(MessageFormatter.format(welcomeMessage));
+        if (!welcomeMessage.isBlank()) {
+            player.sendMessage(renderCache.render(welcomeMessage, placeholders));
         }
 
-        if (FileConfiguration.getConfig().isCheckForUpdates()
+        if (config.isCheckForUpdates()
                 && ServerUtils.hasPermission(player, WelcomeTaleCommand.PERMISSION)) {
             UpdateChecker updater = Main.updateChecker;
 
             if (updater != null && !updater.isUsingLatest()) {
-                player.sendMessage(MessageFormatter.format("&6&lWelcomeTale > &eNew version available &av"
+                Message notice = MessageFormatter.format("&6&lWelcomeTale > &eNew version available &av"
                         + updater.getLatestVersion() + " &7&o(current: v"
                         + updater.getCurrentVersion()
-                        + "&e)\nDownload at &7" + updater.REPO_URL + "/releases"));
+                        + "&e)\nDownload at &7" + UpdateChecker.REPO_URL + "/releases");
+                ServerUtils.sendMessage(player, notice, BroadcastPacer.Priority.HIGH);
             }
         }
+
+        Metrics.CONNECT.recordSince(start);
+    }
+
+    /**
+     * Remembers the world a player is in until they disconnect.
+     *
+     * @return The world's name, or null if the event had no world
+     */
+    private String rememberWorld(PlayerRef player, World world) {
+        if (player == null || world == null) {
+            return null;
+        }
+
+        String worldName = world.getName();
+        worldNames.put(player.getUuid(), worldName);
+        return worldName;
+    }
+
+    /**
+     * Records the join in the player-seen store.
+     *
+     * @return The player's history, or null if the store is unavailable
+     */
+    private PlayerSeenStore.Visit recordVisit(PlayerRef player) {
+        PlayerSeenStore store = Main.playerSeenStore;
+        if (store == null) {
+            return null;
+        }
+
+        try {
+            return store.recordJoin(player.getUuid(), System.currentTimeMillis());
+        } catch (IOException e) {
+            Main.MAIN_INSTANCE.getLogger().atSevere().log("Could not record join of " + player.getUsername(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Sets {first_seen}, {last_seen} and {join_count} from the player's
+     * history, or to empty values if the store is unavailable. The values are
+     * only formatted if a message uses them.
+     */
+    private static void addVisitPlaceholders(PlaceholderContext placeholders, PlayerSeenStore.Visit visit,
+            DateTimeFormatter dateFormat) {
+        if (visit == null) {
+            placeholders.with(Placeholders.FIRST_SEEN, "")
+                    .with(Placeholders.LAST_SEEN, "")
+                    .with(Placeholders.JOIN_COUNT, "");
+            return;
+        }
+
+        placeholders
+                .with(Placeholders.FIRST_SEEN,
+                        context -> dateFormat.format(Instant.ofEpochMilli(visit.getFirstSeen())))
+                .with(Placeholders.LAST_SEEN,
+                        context -> dateFormat.format(Instant.ofEpochMilli(visit.getLastSeen())))
+                .with(Placeholders.JOIN_COUNT, context -> Integer.toString(visit.getJoinCount()));
     }
 
     /**
      * Handles player disconnection events by broadcasting a custom leave message.
-     * The message is formatted with the player's username replacing the {player}
-     * placeholder.
+     * The message is rendered from the precompiled template, resolving only
+     * the placeholders it uses, with {world} set to the last world the player
+     * was added to.
      *
      * @param event the player disconnect event containing player information
      */
     private void onPlayerDisconnect(PlayerDisconnectEvent event) {
+        long start = System.nanoTime();
         PlayerRef player = event.getPlayerRef();
         String playerName = player.getUsername();
+        String worldName = worldNames.remove(player.getUuid());
 
-        String leaveMessage = FileConfiguration.getConfig().getLeaveMessage().replace("{player}", playerName);
+        ConfigSnapshot config = FileConfiguration.getSnapshot();
+        MessageTemplate leaveMessage = config.getLeaveMessage();
 
-        if (!leaveMessage.trim().isEmpty()) {
-            ServerUtils.broadcast(MessageFormatter.format(leaveMessage));
+        if (!leaveMessage.isBlank() && limiter.allowLeave(config, player.getUuid())
+                && !coalescer.offerLeave(config, playerName)) {
+            ServerUtils.broadcast(FileConfiguration.getRenderCache().render(leaveMessage,
+                    PlaceholderContext.forPlayer(player, worldName)));
         }
+
+        Metrics.DISCONNECT.recordSince(start);
     }
 }
@@ -0,0 +1,115 @@
+package com.rmaafs.welcometale.listeners;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.hypixel.hytale.server.core.plugin.JavaPlugin;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.Universe;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.rmaafs.welcometale.placeholders.PlaceholderContext;
+import com.rmaafs.welcometale.transformers.PatchSpec;
+import com.rmaafs.welcometale.utils.FileConfiguration;
+import com.rmaafs.welcometale.utils.MessageTemplate;
+import com.rmaafs.welcometale.utils.Scheduler;
+import com.rmaafs.welcometale.utils.ServerUtils;
+
+/**
+ * Announces players leaving a world for another one, which
+ * PlayerDisconnectEvent does not cover.
+ * With the leave message patch installed, the server's "player left world"
+ * broadcast goes to the transformer's LeaveHook, which only records who left
+ * which world. This class drains those records on the scheduler and
+ * broadcasts LeaveWorldMessage to the players still in that world.
+ * Records are handled once they are DISCONNECT_GRACE_MILLIS old: a player
+ * who is no longer online by then disconnected, and is announced by
+ * LeaveMessage instead.
+ */
+public class WorldLeaveAnnouncer {
+
+    private static final String PATCH_ID = "leave-message";
+    private static final long DRAIN_INTERVAL_MILLIS = 100;
+    private static final long DISCONNECT_GRACE_MILLIS = 250;
+    private static final int BATCH_SIZE = 64;
+
+    private static ScheduledFuture<?> drainTask;
+
+    private final MethodHandle drain;
+    private final long[] uuids = new long[2 * BATCH_SIZE];
+    private final Object[] stores = new Object[BATCH_SIZE];
+
+    private WorldLeaveAnnouncer(MethodHandle drain) {
+        this.drain = drain;
+    }
+
+    /**
+     * Starts draining the leave hook, if the leave message patch rerouted the
+     * broadcast. The transformer publishes the hook it calls as a system
+     * property once the patch is applied; the hook's class is only visible to
+     * the transformer's class loader, so drain is looked up from that handle.
+     */
+    public static synchronized void start(JavaPlugin plugin) {
+        if (drainTask != null) {
+            return;
+        }
+
+        Object leave = System.getProperties().get(PatchSpec.hookProperty(PATCH_ID));
+        if (!(leave instanceof MethodHandle)) {
+            plugin.getLogger().atFine().log("Leave message reroute not applied, LeaveWorldMessage is disabled");
+            return;
+        }
+
+        MethodHandle drain;
+        try {
+            Class<?> hook = MethodHandles.reflectAs(Method.class, (MethodHandle) leave).getDeclaringClass();
+            drain = MethodHandles.publicLookup().findStatic(hook, "drain",
+                    MethodType.methodType(int.class, long[].class, Object[].class, long.class));
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            plugin.getLogger().atWarning().log("Leave message patch is outdated, LeaveWorldMessage is disabled", e);
+            return;
+        }
+
+        WorldLeaveAnnouncer announcer = new WorldLeaveAnnouncer(drain);
+        drainTask = Scheduler.get().scheduleWithFixedDelay(() -> announcer.drain(plugin), DRAIN_INTERVAL_MILLIS,
+                DRAIN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void drain(JavaPlugin plugin) {
+        try {
+            long recordedBefore = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(DISCONNECT_GRACE_MILLIS);
+            int count;
+            do {
+                count = (int) drain.invokeExact(uuids, stores, recordedBefore);
+                MessageTemplate template = FileConfiguration.getSnapshot().getLeaveWorldMessage();
+                for (int i = 0; i < count; i++) {
+                    if (!template.isBlank()) {
+                        announce(template, new UUID(uuids[2 * i], uuids[2 * i + 1]), stores[i]);
+                    }
+                    stores[i] = null;
+                }
+            } while (count == BATCH_SIZE);
+        } catch (Throwable t) {
+            plugin.getLogger().atSevere().log("Could not announce world leaves", t);
+        }
+    }
+
+    private static void announce(MessageTemplate template, UUID uuid, Object store) {
+        PlayerRef player = Universe.get().getPlayer(uuid);
+        if (player == null) {
+            return;
+        }
+
+        for (World world : Universe.get().getWorlds().values()) {
+            if (world.getEntityStore().getStore() == store) {
+                ServerUtils.broadcastToWorld(world, FileConfiguration.getRenderCache().render(template,
+                        PlaceholderContext.forPlayer(player, world.getName())));
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * Player and event a message is rendered for.
+ * Values set with {@link #with(String, String)} or
+ * {@link #with(String, PlaceholderResolver)} take precedence over registered
+ * resolvers, and every value is resolved at most once per context,
+ * so an event rendering several messages calls each resolver only once.
+ * A context belongs to one event and is not thread-safe.
+ *
+ * @author github.com/rmaafs
+ * @website https://rmaafs.com
+ */
+package com.rmaafs.welcometale.placeholders;
+
+import java.util.Arrays;
+
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+
+public final class PlaceholderContext {
+
+    private static final String UNRESOLVED = new String("");
+    private static final String PENDING = new String("");
+
+    private final PlayerRef player;
+    private final String playerName;
+    private final String worldName;
+    private String[] keys = new String[4];
+    private String[] values = new String[4];
+    private PlaceholderResolver[] resolvers;
+    private int size;
+
+    private PlaceholderContext(PlayerRef player, String playerName, String worldName) {
+        this.player = player;
+        this.playerName = playerName;
+        this.worldName = worldName;
+    }
+
+    /**
+     * @param player    Player the message is about
+     * @param worldName Name of the player's world, or null if unknown
+     * @return Context for a message about the player
+     */
+    public static PlaceholderContext forPlayer(PlayerRef player, String worldName) {
+        return new PlaceholderContext(player, player.getUsername(), worldName);
+    }
+
+    /**
+     * @return Context for a message that is not about a single player
+     */
+    public static PlaceholderContext global() {
+        return new PlaceholderContext(null, null, null);
+    }
+
+    /**
+     * Sets a fixed value for a placeholder, overriding its resolver.
+     *
+     * @param key   Placeholder name without braces, e.g. {@code "count"}
+     * @param value Placeholder value
+     * @return This context
+     */
+    public PlaceholderContext with(String key, String value) {
+        put(key, value);
+        return this;
+    }
+
+    /**
+     * Sets a resolver for a placeholder in this context only, overriding the
+     * registered one. It is called the first time a message uses the
+     * placeholder, so values no configured message shows are never computed.
+     *
+     * @param key      Placeholder name without braces, e.g. {@code "count"}
+     * @param resolver Resolver computing the value
+     * @return This context
+     */
+    public PlaceholderContext with(String key, PlaceholderResolver resolver) {
+        int index = put(key, PENDING);
+        if (resolvers == null) {
+            resolvers = new PlaceholderResolver[keys.length];
+        } else if (resolvers.length < keys.length) {
+            resolvers = Arrays.copyOf(resolvers, keys.length);
+        }
+        resolvers[index] = resolver;
+        return this;
+    }
+
+    /**
+     * @return Player the message is about, or null for global messages
+     */
+    public PlayerRef getPlayer() {
+        return player;
+    }
+
+    /**
+     * @return Username of the player, or null for global messages
+     */
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    /**
+     * @return Name of the player's world, or null if unknown
+     */
+    public String getWorldName() {
+        return worldName;
+    }
+
+    /**
+     * @param key Placeholder name without braces
+     * @return Placeholder value, or null if no resolver knows the placeholder
+     */
+    public String resolve(String key) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i].equals(key)) {
+                if (values[i] == PENDING) {
+                    String value = resolvers[i].resolve(this);
+                    values[i] = value == null ? UNRESOLVED : value;
+                    resolvers[i] = null;
+                }
+                return values[i] == UNRESOLVED ? null : values[i];
+            }
+        }
+
+        String value = Placeholders.resolve(key, this);
+        put(key, value == null ? UNRESOLVED : value);
+        return value;
+    }
+
+    /**
+     * @return Index the value was stored at
+     */
+    private int put(String key, String value) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i].equals(key)) {
+                values[i] = value;
+                return i;
+            }
+        }
+
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        keys[size] = key;
+        values[size] = value;
+        return size++;
+    }
+}
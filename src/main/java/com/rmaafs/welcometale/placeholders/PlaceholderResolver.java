@@ -0,0 +1,35 @@
+/**
+ * Computes the value of one placeholder, e.g. {online}.
+ * Register implementations with {@link Placeholders#register}. A resolver is
+ * only called when a configured message actually uses its placeholder.
+ *
+ * @author github.com/rmaafs
+ * @website https://rmaafs.com
+ */
+package com.rmaafs.welcometale.placeholders;
+
+@FunctionalInterface
+public interface PlaceholderResolver {
+
+    /**
+     * What a placeholder's value depends on.
+     */
+    enum Scope {
+        /**
+         * Depends on the player or event, resolved for every message.
+         */
+        PLAYER,
+        /**
+         * Same for everyone, resolved at most once per server tick and shared
+         * by every message rendered within it.
+         */
+        GLOBAL
+    }
+
+    /**
+     * @param context Player and event the message is rendered for. Global
+     *                resolvers should not depend on it
+     * @return Placeholder value, or null to leave the placeholder as written
+     */
+    String resolve(PlaceholderContext context);
+}
@@ -0,0 +1,190 @@
+/**
+ * Registry of placeholder resolvers, open to other plugins.
+ * Built in are {player}, {world}, {online}, {max_players} and
+ * {server_uptime}. WelcomeTale also sets {first_seen}, {last_seen},
+ * {join_count}, {players} and {count} on the messages they apply to.
+ *
+ * Global values are memoized for one server tick, so a burst of joins reads
+ * e.g. the online count once instead of once per message.
+ *
+ * @author github.com/rmaafs
+ * @website https://rmaafs.com
+ */
+package com.rmaafs.welcometale.placeholders;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.hypixel.hytale.server.core.HytaleServer;
+import com.hypixel.hytale.server.core.universe.Universe;
+import com.rmaafs.welcometale.Main;
+import com.rmaafs.welcometale.placeholders.PlaceholderResolver.Scope;
+
+public final class Placeholders {
+
+    public static final String PLAYER = "player";
+    public static final String WORLD = "world";
+    public static final String ONLINE = "online";
+    public static final String MAX_PLAYERS = "max_players";
+    public static final String SERVER_UPTIME = "server_uptime";
+    public static final String FIRST_SEEN = "first_seen";
+    public static final String LAST_SEEN = "last_seen";
+    public static final String JOIN_COUNT = "join_count";
+    public static final String PLAYERS = "players";
+    public static final String COUNT = "count";
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private static final ConcurrentHashMap<String, Registration> RESOLVERS = new ConcurrentHashMap<>();
+
+    static {
+        register(PLAYER, Scope.PLAYER, PlaceholderContext::getPlayerName);
+        register(WORLD, Scope.PLAYER,
+                context -> context.getWorldName() == null ? "" : context.getWorldName());
+        register(ONLINE, Scope.GLOBAL, context -> Integer.toString(Universe.get().getPlayerCount()));
+        register(MAX_PLAYERS, Scope.GLOBAL,
+                context -> Integer.toString(HytaleServer.get().getConfig().getMaxPlayers()));
+        register(SERVER_UPTIME, Scope.GLOBAL,
+                context -> formatUptime(ManagementFactory.getRuntimeMXBean().getUptime()));
+    }
+
+    private Placeholders() {
+    }
+
+    /**
+     * Registers a resolver, replacing any resolver already registered for the
+     * placeholder. Messages pick it up on their next render, no reload needed.
+     *
+     * @param key      Placeholder name without braces, e.g. {@code "coins"} for
+     *                 {coins}. Letters, digits, '_', '-', '.' and ':'
+     * @param scope    Whether the value depends on the player
+     * @param resolver Resolver computing the value
+     */
+    public static void register(String key, Scope scope, PlaceholderResolver resolver) {
+        if (!isValidKey(key)) {
+            throw new IllegalArgumentException("Invalid placeholder name: " + key);
+        }
+        RESOLVERS.put(key, new Registration(scope, resolver));
+    }
+
+    /**
+     * @param key Placeholder name without braces
+     * @return true if a resolver was registered for the placeholder
+     */
+    public static boolean unregister(String key) {
+        return RESOLVERS.remove(key) != null;
+    }
+
+    /**
+     * @param key Placeholder name without braces
+     * @return true if a resolver is registered for the placeholder
+     */
+    public static boolean isRegistered(String key) {
+        return RESOLVERS.containsKey(key);
+    }
+
+    /**
+     * @return true if the character may appear in a placeholder name
+     */
+    public static boolean isKeyChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '_' || c == '-' || c == '.' || c == ':';
+    }
+
+    private static boolean isValidKey(String key) {
+        if (key == null || key.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (!isKeyChar(key.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Value from the placeholder's resolver, or null if there is none
+     */
+    static String resolve(String key, PlaceholderContext context) {
+        Registration registration = RESOLVERS.get(key);
+        return registration == null ? null : registration.resolve(key, context);
+    }
+
+    /**
+     * Formats an uptime for chat, e.g. {@code 3d 4h}, {@code 4h 12m} or
+     * {@code 12m}.
+     */
+    static String formatUptime(long millis) {
+        long minutes = TimeUnit.MILLISECONDS.toMinutes(millis);
+        long hours = minutes / 60;
+        long days = hours / 24;
+        if (days > 0) {
+            return days + "d " + hours % 24 + "h";
+        }
+        if (hours > 0) {
+            return hours + "h " + minutes % 60 + "m";
+        }
+        return minutes + "m";
+    }
+
+    /**
+     * A resolver and, for global ones, its last value.
+     */
+    private static final class Registration {
+        private final Scope scope;
+        private final PlaceholderResolver resolver;
+        private volatile Memo memo;
+        private volatile boolean failureLogged;
+
+        Registration(Scope scope, PlaceholderResolver resolver) {
+            this.scope = scope;
+            this.resolver = resolver;
+        }
+
+        String resolve(String key, PlaceholderContext context) {
+            if (scope == Scope.PLAYER) {
+                return call(key, context);
+            }
+
+            // Racing threads may both recompute an expired value, which is harmless
+            long now = System.nanoTime();
+            Memo current = memo;
+            if (current != null && now - current.resolvedAt < TICK_NANOS) {
+                return current.value;
+            }
+
+            String value = call(key, context);
+            memo = new Memo(value, now);
+            return value;
+        }
+
+        /**
+         * Calls the resolver, so a broken resolver from another plugin blanks
+         * its placeholder instead of the whole message.
+         */
+        private String call(String key, PlaceholderContext context) {
+            try {
+                return resolver.resolve(context);
+            } catch (RuntimeException e) {
+                if (!failureLogged && Main.MAIN_INSTANCE != null) {
+                    failureLogged = true;
+                    Main.MAIN_INSTANCE.getLogger().atWarning()
+                            .log("Placeholder {" + key + "} could not be resolved", e);
+                }
+                return "";
+            }
+        }
+    }
+
+    private static final class Memo {
+        private final String value;
+        private final long resolvedAt;
+
+        Memo(String value, long resolvedAt) {
+            this.value = value;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+}
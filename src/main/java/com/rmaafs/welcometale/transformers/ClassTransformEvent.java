@@ -0,0 +1,33 @@
+package com.rmaafs.welcometale.transformers;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event for a class rewritten by a WelcomeTale
+ * transformer. Lives in the transformer jar, so it is available before the
+ * plugin itself is loaded.
+ *
+ * @author rmaafs
+ */
+@Name("com.rmaafs.welcometale.ClassTransform")
+@Label("Class Transform")
+@Category("WelcomeTale")
+@Description("Bytecode rewrite of a server class by the early plugin")
+final class ClassTransformEvent extends Event {
+
+    @Label("Class Name")
+    String className;
+
+    @Label("Input Size")
+    int inputSize;
+
+    @Label("Output Size")
+    int outputSize;
+
+    @Label("Success")
+    boolean success;
+}
@@ -0,0 +1,129 @@
+package com.rmaafs.welcometale.transformers;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Receives the leave broadcasts rerouted by the bundled {@code leave-message}
+ * patch.
+ *
+ * <p>The patched call runs on a world thread while the player entity is being
+ * removed, so the hook only copies the player's UUID and the world's store
+ * into a fixed size ring buffer: no allocation, no lock, no message sent. The
+ * plugin drains the buffer from its own thread and sends WelcomeTale's leave
+ * message instead.</p>
+ *
+ * <p>The buffer is a bounded multi-producer queue: each slot carries a
+ * sequence number telling producers whether it is free and the consumer
+ * whether it is published. When the plugin is not draining (not installed,
+ * or the message is disabled) the buffer fills up and further records are
+ * counted as dropped, which costs one read per leave.</p>
+ *
+ * <p>Neither the server nor the plugin can load this class by name: the
+ * patched class calls it through the method handle the engine publishes
+ * under {@code PatchSpec.hookProperty("leave-message")}, and the plugin finds
+ * it from that handle. So the public methods only use JDK types.</p>
+ *
+ * @author rmaafs
+ */
+public final class LeaveHook {
+
+    private static final int CAPACITY = 1024;
+    private static final int MASK = CAPACITY - 1;
+
+    private static final AtomicLongArray SEQUENCES = new AtomicLongArray(CAPACITY);
+    private static final long[] MOST_SIGNIFICANT = new long[CAPACITY];
+    private static final long[] LEAST_SIGNIFICANT = new long[CAPACITY];
+    private static final long[] RECORDED_AT = new long[CAPACITY];
+    private static final Object[] STORES = new Object[CAPACITY];
+
+    private static final AtomicLong TAIL = new AtomicLong();
+    private static final AtomicLong DROPPED = new AtomicLong();
+    private static long head;
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            SEQUENCES.set(i, i);
+        }
+    }
+
+    private LeaveHook() {
+    }
+
+    /**
+     * Replaces {@code PlayerUtil.broadcastMessageToPlayers(UUID, Message, Store)}
+     * in {@code PlayerRemovedSystem.onEntityRemoved}.
+     *
+     * @param playerUuid UUID of the player leaving the world
+     * @param message    Server's leave message, not sent
+     * @param store      Entity store of the world being left
+     */
+    public static void onLeaveBroadcast(Object playerUuid, Object message, Object store) {
+        if (!(playerUuid instanceof UUID)) {
+            return;
+        }
+
+        long position;
+        while (true) {
+            position = TAIL.get();
+            long difference = SEQUENCES.get((int) position & MASK) - position;
+            if (difference == 0) {
+                if (TAIL.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (difference < 0) {
+                // Full: the plugin is not draining
+                DROPPED.incrementAndGet();
+                return;
+            }
+            // Otherwise another world thread claimed the slot first, retry
+        }
+
+        UUID uuid = (UUID) playerUuid;
+        int slot = (int) position & MASK;
+        MOST_SIGNIFICANT[slot] = uuid.getMostSignificantBits();
+        LEAST_SIGNIFICANT[slot] = uuid.getLeastSignificantBits();
+        RECORDED_AT[slot] = System.nanoTime();
+        STORES[slot] = store;
+        SEQUENCES.set(slot, position + 1);
+    }
+
+    /**
+     * Moves the oldest leaves into the given arrays, in order. Stops at the
+     * first leave recorded after {@code recordedBefore}, so the caller can
+     * wait for a player's disconnect to be visible before handling them.
+     *
+     * @param uuids          Receives the UUID of leave i as elements 2i (most
+     *                       significant bits) and 2i+1
+     * @param stores         Receives the entity store of leave i; its length
+     *                       is the most leaves moved per call
+     * @param recordedBefore {@link System#nanoTime()} bound
+     * @return Number of leaves moved
+     */
+    public static synchronized int drain(long[] uuids, Object[] stores, long recordedBefore) {
+        int count = 0;
+        while (count < stores.length) {
+            int slot = (int) head & MASK;
+            if (SEQUENCES.get(slot) != head + 1 || RECORDED_AT[slot] - recordedBefore > 0) {
+                break;
+            }
+
+            uuids[2 * count] = MOST_SIGNIFICANT[slot];
+            uuids[2 * count + 1] = LEAST_SIGNIFICANT[slot];
+            stores[count] = STORES[slot];
+            STORES[slot] = null;
+            SEQUENCES.set(slot, head + CAPACITY);
+            head++;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return Leaves not recorded because the buffer was full
+     */
+    public static long getDropped() {
+        return DROPPED.get();
+    }
+}
@@ -0,0 +1,463 @@
+package com.rmaafs.welcometale.transformers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Applies the patches declared in spec files to server classes as they load.
+ *
+ * <p>Patches come from the {@code patches.spec} bundled next to this class
+ * and, if present, from {@code earlyplugins/welcometale-patches.spec} in the
+ * server folder, whose entries replace bundled ones with the same id. New
+ * targets can so be added without shipping a new transformer jar. See
+ * {@link PatchSpec} for the format.</p>
+ *
+ * <p>Patches are indexed by class name, so for the tens of thousands of
+ * classes that are not patched {@link #transform} is a single map lookup.</p>
+ *
+ * <p>The server's class loader cannot be relied on to see the transformer
+ * jar, so a rerouted call does not link to its hook. The engine resolves the
+ * hook from its own class loader, publishes it as a method handle in the
+ * system property named by {@link PatchSpec#hookProperty}, and adds a small
+ * bridge method to the patched class that invokes that handle. The bridge
+ * only refers to JDK classes.</p>
+ *
+ * @author rmaafs
+ */
+public final class PatchEngine {
+
+    static final String BUNDLED_SPEC = "patches.spec";
+    static final Path EXTERNAL_SPEC = Paths.get("earlyplugins", "welcometale-patches.spec");
+
+    private static volatile PatchEngine instance;
+
+    private final List<PatchSpec> patches;
+    private final Map<String, List<PatchSpec>> patchesByClass = new HashMap<>();
+
+    PatchEngine(List<PatchSpec> patches) {
+        this.patches = Collections.unmodifiableList(patches);
+        for (PatchSpec patch : patches) {
+            patchesByClass.computeIfAbsent(patch.getClassName(), name -> new ArrayList<>(1)).add(patch);
+        }
+    }
+
+    /**
+     * @return Engine with the bundled and external patches, loaded on first use
+     */
+    public static PatchEngine get() {
+        PatchEngine engine = instance;
+        if (engine == null) {
+            synchronized (PatchEngine.class) {
+                engine = instance;
+                if (engine == null) {
+                    engine = instance = load();
+                }
+            }
+        }
+        return engine;
+    }
+
+    private static PatchEngine load() {
+        Map<String, PatchSpec> patches = new LinkedHashMap<>();
+
+        try (InputStream bundled = PatchEngine.class.getResourceAsStream(BUNDLED_SPEC)) {
+            if (bundled == null) {
+                System.err.println("[WelcomeTale] Bundled " + BUNDLED_SPEC + " is missing");
+            } else {
+                read(new InputStreamReader(bundled, StandardCharsets.UTF_8), BUNDLED_SPEC, patches);
+            }
+        } catch (IOException e) {
+            System.err.println("[WelcomeTale] Could not read bundled " + BUNDLED_SPEC + ": " + e.getMessage());
+        }
+
+        if (Files.isRegularFile(EXTERNAL_SPEC)) {
+            try (Reader external = Files.newBufferedReader(EXTERNAL_SPEC, StandardCharsets.UTF_8)) {
+                read(external, EXTERNAL_SPEC.toString(), patches);
+            } catch (IOException e) {
+                System.err.println("[WelcomeTale] Could not read " + EXTERNAL_SPEC + ": " + e.getMessage());
+            }
+        }
+
+        System.out.println("[WelcomeTale] Loaded " + patches.size() + " bytecode patch(es)");
+        return new PatchEngine(new ArrayList<>(patches.values()));
+    }
+
+    /**
+     * Reads a spec into the map by id. Invalid lines are reported and skipped.
+     */
+    private static void read(Reader source, String name, Map<String, PatchSpec> patches) throws IOException {
+        PatchSpec.read(source, name, patches,
+                invalid -> System.err.println("[WelcomeTale] Ignoring patch at " + invalid));
+    }
+
+    /**
+     * @return All loaded patches, each recording whether it was applied
+     */
+    public List<PatchSpec> getPatches() {
+        return patches;
+    }
+
+    /**
+     * Applies the patches declared for the class.
+     *
+     * @param className  Internal name of the loading class
+     * @param classBytes Original class file
+     * @return Patched class file, or null if the class has no patches or none
+     *         of them found its call site
+     */
+    @Nullable
+    public byte[] transform(@Nonnull String className, @Nonnull byte[] classBytes) {
+        List<PatchSpec> classPatches = patchesByClass.get(className);
+        if (classPatches == null) {
+            return null;
+        }
+
+        ClassTransformEvent event = new ClassTransformEvent();
+        event.begin();
+        try {
+            System.out.println("[WelcomeTale] Transforming " + className);
+
+            // Sharing the reader's constant pool lets the writer copy unpatched
+            // methods byte for byte. No frames or maxs are recomputed: a dropped
+            // call only pops its operands and pushes a value of its own return
+            // type, and a rerouted call has the same stack effect, so the
+            // original stack map frames and max stack stay valid. Bridges
+            // have no branches and declare their own maxs. This also avoids
+            // getCommonSuperClass loading classes this early. Debug info is
+            // kept so stack traces through patched methods keep their line
+            // numbers.
+            ClassReader reader = new ClassReader(classBytes);
+            ClassWriter writer = new ClassWriter(reader, 0);
+            PatchingClassVisitor visitor = new PatchingClassVisitor(writer, className, classPatches);
+
+            reader.accept(visitor, 0);
+
+            for (PatchSpec patch : classPatches) {
+                if (!visitor.applied.contains(patch)) {
+                    System.err.println("[WelcomeTale] Patch " + patch + " found no call site");
+                }
+            }
+            if (visitor.applied.isEmpty()) {
+                commit(event, className, classBytes.length, 0, false);
+                return null;
+            }
+
+            byte[] transformed = writer.toByteArray();
+            // Published before the class is defined, so its bridges never
+            // run without a hook
+            for (Bridge bridge : visitor.bridges.values()) {
+                System.getProperties().put(bridge.property, bridge.hook);
+            }
+            System.out.println("[WelcomeTale] Applied " + visitor.applied.size() + " patch(es) to " + className);
+            commit(event, className, classBytes.length, transformed.length, true);
+            return transformed;
+
+        } catch (Exception e) {
+            System.err.println("[WelcomeTale] Failed to transform: " + e.getMessage());
+            e.printStackTrace();
+            commit(event, className, classBytes.length, 0, false);
+            return null;
+        }
+    }
+
+    private static void commit(ClassTransformEvent event, String className, int inputSize, int outputSize,
+            boolean success) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.className = className;
+            event.inputSize = inputSize;
+            event.outputSize = outputSize;
+            event.success = success;
+            event.commit();
+        }
+    }
+
+    /**
+     * Resolves the hook of a reroute patch from the transformer's class loader.
+     *
+     * @param descriptor Erased descriptor of the rerouted call
+     * @return Hook, or null if its class or method does not exist
+     */
+    @Nullable
+    private static MethodHandle resolveHook(PatchSpec patch, String descriptor) {
+        ClassLoader loader = PatchEngine.class.getClassLoader();
+        try {
+            Class<?> owner = Class.forName(patch.getRerouteOwner().replace('/', '.'), false, loader);
+            return MethodHandles.publicLookup().findStatic(owner, patch.getRerouteName(),
+                    MethodType.fromMethodDescriptorString(descriptor, loader));
+        } catch (ReflectiveOperationException | LinkageError e) {
+            System.err.println("[WelcomeTale] Patch " + patch + " cannot resolve its hook: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Static method added to a patched class in place of a direct call to a
+     * reroute patch's hook.
+     */
+    private static final class Bridge {
+
+        private final String name;
+        private final String descriptor;
+        private final String property;
+        private final MethodHandle hook;
+
+        Bridge(PatchSpec patch, String descriptor, MethodHandle hook) {
+            StringBuilder name = new StringBuilder("welcometale$");
+            for (char c : patch.getId().toCharArray()) {
+                name.append(Character.isJavaIdentifierPart(c) ? c : '_');
+            }
+            this.name = name.toString();
+            this.descriptor = descriptor;
+            this.property = PatchSpec.hookProperty(patch.getId());
+            this.hook = hook;
+        }
+
+        /**
+         * Writes {@code ((MethodHandle) System.getProperties().get(property)).invokeExact(arguments)}.
+         */
+        void write(ClassVisitor cv) {
+            MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC,
+                    name, descriptor, null, null);
+            mv.visitCode();
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/System", "getProperties",
+                    "()Ljava/util/Properties;", false);
+            mv.visitLdcInsn(property);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/util/Properties", "get",
+                    "(Ljava/lang/Object;)Ljava/lang/Object;", false);
+            mv.visitTypeInsn(Opcodes.CHECKCAST, "java/lang/invoke/MethodHandle");
+
+            int slots = 0;
+            for (Type argument : Type.getArgumentTypes(descriptor)) {
+                mv.visitVarInsn(argument.getOpcode(Opcodes.ILOAD), slots);
+                slots += argument.getSize();
+            }
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/invoke/MethodHandle", "invokeExact",
+                    descriptor, false);
+            mv.visitInsn(Type.getReturnType(descriptor).getOpcode(Opcodes.IRETURN));
+
+            // The handle and the arguments, at least the two operands of get;
+            // a return value takes at most two slots
+            mv.visitMaxs(Math.max(2, 1 + slots), slots);
+            mv.visitEnd();
+        }
+    }
+
+    /**
+     * Hands each method targeted by a patch to a {@link PatchingMethodVisitor}
+     * and adds the bridges of the reroute patches applied.
+     */
+    private static class PatchingClassVisitor extends ClassVisitor {
+
+        private final String className;
+        private final List<PatchSpec> patches;
+        private final List<PatchSpec> applied = new ArrayList<>();
+        private final Map<PatchSpec, Bridge> bridges = new LinkedHashMap<>();
+        private boolean isInterface;
+
+        PatchingClassVisitor(ClassVisitor cv, String className, List<PatchSpec> patches) {
+            super(Opcodes.ASM9, cv);
+            this.className = className;
+            this.patches = patches;
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName,
+                String[] interfaces) {
+            isInterface = (access & Opcodes.ACC_INTERFACE) != 0;
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor,
+                String signature, String[] exceptions) {
+            MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+
+            List<PatchSpec> methodPatches = null;
+            for (PatchSpec patch : patches) {
+                if (patch.matchesMethod(name, descriptor)) {
+                    if (methodPatches == null) {
+                        methodPatches = new ArrayList<>(1);
+                    }
+                    methodPatches.add(patch);
+                }
+            }
+
+            return methodPatches == null ? mv : new PatchingMethodVisitor(mv, methodPatches, this);
+        }
+
+        /**
+         * @param descriptor Erased descriptor of the rerouted call
+         * @return Bridge for the patch, or null if its hook cannot be resolved
+         *         or it already bridges calls of another descriptor
+         */
+        @Nullable
+        Bridge bridge(PatchSpec patch, String descriptor) {
+            Bridge bridge = bridges.get(patch);
+            if (bridge == null) {
+                MethodHandle hook = resolveHook(patch, descriptor);
+                if (hook == null) {
+                    return null;
+                }
+                bridge = new Bridge(patch, descriptor, hook);
+                bridges.put(patch, bridge);
+            } else if (!bridge.descriptor.equals(descriptor)) {
+                System.err.println("[WelcomeTale] Patch " + patch + " only reroutes calls of " + bridge.descriptor
+                        + ", not " + descriptor);
+                return null;
+            }
+            return bridge;
+        }
+
+        @Override
+        public void visitEnd() {
+            for (Bridge bridge : bridges.values()) {
+                bridge.write(cv);
+            }
+            super.visitEnd();
+        }
+    }
+
+    /**
+     * Replaces the patched calls of one method. Dropped calls pop their
+     * arguments (and receiver) and push a default return value, rerouted ones
+     * call the static replacement with the same stack, reference types passed
+     * as Object. A rerouted call whose hook cannot be resolved is left as is.
+     */
+    private static class PatchingMethodVisitor extends MethodVisitor {
+
+        private static final Type OBJECT = Type.getType(Object.class);
+
+        private final List<PatchSpec> patches;
+        private final PatchingClassVisitor classVisitor;
+
+        PatchingMethodVisitor(MethodVisitor mv, List<PatchSpec> patches, PatchingClassVisitor classVisitor) {
+            super(Opcodes.ASM9, mv);
+            this.patches = patches;
+            this.classVisitor = classVisitor;
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String methodName,
+                String descriptor, boolean isInterface) {
+            if (opcode != Opcodes.INVOKESPECIAL) {
+                for (PatchSpec patch : patches) {
+                    if (patch.matchesCall(owner, methodName, descriptor)) {
+                        if (patch.getAction() == PatchSpec.Action.DROP) {
+                            drop(opcode, descriptor);
+                        } else if (!reroute(patch, opcode, descriptor)) {
+                            break;
+                        }
+
+                        patch.markApplied();
+                        if (!classVisitor.applied.contains(patch)) {
+                            classVisitor.applied.add(patch);
+                        }
+                        return;
+                    }
+                }
+            }
+
+            super.visitMethodInsn(opcode, owner, methodName, descriptor, isInterface);
+        }
+
+        private void drop(int opcode, String descriptor) {
+            // Remove the arguments from the stack (LIFO order), then the receiver
+            Type[] arguments = Type.getArgumentTypes(descriptor);
+            for (int i = arguments.length - 1; i >= 0; i--) {
+                super.visitInsn(arguments[i].getSize() == 2 ? Opcodes.POP2 : Opcodes.POP);
+            }
+            if (opcode != Opcodes.INVOKESTATIC) {
+                super.visitInsn(Opcodes.POP);
+            }
+
+            switch (Type.getReturnType(descriptor).getSort()) {
+                case Type.VOID:
+                    break;
+                case Type.BOOLEAN:
+                case Type.CHAR:
+                case Type.BYTE:
+                case Type.SHORT:
+                case Type.INT:
+                    super.visitInsn(Opcodes.ICONST_0);
+                    break;
+                case Type.FLOAT:
+                    super.visitInsn(Opcodes.FCONST_0);
+                    break;
+                case Type.LONG:
+                    super.visitInsn(Opcodes.LCONST_0);
+                    break;
+                case Type.DOUBLE:
+                    super.visitInsn(Opcodes.DCONST_0);
+                    break;
+                default:
+                    super.visitInsn(Opcodes.ACONST_NULL);
+                    break;
+            }
+        }
+
+        /**
+         * @return false if nothing was written, the call has to stay
+         */
+        private boolean reroute(PatchSpec patch, int opcode, String descriptor) {
+            Type[] arguments = Type.getArgumentTypes(descriptor);
+            List<Type> hookArguments = new ArrayList<>(arguments.length + 1);
+            if (opcode != Opcodes.INVOKESTATIC) {
+                hookArguments.add(OBJECT);
+            }
+            for (Type argument : arguments) {
+                hookArguments.add(erase(argument));
+            }
+            Type returnType = Type.getReturnType(descriptor);
+            Type hookReturnType = erase(returnType);
+            String hookDescriptor = Type.getMethodDescriptor(hookReturnType, hookArguments.toArray(new Type[0]));
+
+            Bridge bridge = classVisitor.bridge(patch, hookDescriptor);
+            if (bridge == null) {
+                return false;
+            }
+
+            super.visitMethodInsn(Opcodes.INVOKESTATIC, classVisitor.className, bridge.name, hookDescriptor,
+                    classVisitor.isInterface);
+            if (hookReturnType != returnType) {
+                // Same type as the original call left, so the frames still hold
+                super.visitTypeInsn(Opcodes.CHECKCAST, returnType.getInternalName());
+            }
+            return true;
+        }
+
+        /**
+         * Hooks take and return reference types as Object, so they need no
+         * server classes and keep linking when a server type is renamed.
+         */
+        private static Type erase(Type type) {
+            int sort = type.getSort();
+            return sort == Type.OBJECT || sort == Type.ARRAY ? OBJECT : type;
+        }
+    }
+}
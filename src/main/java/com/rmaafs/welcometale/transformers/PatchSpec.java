@@ -0,0 +1,234 @@
+package com.rmaafs.welcometale.transformers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * One declared bytecode patch: a call made by a server method and what to do
+ * with it.
+ *
+ * <p>Patches are declared one per line in a spec file, as whitespace
+ * separated columns:</p>
+ * <pre>
+ * id  action  class  method  methodDescriptor  callOwner  callName  callDescriptor  [rerouteOwner  rerouteName]
+ * </pre>
+ * <ul>
+ *   <li>{@code action} is {@code drop} to remove the call, or {@code reroute}
+ *       to call the static method {@code rerouteOwner.rerouteName} with the
+ *       same arguments instead (receiver first for instance calls). The
+ *       replacement declares every reference parameter and return type as
+ *       {@code Object}. The patched class reaches it through the system
+ *       property named by {@link #hookProperty}, so the server's class loader
+ *       does not need to see the replacement's class</li>
+ *   <li>Class names are internal names, e.g. {@code java/lang/String}</li>
+ *   <li>A descriptor of {@code *} matches any descriptor</li>
+ * </ul>
+ *
+ * <p>The plugin reads the same spec files with this class to check them
+ * against the server jar, so it is also packaged in the plugin jar.</p>
+ *
+ * @author rmaafs
+ */
+public final class PatchSpec {
+
+    public enum Action {
+        DROP,
+        REROUTE
+    }
+
+    private static final String ANY = "*";
+
+    private final String id;
+    private final Action action;
+    private final String className;
+    private final String methodName;
+    private final String methodDescriptor;
+    private final String callOwner;
+    private final String callName;
+    private final String callDescriptor;
+    private final String rerouteOwner;
+    private final String rerouteName;
+    private final AtomicInteger appliedCount = new AtomicInteger();
+
+    private PatchSpec(String[] columns) {
+        this.id = columns[0];
+        this.action = Action.valueOf(columns[1].toUpperCase());
+        this.className = columns[2];
+        this.methodName = columns[3];
+        this.methodDescriptor = ANY.equals(columns[4]) ? null : columns[4];
+        this.callOwner = columns[5];
+        this.callName = columns[6];
+        this.callDescriptor = ANY.equals(columns[7]) ? null : columns[7];
+        this.rerouteOwner = columns.length > 8 ? columns[8] : null;
+        this.rerouteName = columns.length > 9 ? columns[9] : null;
+    }
+
+    /**
+     * Reads a spec into the map by id, so a later line replaces an earlier one
+     * with the same id. Text after {@code #} is a comment.
+     *
+     * @param source  Spec to read
+     * @param name    Name of the spec in messages, e.g. its file name
+     * @param patches Patches read so far, by id
+     * @param invalid Receives {@code name:line: reason} for every line that
+     *                is not a valid patch, which is then skipped
+     */
+    public static void read(Reader source, String name, Map<String, PatchSpec> patches, Consumer<String> invalid)
+            throws IOException {
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+
+            try {
+                PatchSpec patch = parse(line);
+                patches.put(patch.getId(), patch);
+            } catch (IllegalArgumentException e) {
+                invalid.accept(name + ":" + lineNumber + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Parses one spec line.
+     *
+     * @param line Line without comment
+     * @return Parsed patch
+     * @throws IllegalArgumentException if the line is not a valid patch
+     */
+    static PatchSpec parse(String line) {
+        String[] columns = line.trim().split("\\s+");
+        if (columns.length < 8) {
+            throw new IllegalArgumentException("expected at least 8 columns, found " + columns.length);
+        }
+
+        PatchSpec spec;
+        try {
+            spec = new PatchSpec(columns);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown action " + columns[1]);
+        }
+
+        int expected = spec.action == Action.REROUTE ? 10 : 8;
+        if (columns.length != expected) {
+            throw new IllegalArgumentException(spec.action.name().toLowerCase() + " expects " + expected
+                    + " columns, found " + columns.length);
+        }
+        return spec;
+    }
+
+    /**
+     * Names the system property an applied reroute patch publishes its hook
+     * under, as a {@link java.lang.invoke.MethodHandle}. The property is only
+     * set once the patch was applied to a loading class.
+     *
+     * @param id Patch id
+     * @return Property name
+     */
+    public static String hookProperty(String id) {
+        return "com.rmaafs.welcometale.hook." + id;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    /**
+     * @return Internal name of the patched class
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * @return Descriptor of the patched method, or null for any
+     */
+    public String getMethodDescriptor() {
+        return methodDescriptor;
+    }
+
+    public String getCallOwner() {
+        return callOwner;
+    }
+
+    public String getCallName() {
+        return callName;
+    }
+
+    /**
+     * @return Descriptor of the patched call, or null for any
+     */
+    public String getCallDescriptor() {
+        return callDescriptor;
+    }
+
+    /**
+     * @return Internal name of the class receiving rerouted calls, null for drop
+     */
+    public String getRerouteOwner() {
+        return rerouteOwner;
+    }
+
+    public String getRerouteName() {
+        return rerouteName;
+    }
+
+    /**
+     * @return true if the patch was applied to at least one call site
+     */
+    public boolean isApplied() {
+        return appliedCount.get() > 0;
+    }
+
+    /**
+     * @return Number of call sites the patch was applied to
+     */
+    public int getAppliedCount() {
+        return appliedCount.get();
+    }
+
+    /**
+     * @return true if the method is the one the patch applies to
+     */
+    public boolean matchesMethod(String name, String descriptor) {
+        return methodName.equals(name) && (methodDescriptor == null || methodDescriptor.equals(descriptor));
+    }
+
+    /**
+     * @return true if the call is the one the patch replaces
+     */
+    public boolean matchesCall(String owner, String name, String descriptor) {
+        return callOwner.equals(owner) && callName.equals(name)
+                && (callDescriptor == null || callDescriptor.equals(descriptor));
+    }
+
+    void markApplied() {
+        appliedCount.incrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return id + " (" + action.name().toLowerCase() + " " + callOwner + "." + callName + " in " + className
+                + "." + methodName + ")";
+    }
+}
@@ -0,0 +1,241 @@
+/**
+ * Spreads large broadcasts over several ticks.
+ * Each tick delivers to at most BroadcastRecipientsPerTick players, so a join
+ * storm on a full server sends a steady trickle of messages instead of
+ * thousands in one tick. HIGH priority messages, such as admin notices, are
+ * delivered before any queued NORMAL broadcast. When the queue would take
+ * longer than BroadcastMaxDelayTicks to drain, the per-tick budget grows so
+ * no message waits longer than that.
+ * The pacer only decides who is served in which tick; each tick's players
+ * are grouped by world and written to on that world's own thread.
+ *
+ * @author github.com/rmaafs
+ * @website https://rmaafs.com
+ */
+package com.rmaafs.welcometale.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import javax.annotation.Nullable;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.World;
+
+public class BroadcastPacer {
+
+    public enum Priority {
+        HIGH,
+        NORMAL
+    }
+
+    private static final long TICK_MILLIS = 50;
+
+    private final ArrayDeque<Delivery> high = new ArrayDeque<>();
+    private final ArrayDeque<Delivery> normal = new ArrayDeque<>();
+    private int queuedRecipients;
+    private ScheduledFuture<?> tickTask;
+
+    /**
+     * Queues a message. Delivery starts on the next tick.
+     *
+     * @param message     Message to send, shared by all recipients
+     * @param encoded     Chat packet of the message, written instead of it
+     *                    when not null
+     * @param recipients  Players to send it to
+     * @param priority    Lane to queue it in
+     * @param onDelivered Called with the number of players the message
+     *                    reached once every recipient was served, or null
+     */
+    public synchronized void submit(Message message, @Nullable EncodedMessage encoded, List<PlayerRef> recipients,
+            Priority priority, @Nullable IntConsumer onDelivered) {
+        if (recipients.isEmpty()) {
+            if (onDelivered != null) {
+                onDelivered.accept(0);
+            }
+            return;
+        }
+
+        (priority == Priority.HIGH ? high : normal).add(new Delivery(message, encoded, recipients, onDelivered));
+        queuedRecipients += recipients.size();
+        if (tickTask == null) {
+            tickTask = Scheduler.get().scheduleAtFixedRate(this::tick, 0, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return true if nothing is queued, so a new message can be sent right
+     *         away without overtaking queued ones
+     */
+    public synchronized boolean isIdle() {
+        return queuedRecipients == 0;
+    }
+
+    /**
+     * @return Number of recipients still waiting for a queued message
+     */
+    public synchronized int getQueuedRecipients() {
+        return queuedRecipients;
+    }
+
+    /**
+     * Delivers this tick's share of the queue. The shards are taken under the
+     * lock and handed to the world threads outside of it, so submitting never
+     * waits for delivery.
+     */
+    private void tick() {
+        ConfigSnapshot config = FileConfiguration.getSnapshot();
+        List<Shard> shards = new ArrayList<>();
+        synchronized (this) {
+            Metrics.QUEUE_DEPTH.record(queuedRecipients);
+
+            int budget = config.getBroadcastRecipientsPerTick();
+            if (budget == 0) {
+                // Pacing was disabled by a reload, drain everything
+                budget = queuedRecipients;
+            }
+            int maxDelayTicks = config.getBroadcastMaxDelayTicks();
+            budget = Math.max(budget, (queuedRecipients + maxDelayTicks - 1) / maxDelayTicks);
+
+            budget = take(high, budget, shards);
+            take(normal, budget, shards);
+
+            if (queuedRecipients == 0 && tickTask != null) {
+                tickTask.cancel(false);
+                tickTask = null;
+            }
+        }
+
+        for (Shard shard : shards) {
+            shard.deliver();
+        }
+    }
+
+    /**
+     * Moves up to budget recipients from the head of the lane into shards.
+     *
+     * @return Budget left for the next lane
+     */
+    private int take(ArrayDeque<Delivery> lane, int budget, List<Shard> shards) {
+        while (budget > 0 && !lane.isEmpty()) {
+            Delivery delivery = lane.peek();
+            int count = Math.min(budget, delivery.recipients.size() - delivery.next);
+            shards.add(new Shard(delivery, delivery.next, delivery.next + count));
+
+            delivery.next += count;
+            budget -= count;
+            queuedRecipients -= count;
+            if (delivery.next == delivery.recipients.size()) {
+                lane.poll();
+            }
+        }
+        return budget;
+    }
+
+    /**
+     * A queued message and how far its delivery got.
+     */
+    private static final class Delivery {
+        private final Message message;
+        private final EncodedMessage encoded;
+        private final List<PlayerRef> recipients;
+        private final IntConsumer onDelivered;
+        private final long submittedAt = System.nanoTime();
+        private final AtomicInteger pending;
+        private final AtomicInteger delivered = new AtomicInteger();
+        private int next;
+
+        Delivery(Message message, EncodedMessage encoded, List<PlayerRef> recipients, IntConsumer onDelivered) {
+            this.message = message;
+            this.encoded = encoded;
+            this.recipients = recipients;
+            this.onDelivered = onDelivered;
+            this.pending = new AtomicInteger(recipients.size());
+        }
+
+        /**
+         * Counts served recipients, and reports the total once all are served.
+         *
+         * @param served  Recipients taken care of, reached or not
+         * @param reached Recipients the message was written to
+         */
+        void served(int served, int reached) {
+            delivered.addAndGet(reached);
+            if (pending.addAndGet(-served) == 0 && onDelivered != null) {
+                onDelivered.accept(delivered.get());
+            }
+        }
+    }
+
+    /**
+     * The recipients of one message delivered within a single tick.
+     */
+    private static final class Shard {
+        private final Delivery delivery;
+        private final int from;
+        private final int to;
+
+        Shard(Delivery delivery, int from, int to) {
+            this.delivery = delivery;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Groups the recipients by world and hands each group to its world's
+         * thread. Players no longer in a world are counted as not reached.
+         */
+        void deliver() {
+            Map<World, List<PlayerRef>> byWorld = new LinkedHashMap<>();
+            int offline = 0;
+            for (int i = from; i < to; i++) {
+                PlayerRef player = delivery.recipients.get(i);
+                World world = player.getWorld();
+                if (world == null) {
+                    offline++;
+                } else {
+                    byWorld.computeIfAbsent(world, w -> new ArrayList<>()).add(player);
+                }
+            }
+
+            if (offline > 0) {
+                delivery.served(offline, 0);
+            }
+            byWorld.forEach(this::deliver);
+        }
+
+        private void deliver(World world, List<PlayerRef> players) {
+            try {
+                world.execute(() -> {
+                    int reached = 0;
+                    for (PlayerRef player : players) {
+                        try {
+                            if (delivery.encoded != null) {
+                                delivery.encoded.sendTo(player);
+                            } else {
+                                player.sendMessage(delivery.message);
+                            }
+                            reached++;
+                        } catch (RuntimeException ignored) {
+                            // Player disconnected while the message was queued
+                        }
+                    }
+                    Metrics.DELIVERY.recordSince(delivery.submittedAt);
+                    delivery.served(players.size(), reached);
+                });
+            } catch (RejectedExecutionException ignored) {
+                // World is shutting down, its players are being moved or disconnected
+                delivery.served(players.size(), 0);
+            }
+        }
+    }
+}
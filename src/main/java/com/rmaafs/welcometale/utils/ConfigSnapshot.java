@@ -0,0 +1,309 @@
+/**
+ * Immutable, fully compiled view of one loaded configuration.
+ * A new snapshot is built on every reload and published atomically, so an
+ * event handler that reads it once sees either the old or the new
+ * configuration, never a mix of both.
+ * 
+ * @author github.com/rmaafs
+ * @website https://rmaafs.com
+ */
+package com.rmaafs.welcometale.utils;
+
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+import com.rmaafs.welcometale.Main;
+import com.rmaafs.welcometale.WelcomeTaleConfig;
+
+public final class ConfigSnapshot {
+
+    private static final int MIN_COALESCE_WINDOW_MILLIS = 50;
+    private static final String DEFAULT_DATE_FORMAT = "yyyy-MM-dd";
+
+    private final long version;
+    private final MessageTemplate joinMessage;
+    private final MessageTemplate welcomePlayerMessage;
+    private final MessageTemplate leaveMessage;
+    private final boolean disableDefaultJoinMessage;
+    private final String messageReloaded;
+    private final String messageReloadFailed;
+    private final String noPermission;
+    private final boolean checkForUpdates;
+    private final boolean watchConfig;
+    private final boolean broadcastOnWorldThreads;
+    private final boolean encodeBroadcastsOnce;
+    private final boolean coalesceJoinLeave;
+    private final int coalesceWindowMillis;
+    private final int coalesceThreshold;
+    private final MessageTemplate joinSummaryMessage;
+    private final MessageTemplate leaveSummaryMessage;
+    private final int renderCacheSize;
+    private final int statsDumpIntervalSeconds;
+    private final int announceRateLimit;
+    private final int announceRateWindowSeconds;
+    private final MessageTemplate firstJoinMessage;
+    private final DateTimeFormatter dateFormat;
+    private final int broadcastRecipientsPerTick;
+    private final int broadcastMaxDelayTicks;
+    private final MessageTemplate leaveWorldMessage;
+
+    private ConfigSnapshot(long version, WelcomeTaleConfig config) {
+        this.version = version;
+        this.joinMessage = MessageTemplate.compile("JoinMessage", orEmpty(config.getJoinMessage()));
+        this.welcomePlayerMessage = MessageTemplate.compile("WelcomePlayerMessage",
+                orEmpty(config.getWelcomePlayerMessage()));
+        this.leaveMessage = MessageTemplate.compile("LeaveMessage", orEmpty(config.getLeaveMessage()));
+        this.disableDefaultJoinMessage = config.isDisableDefaultJoinMessage();
+        this.messageReloaded = orEmpty(config.getMessageReloaded());
+        this.messageReloadFailed = orEmpty(config.getMessageReloadFailed());
+        this.noPermission = orEmpty(config.getNoPermission());
+        this.checkForUpdates = config.isCheckForUpdates();
+        this.watchConfig = config.isWatchConfig();
+        this.broadcastOnWorldThreads = config.isBroadcastOnWorldThreads();
+        this.encodeBroadcastsOnce = config.isEncodeBroadcastsOnce();
+        this.coalesceJoinLeave = config.isCoalesceJoinLeave();
+        this.coalesceWindowMillis = Math.max(MIN_COALESCE_WINDOW_MILLIS, config.getCoalesceWindowMillis());
+        this.coalesceThreshold = Math.max(0, config.getCoalesceThreshold());
+        this.joinSummaryMessage = MessageTemplate.compile("JoinSummaryMessage",
+                orEmpty(config.getJoinSummaryMessage()));
+        this.leaveSummaryMessage = MessageTemplate.compile("LeaveSummaryMessage",
+                orEmpty(config.getLeaveSummaryMessage()));
+        this.renderCacheSize = Math.max(0, config.getRenderCacheSize());
+        this.statsDumpIntervalSeconds = Math.max(0, config.getStatsDumpIntervalSeconds());
+        this.announceRateLimit = Math.max(0, config.getAnnounceRateLimit());
+        this.announceRateWindowSeconds = Math.max(1, config.getAnnounceRateWindowSeconds());
+        this.firstJoinMessage = MessageTemplate.compile("FirstJoinMessage",
+                orEmpty(config.getFirstJoinMessage()));
+        this.dateFormat = dateFormat(orEmpty(config.getDateFormat()));
+        this.broadcastRecipientsPerTick = Math.max(0, config.getBroadcastRecipientsPerTick());
+        this.broadcastMaxDelayTicks = Math.max(1, config.getBroadcastMaxDelayTicks());
+        this.leaveWorldMessage = MessageTemplate.compile("LeaveWorldMessage",
+                orEmpty(config.getLeaveWorldMessage()));
+    }
+
+    /**
+     * Copies and compiles every value of the given configuration.
+     * 
+     * @param version Sequence number of this snapshot, increasing on reload
+     * @param config  Loaded configuration, not retained by the snapshot
+     * @return Snapshot ready to be published
+     */
+    static ConfigSnapshot of(long version, WelcomeTaleConfig config) {
+        if (config == null) {
+            throw new IllegalStateException("Configuration is not loaded");
+        }
+        return new ConfigSnapshot(version, config);
+    }
+
+    /**
+     * Compiles the DateFormat pattern, falling back to yyyy-MM-dd when it is
+     * empty or invalid, so a typo does not reject the whole configuration.
+     */
+    private static DateTimeFormatter dateFormat(String pattern) {
+        if (!pattern.isEmpty()) {
+            try {
+                return DateTimeFormatter.ofPattern(pattern).withZone(ZoneId.systemDefault());
+            } catch (IllegalArgumentException e) {
+                if (Main.MAIN_INSTANCE != null) {
+                    Main.MAIN_INSTANCE.getLogger().atWarning().log("Invalid DateFormat \"" + pattern + "\", using "
+                            + DEFAULT_DATE_FORMAT + ": " + e.getMessage());
+                }
+            }
+        }
+        return DateTimeFormatter.ofPattern(DEFAULT_DATE_FORMAT).withZone(ZoneId.systemDefault());
+    }
+
+    private static String orEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    /**
+     * @return Sequence number of this snapshot, increasing on every reload
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Join broadcast template, usually with {player}
+     */
+    public MessageTemplate getJoinMessage() {
+        return joinMessage;
+    }
+
+    /**
+     * @return Private welcome template, usually with {player}
+     */
+    public MessageTemplate getWelcomePlayerMessage() {
+        return welcomePlayerMessage;
+    }
+
+    /**
+     * @return Leave broadcast template, usually with {player}
+     */
+    public MessageTemplate getLeaveMessage() {
+        return leaveMessage;
+    }
+
+    /**
+     * @return true if default join messages should be disabled
+     */
+    public boolean isDisableDefaultJoinMessage() {
+        return disableDefaultJoinMessage;
+    }
+
+    /**
+     * @return Message displayed when configuration is reloaded
+     */
+    public String getMessageReloaded() {
+        return messageReloaded;
+    }
+
+    /**
+     * @return Message displayed when the configuration could not be reloaded
+     */
+    public String getMessageReloadFailed() {
+        return messageReloadFailed;
+    }
+
+    /**
+     * @return Message displayed when player lacks permission
+     */
+    public String getNoPermission() {
+        return noPermission;
+    }
+
+    /**
+     * @return true if update checking is enabled
+     */
+    public boolean isCheckForUpdates() {
+        return checkForUpdates;
+    }
+
+    /**
+     * @return true if config.json should be reloaded automatically on change
+     */
+    public boolean isWatchConfig() {
+        return watchConfig;
+    }
+
+    /**
+     * @return true if broadcasts are handed to each world's own thread
+     */
+    public boolean isBroadcastOnWorldThreads() {
+        return broadcastOnWorldThreads;
+    }
+
+    /**
+     * @return true if broadcasts are converted to a chat packet once
+     */
+    public boolean isEncodeBroadcastsOnce() {
+        return encodeBroadcastsOnce;
+    }
+
+    /**
+     * @return true if join/leave storms should be batched into summary broadcasts
+     */
+    public boolean isCoalesceJoinLeave() {
+        return coalesceJoinLeave;
+    }
+
+    /**
+     * @return Length of the join/leave batching window in milliseconds
+     */
+    public int getCoalesceWindowMillis() {
+        return coalesceWindowMillis;
+    }
+
+    /**
+     * @return Join or leave events per window announced individually before
+     *         batching starts
+     */
+    public int getCoalesceThreshold() {
+        return coalesceThreshold;
+    }
+
+    /**
+     * @return Batched join broadcast, with {players} and {count}
+     */
+    public MessageTemplate getJoinSummaryMessage() {
+        return joinSummaryMessage;
+    }
+
+    /**
+     * @return Batched leave broadcast, with {players} and {count}
+     */
+    public MessageTemplate getLeaveSummaryMessage() {
+        return leaveSummaryMessage;
+    }
+
+    /**
+     * @return Maximum number of rendered per-player messages kept in memory, 0
+     *         to disable the cache
+     */
+    public int getRenderCacheSize() {
+        return renderCacheSize;
+    }
+
+    /**
+     * @return Seconds between writes of stats.json, 0 to disable the dump
+     */
+    public int getStatsDumpIntervalSeconds() {
+        return statsDumpIntervalSeconds;
+    }
+
+    /**
+     * @return Join announcements allowed per player within the rate window, 0 to
+     *         disable rate limiting
+     */
+    public int getAnnounceRateLimit() {
+        return announceRateLimit;
+    }
+
+    /**
+     * @return Length of the announcement rate window in seconds
+     */
+    public int getAnnounceRateWindowSeconds() {
+        return announceRateWindowSeconds;
+    }
+
+    /**
+     * @return Private welcome message for players joining for the first time,
+     *         with the same placeholders as WelcomePlayerMessage. Blank to use
+     *         WelcomePlayerMessage for everyone
+     */
+    public MessageTemplate getFirstJoinMessage() {
+        return firstJoinMessage;
+    }
+
+    /**
+     * @return Formatter for the {first_seen} and {last_seen} placeholders
+     */
+    public DateTimeFormatter getDateFormat() {
+        return dateFormat;
+    }
+
+    /**
+     * @return Recipients paced broadcasts are delivered to per tick, 0 to
+     *         deliver broadcasts at once
+     */
+    public int getBroadcastRecipientsPerTick() {
+        return broadcastRecipientsPerTick;
+    }
+
+    /**
+     * @return Most ticks a paced broadcast may wait before delivery, the per-tick
+     *         budget grows when the queue would take longer
+     */
+    public int getBroadcastMaxDelayTicks() {
+        return broadcastMaxDelayTicks;
+    }
+
+    /**
+     * @return Broadcast to the players of a world when someone leaves it for
+     *         another world
+     */
+    public MessageTemplate getLeaveWorldMessage() {
+        return leaveWorldMessage;
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * Optional hot reload of config.json using a file watch.
+ * Bursts of writes are debounced, unchanged content is detected by hash, and
+ * the reload itself runs on the scheduler instead of a server thread.
+ * 
+ * @author github.com/rmaafs
+ * @website https://rmaafs.com
+ */
+package com.rmaafs.welcometale.utils;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.hypixel.hytale.server.core.plugin.JavaPlugin;
+
+public class ConfigWatcher {
+
+    private static final String CONFIG_FILE_NAME = "config.json";
+    private static final long DEBOUNCE_MILLIS = 500;
+
+    private static JavaPlugin pluginInstance;
+    private static WatchService watchService;
+    private static Thread watchThread;
+    private static ScheduledFuture<?> pendingReload;
+    private static byte[] lastHash;
+
+    /**
+     * Starts or stops watching the plugin folder so it matches the
+     * configuration. Safe to call repeatedly, e.g. after every reload.
+     */
+    public static synchronized void setEnabled(JavaPlugin plugin, boolean enabled) {
+        pluginInstance = plugin;
+        if (enabled && watchService == null) {
+            start();
+        } else if (!enabled && watchService != null) {
+            stop();
+        }
+    }
+
+    /**
+     * Stops watching. Called when the plugin shuts down.
+     */
+    public static synchronized void stop() {
+        if (pendingReload != null) {
+            pendingReload.cancel(false);
+            pendingReload = null;
+        }
+
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+            }
+            watchService = null;
+            watchThread = null;
+        }
+    }
+
+    /**
+     * Records the content of config.json about to be loaded, so a reload that
+     * did not come from the watcher, such as /welcometale, is not repeated
+     * when the next file event arrives. Hashing before the load means a write
+     * that lands during the load still triggers another reload.
+     */
+    static synchronized void rememberContent() {
+        if (watchService == null) {
+            return;
+        }
+
+        try {
+            lastHash = hash(FileConfiguration.getPluginDirectory().resolve(CONFIG_FILE_NAME));
+        } catch (IOException e) {
+            pluginInstance.getLogger().atWarning().log("Could not read config.json", e);
+        }
+    }
+
+    private static void start() {
+        Path directory = FileConfiguration.getPluginDirectory();
+        try {
+            lastHash = hash(directory.resolve(CONFIG_FILE_NAME));
+            WatchService service = FileSystems.getDefault().newWatchService();
+            directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+            watchService = service;
+            watchThread = new Thread(() -> watch(service), "WelcomeTale-ConfigWatcher");
+            watchThread.setDaemon(true);
+            watchThread.start();
+
+            pluginInstance.getLogger().atInfo().log("Watching " + directory.resolve(CONFIG_FILE_NAME)
+                    + " for changes");
+        } catch (IOException e) {
+            pluginInstance.getLogger().atWarning().log("Could not watch the configuration folder", e);
+        }
+    }
+
+    private static void watch(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean configChanged = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.context() instanceof Path path && CONFIG_FILE_NAME.equals(path.toString())) {
+                        configChanged = true;
+                    }
+                }
+
+                if (configChanged) {
+                    scheduleReload();
+                }
+
+                if (!key.reset()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Watcher stopped
+        }
+    }
+
+    /**
+     * Restarts the debounce window; the reload runs once writes settle.
+     */
+    private static synchronized void scheduleReload() {
+        if (watchService == null) {
+            return;
+        }
+
+        if (pendingReload != null) {
+            pendingReload.cancel(false);
+        }
+        pendingReload = Scheduler.get().schedule(ConfigWatcher::reloadIfChanged, DEBOUNCE_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    private static void reloadIfChanged() {
+        try {
+            byte[] currentHash = hash(FileConfiguration.getPluginDirectory().resolve(CONFIG_FILE_NAME));
+            synchronized (ConfigWatcher.class) {
+                if (currentHash == null || Arrays.equals(currentHash, lastHash)) {
+                    return;
+                }
+                lastHash = currentHash;
+            }
+
+            pluginInstance.getLogger().atInfo().log("config.json changed, reloading");
+            FileConfiguration.reloadConfig();
+        } catch (IOException e) {
+            pluginInstance.getLogger().atWarning().log("Could not read config.json", e);
+        } catch (RuntimeException e) {
+            pluginInstance.getLogger().atSevere().log("Failed to reload config.json", e);
+        }
+    }
+
+    private static byte[] hash(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+
+        return ResourceExtractor.newSha256().digest(Files.readAllBytes(file));
+    }
+}
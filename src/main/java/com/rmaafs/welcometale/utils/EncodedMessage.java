@@ -0,0 +1,144 @@
+/**
+ * A broadcast message converted to its chat packet once, so every recipient
+ * is written the same immutable packet instead of the server converting the
+ * Message again for each of them.
+ * The packet classes are not part of the plugin API, so they are looked up
+ * once when this class loads. On a server without them, {@link #encode}
+ * returns null and callers send the Message as before.
+ *
+ * @author github.com/rmaafs
+ * @website https://rmaafs.com
+ */
+package com.rmaafs.welcometale.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Collection;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.World;
+
+public final class EncodedMessage {
+
+    private static final String PROTOCOL = "com.hypixel.hytale.protocol.";
+
+    /** (Message) -> chat packet */
+    private static final MethodHandle TO_PACKET;
+    /** (PlayerRef, packet) -> void */
+    private static final MethodHandle WRITE;
+    private static final String UNSUPPORTED_REASON;
+
+    static {
+        MethodHandle toPacket = null;
+        MethodHandle write = null;
+        String reason = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            ClassLoader loader = Message.class.getClassLoader();
+
+            Class<?> formatted = Message.class.getMethod("getFormattedMessage").getReturnType();
+            Class<?> chatType = Class.forName(PROTOCOL + "packets.interface_.ChatType", false, loader);
+            Class<?> serverMessage = Class.forName(PROTOCOL + "packets.interface_.ServerMessage", false, loader);
+            Object chat = chatType.getField("Chat").get(null);
+            MethodHandle newPacket = lookup.findConstructor(serverMessage,
+                    MethodType.methodType(void.class, chatType, formatted));
+            MethodHandle format = lookup.findVirtual(Message.class, "getFormattedMessage",
+                    MethodType.methodType(formatted));
+            toPacket = MethodHandles.filterArguments(MethodHandles.insertArguments(newPacket, 0, chat), 0, format)
+                    .asType(MethodType.methodType(Object.class, Message.class));
+
+            Class<?> packet = Class.forName(PROTOCOL + "Packet", false, loader);
+            Class<?> handler = PlayerRef.class.getMethod("getPacketHandler").getReturnType();
+            MethodHandle getHandler = lookup.findVirtual(PlayerRef.class, "getPacketHandler",
+                    MethodType.methodType(handler));
+            write = MethodHandles.filterArguments(
+                    lookup.findVirtual(handler, "write", MethodType.methodType(void.class, packet)), 0, getHandler)
+                    .asType(MethodType.methodType(void.class, PlayerRef.class, Object.class));
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            toPacket = null;
+            write = null;
+            reason = e.toString();
+        }
+        TO_PACKET = toPacket;
+        WRITE = write;
+        UNSUPPORTED_REASON = reason;
+    }
+
+    private final Object packet;
+
+    private EncodedMessage(Object packet) {
+        this.packet = packet;
+    }
+
+    /**
+     * @return true if this server lets messages be encoded once
+     */
+    public static boolean isSupported() {
+        return TO_PACKET != null;
+    }
+
+    /**
+     * @return Why messages cannot be encoded once, or null if they can
+     */
+    @Nullable
+    public static String getUnsupportedReason() {
+        return UNSUPPORTED_REASON;
+    }
+
+    /**
+     * Converts a message to its chat packet.
+     *
+     * @return The encoded message, or null if this server does not support it
+     */
+    @Nullable
+    public static EncodedMessage encode(@Nonnull Message message) {
+        if (TO_PACKET == null) {
+            return null;
+        }
+        try {
+            return new EncodedMessage(TO_PACKET.invokeExact(message));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Writes the packet to one player.
+     */
+    public void sendTo(@Nonnull PlayerRef player) {
+        try {
+            WRITE.invokeExact(player, packet);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Writes the packet to every player in a world. Must run on the world's
+     * thread.
+     *
+     * @return Number of players it was written to
+     */
+    public int sendTo(@Nonnull World world) {
+        Collection<PlayerRef> players = world.getPlayerRefs();
+        for (PlayerRef player : players) {
+            sendTo(player);
+        }
+        return players.size();
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (e instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(e);
+    }
+}
@@ -10,6 +10,8 @@ package com.rmaafs.welcometale.utils;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
 
 import com.hypixel.hytale.server.core.plugin.JavaPlugin;
 import com.hypixel.hytale.server.core.util.Config;
@@ -19,6 +21,8 @@ public class FileConfiguration {
 
     private static Config<WelcomeTaleConfig> config;
     private static JavaPlugin pluginInstance;
+    private static volatile ConfigSnapshot snapshot;
+    private static final RenderCache RENDER_CACHE = new RenderCache();
 
     /**
      * Initializes configuration system with plugin instance and config object.
@@ -33,12 +37,48 @@ public class FileConfiguration {
 
     /**
      * Reloads configuration from disk and updates example config file.
+     * Waits for the file to be loaded, then compiles the new configuration
+     * into a snapshot and only then publishes it, so readers never observe a
+     * partially reloaded state. If the file cannot be loaded or the new
+     * configuration cannot be compiled the previous snapshot stays active.
+     * 
+     * @return true if the new configuration was published, false if the
+     *         previous one is still active
      */
-    public static void reloadConfig() {
-        copyConfigToModsFolder(pluginInstance);
-        config.load();
+    public static synchronized boolean reloadConfig() {
+        FlightEvents.ConfigReload event = new FlightEvents.ConfigReload();
+        event.begin();
+        long start = System.nanoTime();
+        ConfigSnapshot previous = snapshot;
+        ConfigSnapshot reloaded = previous;
+        try {
+            copyConfigToModsFolder(pluginInstance);
+            ConfigWatcher.rememberContent();
+            try {
+                config.load().join();
+            } catch (CompletionException | CancellationException e) {
+                pluginInstance.getLogger().atSevere().log("Could not load the configuration, keeping the previous one",
+                        e.getCause() != null ? e.getCause() : e);
+                return false;
+            }
+
+            reloaded = publishSnapshot();
+        } finally {
+            Metrics.RELOAD.recordSince(start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.version = reloaded == null ? 0 : reloaded.getVersion();
+                event.commit();
+            }
+        }
 
-        pluginInstance.getLogger().atInfo().log(MessageFormatter.stripColorCodes(config.get().getMessageReloaded()));
+        if (reloaded == previous) {
+            return false;
+        }
+        ConfigWatcher.setEnabled(pluginInstance, reloaded.isWatchConfig());
+        Metrics.setDumpInterval(pluginInstance, reloaded.getStatsDumpIntervalSeconds());
+        pluginInstance.getLogger().atInfo().log(MessageFormatter.stripColorCodes(reloaded.getMessageReloaded()));
+        return true;
     }
 
     /**
@@ -48,38 +88,128 @@ public class FileConfiguration {
         return config.get();
     }
 
+    /**
+     * Returns the active configuration snapshot. Callers should read it once
+     * per event and use that instance throughout.
+     * 
+     * @return Current immutable configuration snapshot
+     */
+    public static ConfigSnapshot getSnapshot() {
+        ConfigSnapshot current = snapshot;
+        if (current == null) {
+            synchronized (FileConfiguration.class) {
+                current = snapshot;
+                if (current == null) {
+                    current = publishSnapshot();
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Builds a snapshot of the currently loaded configuration and publishes it.
+     * Called once the configuration is loaded and again on every reload.
+     * 
+     * @return Published snapshot
+     */
+    public static synchronized ConfigSnapshot publishSnapshot() {
+        ConfigSnapshot previous = snapshot;
+        ConfigSnapshot next;
+        try {
+            next = ConfigSnapshot.of(previous == null ? 1 : previous.getVersion() + 1, config.get());
+        } catch (RuntimeException e) {
+            if (previous == null) {
+                throw e;
+            }
+            pluginInstance.getLogger().atSevere().log("Invalid configuration, keeping the previous one", e);
+            return previous;
+        }
+
+        publish(next);
+        return next;
+    }
+
+    /**
+     * Makes the snapshot the active one. Handlers that already read the
+     * previous snapshot keep using it until they finish.
+     */
+    static synchronized void publish(ConfigSnapshot next) {
+        snapshot = next;
+        RENDER_CACHE.reset(next.getRenderCacheSize());
+        logNodeCounts(next);
+    }
+
+    /**
+     * Logs how many Message nodes each configured message renders to, before
+     * and after adjacent segments are merged.
+     */
+    private static void logNodeCounts(ConfigSnapshot snapshot) {
+        if (pluginInstance == null) {
+            return;
+        }
+
+        logNodeCount(snapshot.getJoinMessage());
+        logNodeCount(snapshot.getWelcomePlayerMessage());
+        logNodeCount(snapshot.getLeaveMessage());
+        logNodeCount(snapshot.getJoinSummaryMessage());
+        logNodeCount(snapshot.getLeaveSummaryMessage());
+    }
+
+    private static void logNodeCount(MessageTemplate template) {
+        pluginInstance.getLogger().atFine().log(template.getName() + ": " + template.getUnmergedNodeCount() + " -> "
+                + template.getNodeCount() + " message nodes");
+    }
+
+    /**
+     * @return Cache of per-player rendered messages, cleared on every reload
+     */
+    public static RenderCache getRenderCache() {
+        return RENDER_CACHE;
+    }
+
+    /**
+     * @return Plugin folder inside the mods directory (mods/Group_Name)
+     */
+    public static Path getPluginDirectory() {
+        return getPluginDirectory(pluginInstance);
+    }
+
+    private static Path getPluginDirectory(JavaPlugin plugin) {
+        String group = plugin.getManifest().getGroup();
+        String name = plugin.getManifest().getName();
+        return Path.of("mods", group + "_" + name);
+    }
+
     /**
      * Copies example config file from resources to mods directory.
-     * Creates necessary directories if they don't exist.
+     * Creates necessary directories if they don't exist. The example file is
+     * only rewritten when its content changed, and config.json is only created
+     * when missing.
      */
     public static void copyConfigToModsFolder(JavaPlugin plugin) {
         final String configFileName = "config.example.json";
+        long start = System.nanoTime();
         try {
-            String group = plugin.getManifest().getGroup();
-            String name = plugin.getManifest().getName();
-            Path modsPluginDir = Path.of("mods", group + "_" + name);
-            Path targetConfig = modsPluginDir.resolve(configFileName);
-
-            if (!Files.exists(modsPluginDir)) {
-                Files.createDirectories(modsPluginDir);
-            }
+            Path modsPluginDir = getPluginDirectory(plugin);
+            boolean written = ResourceExtractor.extract(plugin.getClass(), "/" + configFileName,
+                    modsPluginDir.resolve(configFileName));
 
-            if (Files.exists(targetConfig)) {
-                Files.delete(targetConfig);
+            // Create config.json if it doesn't exist
+            Path configFile = modsPluginDir.resolve("config.json");
+            if (Files.notExists(configFile)) {
+                byte[] content = ResourceExtractor.readResource(plugin.getClass(), "/" + configFileName);
+                if (content != null) {
+                    written |= ResourceExtractor.extractIfMissing(content, configFile);
+                }
             }
 
-            var resource = plugin.getClass().getResourceAsStream("/" + configFileName);
-            if (resource != null) {
-                Files.copy(resource, targetConfig);
-
-                // Create config.json if it doesn't exist
-                Path actualConfig = modsPluginDir.resolve("config.json");
-                if (!Files.exists(actualConfig)) {
-                    var configResource = plugin.getClass().getResourceAsStream("/" + configFileName);
-                    if (configResource != null) {
-                        Files.copy(configResource, actualConfig);
-                    }
-                }
+            long elapsedMicros = (System.nanoTime() - start) / 1_000;
+            if (written) {
+                plugin.getLogger().atInfo().log("Extracted " + configFileName + " in " + elapsedMicros + " µs");
+            } else {
+                plugin.getLogger().atFine().log(configFileName + " is up to date (checked in " + elapsedMicros
+                        + " µs)");
             }
         } catch (IOException e) {
             e.printStackTrace();
@@ -0,0 +1,73 @@
+/**
+ * Java Flight Recorder events emitted by WelcomeTale.
+ * They show up under the WelcomeTale category in any recording of the server,
+ * so tick-time spikes can be lined up with join storms and reloads. When no
+ * recording has them enabled they are never committed and cost close to
+ * nothing.
+ *
+ * @author github.com/rmaafs
+ * @website https://rmaafs.com
+ */
+package com.rmaafs.welcometale.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+public final class FlightEvents {
+
+    /**
+     * Checked before rendering so templates are not paying for an event
+     * object on every join while no recording is running.
+     */
+    static final EventType TEMPLATE_RENDER = EventType.getEventType(TemplateRender.class);
+
+    private FlightEvents() {
+    }
+
+    @Name("com.rmaafs.welcometale.TemplateRender")
+    @Label("Template Render")
+    @Category("WelcomeTale")
+    @Description("Rendering of a configured message with placeholder values")
+    static final class TemplateRender extends Event {
+        @Label("Template")
+        String template;
+
+        @Label("Line Count")
+        int lineCount;
+
+        @Label("Segment Count")
+        int segmentCount;
+    }
+
+    @Name("com.rmaafs.welcometale.Broadcast")
+    @Label("Broadcast")
+    @Category("WelcomeTale")
+    @Description("Delivery of a message to every world, until the last world or paced tick sent it")
+    static final class Broadcast extends Event {
+        @Label("World Count")
+        int worldCount;
+
+        @Label("Recipient Count")
+        @Description("Players the message was delivered to")
+        int recipientCount;
+
+        @Label("On World Threads")
+        boolean onWorldThreads;
+
+        @Label("Paced")
+        boolean paced;
+    }
+
+    @Name("com.rmaafs.welcometale.ConfigReload")
+    @Label("Config Reload")
+    @Category("WelcomeTale")
+    @Description("Reload of config.json and publication of a new snapshot")
+    static final class ConfigReload extends Event {
+        @Label("Snapshot Version")
+        long version;
+    }
+}
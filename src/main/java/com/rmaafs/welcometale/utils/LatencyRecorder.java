@@ -0,0 +1,21 @@
+/**
+ * Lock-free latency histogram. Recording is safe from any thread and never
+ * blocks, so it can be used on event and world threads.
+ *
+ * @author github.com/rmaafs
+ * @website https://rmaafs.com
+ */
+package com.rmaafs.welcometale.utils;
+
+public class LatencyRecorder extends Histogram {
+
+    /**
+     * Records the time elapsed since the given start.
+     *
+     * @param startNanos Value of {@link System#nanoTime()} when the measured
+     *                   work started
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+}
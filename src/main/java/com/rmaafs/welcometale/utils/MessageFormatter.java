@@ -8,40 +8,35 @@
 package com.rmaafs.welcometale.utils;
 
 import java.awt.Color;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Arrays;
+import java.util.Objects;
 
 import com.hypixel.hytale.server.core.Message;
 
 public class MessageFormatter {
 
-    private static final Map<Character, Color> COLOR_MAP = new HashMap<>();
-    private static final Pattern COLOR_PATTERN = Pattern.compile("[&§]([0-9a-fk-or])");
-    private static final Pattern URL_PATTERN = Pattern.compile(
-            "(?:https?://|www\\.)[\\w\\-._~:/?#\\[\\]@!$&'()*+,;=%]+", Pattern.CASE_INSENSITIVE);
+    private static final Color[] COLOR_TABLE = new Color[128];
     private static final Color DEFAULT_COLOR = Color.WHITE;
 
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
     static {
-        COLOR_MAP.put('0', Color.BLACK);
-        COLOR_MAP.put('1', new Color(0x0000AA)); // Dark Blue
-        COLOR_MAP.put('2', new Color(0x00AA00)); // Dark Green
-        COLOR_MAP.put('3', new Color(0x00AAAA)); // Dark Aqua
-        COLOR_MAP.put('4', new Color(0xAA0000)); // Dark Red
-        COLOR_MAP.put('5', new Color(0xAA00AA)); // Dark Purple
-        COLOR_MAP.put('6', new Color(0xFFAA00)); // Gold
-        COLOR_MAP.put('7', new Color(0xAAAAAA)); // Gray
-        COLOR_MAP.put('8', new Color(0x555555)); // Dark Gray
-        COLOR_MAP.put('9', new Color(0x5555FF)); // Blue
-        COLOR_MAP.put('a', new Color(0x55FF55)); // Green
-        COLOR_MAP.put('b', new Color(0x55FFFF)); // Aqua
-        COLOR_MAP.put('c', new Color(0xFF5555)); // Red
-        COLOR_MAP.put('d', new Color(0xFF55FF)); // Light Purple
-        COLOR_MAP.put('e', new Color(0xFFFF55)); // Yellow
-        COLOR_MAP.put('f', Color.WHITE);
+        COLOR_TABLE['0'] = Color.BLACK;
+        COLOR_TABLE['1'] = new Color(0x0000AA); // Dark Blue
+        COLOR_TABLE['2'] = new Color(0x00AA00); // Dark Green
+        COLOR_TABLE['3'] = new Color(0x00AAAA); // Dark Aqua
+        COLOR_TABLE['4'] = new Color(0xAA0000); // Dark Red
+        COLOR_TABLE['5'] = new Color(0xAA00AA); // Dark Purple
+        COLOR_TABLE['6'] = new Color(0xFFAA00); // Gold
+        COLOR_TABLE['7'] = new Color(0xAAAAAA); // Gray
+        COLOR_TABLE['8'] = new Color(0x555555); // Dark Gray
+        COLOR_TABLE['9'] = new Color(0x5555FF); // Blue
+        COLOR_TABLE['a'] = new Color(0x55FF55); // Green
+        COLOR_TABLE['b'] = new Color(0x55FFFF); // Aqua
+        COLOR_TABLE['c'] = new Color(0xFF5555); // Red
+        COLOR_TABLE['d'] = new Color(0xFF55FF); // Light Purple
+        COLOR_TABLE['e'] = new Color(0xFFFF55); // Yellow
+        COLOR_TABLE['f'] = Color.WHITE;
     }
 
     /**
@@ -50,6 +45,7 @@ public class MessageFormatter {
      * Handles multi-line text by processing each line independently.
      * Each new line automatically resets colors and formatting to defaults.
      * URLs inherit the current text color from surrounding color codes.
+     * Adjacent segments with identical style are merged into a single node.
      * 
      * @param text Input text with color codes (can contain \n for multiple lines)
      * @return Formatted Message object with colors and styling applied
@@ -59,19 +55,57 @@ public class MessageFormatter {
             return Message.raw("");
         }
 
-        String[] lines = text.split("\n");
-        if (lines.length == 1) {
-            return processLine(text);
+        Scratch scratch = SCRATCH.get();
+        if (scratch.inUse) {
+            // Re-entrant call from a sink, use a fresh scratch
+            scratch = new Scratch();
+        }
+
+        long start = System.nanoTime();
+        scratch.inUse = true;
+        try {
+            parse(text, scratch.merger);
+            return scratch.toMessage();
+        } finally {
+            scratch.reset();
+            Metrics.FORMAT.recordSince(start);
+        }
+    }
+
+    /**
+     * Builds a Message from text that was partly parsed beforehand, see
+     * {@link Pieces}. The result is the same as formatting the whole text.
+     *
+     * @param pieces Writes the pieces of the text in order
+     * @return Formatted Message object
+     */
+    static Message format(Pieces pieces) {
+        Scratch scratch = SCRATCH.get();
+        if (scratch.inUse) {
+            scratch = new Scratch();
         }
 
-        List<Message> allMessages = new ArrayList<>();
-        for (int i = 0; i < lines.length; i++) {
-            if (i > 0)
-                allMessages.add(Message.raw("\n"));
-            allMessages.add(processLine(lines[i]));
+        long start = System.nanoTime();
+        scratch.inUse = true;
+        try {
+            pieces.writeTo(scratch.pieces);
+            scratch.merger.finish();
+            return scratch.toMessage();
+        } finally {
+            scratch.reset();
+            Metrics.FORMAT.recordSince(start);
         }
+    }
 
-        return Message.join(allMessages.toArray(new Message[0]));
+    /**
+     * Joins segment messages, avoiding a wrapper node when there is at most
+     * one segment.
+     */
+    static Message join(Message[] messages) {
+        if (messages.length == 0) {
+            return Message.raw("");
+        }
+        return messages.length == 1 ? messages[0] : Message.join(messages);
     }
 
     /**
@@ -81,147 +115,322 @@ public class MessageFormatter {
      * @return Plain text without formatting codes
      */
     public static String stripColorCodes(String text) {
-        return (text == null || text.isEmpty()) ? text : COLOR_PATTERN.matcher(text).replaceAll("");
-    }
-
-    private static Message processLine(String line) {
-        if (line == null || line.isEmpty()) {
-            return Message.raw("");
+        if (text == null || text.isEmpty()) {
+            return text;
         }
 
-        List<Message> messages = new ArrayList<>();
-        Matcher urlMatcher = URL_PATTERN.matcher(line);
-        Matcher colorMatcher = COLOR_PATTERN.matcher(line);
-
+        StringBuilder stripped = null;
         int lastIndex = 0;
-        Color currentColor = DEFAULT_COLOR;
-        boolean bold = false;
-        boolean italic = false;
-
-        // Find all URLs in the line
-        List<int[]> urlRanges = new ArrayList<>();
-        while (urlMatcher.find()) {
-            int start = urlMatcher.start();
-            int end = urlMatcher.end();
-
-            // Remove trailing punctuation (parentheses, periods, commas)
-            while (end > start && isPunctuation(line.charAt(end - 1))) {
-                end--;
+        for (int i = 0; i + 1 < text.length(); i++) {
+            char c = text.charAt(i);
+            if ((c == '&' || c == '§') && isColorCode(text.charAt(i + 1))) {
+                if (stripped == null) {
+                    stripped = new StringBuilder(text.length());
+                }
+                stripped.append(text, lastIndex, i);
+                lastIndex = i + 2;
+                i++;
             }
+        }
 
-            urlRanges.add(new int[] { start, end });
+        if (stripped == null) {
+            return text;
         }
+        return stripped.append(text, lastIndex, text.length()).toString();
+    }
+
+    /**
+     * Parses multi-line text and reports normalized segments to the sink.
+     * Adjacent segments with the same color, formatting and link are merged,
+     * and line breaks are folded into a neighbouring segment that has no link,
+     * so the resulting Message tree is as small as possible.
+     */
+    static void parse(String text, SegmentSink sink) {
+        SegmentMerger merger = new SegmentMerger();
+        merger.sink = sink;
+        parse(text, merger);
+    }
 
-        // Process color codes and text
-        while (colorMatcher.find()) {
-            int colorStart = colorMatcher.start();
-            int colorEnd = colorMatcher.end();
+    /**
+     * Reports the normalized segments of partly parsed text to the sink, see
+     * {@link Pieces}.
+     */
+    static void parse(Pieces pieces, SegmentSink sink) {
+        SegmentMerger merger = new SegmentMerger();
+        merger.sink = sink;
+        pieces.writeTo(new PieceWriter(merger));
+        merger.finish();
+    }
 
-            // Skip if this color code is inside a URL
-            if (isInsideUrl(colorStart, urlRanges)) {
-                continue;
-            }
+    /**
+     * Parses the part of one line between start and end, continuing from the
+     * given state, and reports every styled text range to the sink without
+     * merging them. The state is updated to the one at the end.
+     */
+    static void parseLine(String line, int start, int end, LineState state, SegmentSink sink) {
+        parseLine(line, start, end, state, (source, from, to, color, bold, italic, linkUrl) -> sink
+                .segment(source.substring(from, to), color, bold, italic, linkUrl));
+    }
 
-            // Add text before the color code
-            if (colorStart > lastIndex) {
-                String segment = line.substring(lastIndex, colorStart);
-                messages.addAll(
-                        processSegmentWithUrls(segment, lastIndex, urlRanges, currentColor, bold, italic, line));
+    private static void parse(String text, SegmentMerger merger) {
+        LineState state = merger.lineState;
+        int end = contentEnd(text);
+        if (text.lastIndexOf('\n', end - 1) < 0) {
+            // Without an inner line break the whole text is one line, trailing
+            // line breaks included, exactly as the formatter has always rendered it
+            if (end > 0) {
+                state.reset();
+                parseLine(text, 0, text.length(), state, merger);
             }
-
-            // Update formatting based on color code
-            char colorCode = colorMatcher.group(1).charAt(0);
-            if (COLOR_MAP.containsKey(colorCode)) {
-                currentColor = COLOR_MAP.get(colorCode);
-            } else if (colorCode == 'r') {
-                currentColor = DEFAULT_COLOR;
-                bold = italic = false;
-            } else if (colorCode == 'l') {
-                bold = true;
-            } else if (colorCode == 'o') {
-                italic = true;
+        } else {
+            int lineStart = 0;
+            while (lineStart <= end) {
+                int lineEnd = text.indexOf('\n', lineStart);
+                if (lineEnd < 0 || lineEnd > end) {
+                    lineEnd = end;
+                }
+                if (lineStart > 0) {
+                    merger.lineBreak();
+                }
+                state.reset();
+                parseLine(text, lineStart, lineEnd, state, merger);
+                lineStart = lineEnd + 1;
             }
+        }
+        merger.finish();
+    }
 
-            lastIndex = colorEnd;
+    /**
+     * @return End of the text without its trailing line breaks, the same lines
+     *         {@code String.split("\n")} would keep
+     */
+    private static int contentEnd(String text) {
+        int end = text.length();
+        while (end > 0 && text.charAt(end - 1) == '\n') {
+            end--;
         }
+        return end;
+    }
 
-        // Add remaining text
-        if (lastIndex < line.length()) {
-            String segment = line.substring(lastIndex);
-            messages.addAll(processSegmentWithUrls(segment, lastIndex, urlRanges, currentColor, bold, italic, line));
+    /**
+     * Counts the Message nodes the formatter produced before segments were
+     * merged: one join per line with content, one node per segment and one
+     * per line break.
+     */
+    static int countUnmergedNodes(String text) {
+        if (text == null || text.isEmpty()) {
+            return 1;
         }
 
-        return messages.isEmpty() ? Message.raw("") : Message.join(messages.toArray(new Message[0]));
-    }
+        int end = contentEnd(text);
+        if (end == 0) {
+            return 1;
+        }
+        if (text.lastIndexOf('\n', end - 1) < 0) {
+            return countLineNodes(text, 0, text.length());
+        }
 
-    private static boolean isInsideUrl(int position, List<int[]> urlRanges) {
-        for (int[] range : urlRanges) {
-            if (position >= range[0] && position < range[1]) {
-                return true;
+        int nodes = 1;
+        int lineStart = 0;
+        while (lineStart <= end) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0 || lineEnd > end) {
+                lineEnd = end;
             }
+            if (lineStart > 0) {
+                nodes++;
+            }
+            nodes += countLineNodes(text, lineStart, lineEnd);
+            lineStart = lineEnd + 1;
         }
-        return false;
+        return nodes;
     }
 
-    private static boolean isPunctuation(char c) {
-        return c == ')' || c == '.' || c == ',' || c == ';' || c == '!' || c == '?';
+    private static int countLineNodes(String text, int start, int end) {
+        int[] segments = new int[1];
+        parseLine(text, start, end, new LineState(),
+                (source, from, to, color, bold, italic, linkUrl) -> segments[0]++);
+        return segments[0] == 0 ? 1 : 1 + segments[0];
     }
 
-    private static List<Message> processSegmentWithUrls(String segment, int segmentStart, List<int[]> urlRanges,
-            Color color, boolean bold, boolean italic, String fullLine) {
-        List<Message> messages = new ArrayList<>();
-        int lastIndex = 0;
+    /**
+     * Parses the line between start (inclusive) and end (exclusive) and
+     * reports every styled text range to the sink, in display order. Empty
+     * ranges are never reported.
+     * 
+     * Color codes, URLs and trailing URL punctuation are recognized in a single
+     * left-to-right pass. Color codes inside a URL are kept as part of the URL.
+     * Parsing starts from the given state and leaves the state at the end of
+     * the range in it, so a line can be parsed in several parts split at
+     * characters no color code or URL spans (see {@link #isTokenBoundary}).
+     */
+    private static void parseLine(String line, int start, int end, LineState state, RangeSink sink) {
+        int segmentStart = start;
+        Color currentColor = state.color;
+        boolean bold = state.bold;
+        boolean italic = state.italic;
+
+        int index = start;
+        while (index < end) {
+            char c = line.charAt(index);
+
+            // Color code: & or § followed by a code character
+            if ((c == '&' || c == '§') && index + 1 < end && isColorCode(line.charAt(index + 1))) {
+                if (index > segmentStart) {
+                    sink.range(line, segmentStart, index, currentColor, bold, italic, null);
+                }
 
-        for (int[] urlRange : urlRanges) {
-            int relativeStart = urlRange[0] - segmentStart;
-            int relativeEnd = urlRange[1] - segmentStart;
+                // Update formatting based on color code
+                char colorCode = line.charAt(index + 1);
+                Color color = COLOR_TABLE[colorCode];
+                if (color != null) {
+                    currentColor = color;
+                } else if (colorCode == 'r') {
+                    currentColor = DEFAULT_COLOR;
+                    bold = italic = false;
+                } else if (colorCode == 'l') {
+                    bold = true;
+                } else if (colorCode == 'o') {
+                    italic = true;
+                }
 
-            // Check if URL is in this segment
-            if (relativeEnd <= 0 || relativeStart >= segment.length()) {
+                index += 2;
+                segmentStart = index;
                 continue;
             }
 
-            // Adjust for partial overlaps
-            int urlStartInSegment = Math.max(0, relativeStart);
-            int urlEndInSegment = Math.min(segment.length(), relativeEnd);
-
-            // Add text before URL
-            if (urlStartInSegment > lastIndex) {
-                String textBeforeUrl = segment.substring(lastIndex, urlStartInSegment);
-                if (!textBeforeUrl.isEmpty()) {
-                    messages.add(buildMessage(textBeforeUrl, color, bold, italic, null));
+            // URL: http://, https:// or www. followed by at least one URL character
+            int urlEnd = matchUrl(line, index, end);
+            if (urlEnd > index) {
+                if (index > segmentStart) {
+                    sink.range(line, segmentStart, index, currentColor, bold, italic, null);
                 }
-            }
 
-            // Add URL with link
-            String url = segment.substring(urlStartInSegment, urlEndInSegment);
-            if (!url.isEmpty()) {
-                String fullUrl = fullLine.substring(urlRange[0], urlRange[1]);
+                String url = line.substring(index, urlEnd);
                 // Add https:// prefix if URL starts with www.
-                String linkTarget = fullUrl.startsWith("www.") ? "https://" + fullUrl : fullUrl;
-                messages.add(buildMessage(url, color, bold, italic, linkTarget));
+                String linkTarget = url.startsWith("www.") ? "https://" + url : url;
+                sink.range(line, index, urlEnd, currentColor, bold, italic, linkTarget);
+
+                index = urlEnd;
+                segmentStart = index;
+                continue;
             }
 
-            lastIndex = urlEndInSegment;
+            index++;
         }
 
         // Add remaining text
-        if (lastIndex < segment.length()) {
-            String remainingText = segment.substring(lastIndex);
-            if (!remainingText.isEmpty()) {
-                messages.add(buildMessage(remainingText, color, bold, italic, null));
+        if (segmentStart < end) {
+            sink.range(line, segmentStart, end, currentColor, bold, italic, null);
+        }
+
+        state.color = currentColor;
+        state.bold = bold;
+        state.italic = italic;
+    }
+
+    /**
+     * @return true if no color code or URL can contain the character, so
+     *         parsing a line in two parts split right before or after it gives
+     *         the same ranges, apart from the split
+     */
+    static boolean isTokenBoundary(char c) {
+        return !isUrlChar(c) && c != '§';
+    }
+
+    /**
+     * Matches a URL starting exactly at the given position.
+     * 
+     * @return End of the URL with trailing punctuation removed, or -1 if no URL
+     *         starts at this position
+     */
+    private static int matchUrl(String line, int start, int lineEnd) {
+        int prefixEnd;
+        char first = line.charAt(start);
+        if (first == 'h' || first == 'H') {
+            if (startsWithIgnoreCase(line, start, lineEnd, "https://")) {
+                prefixEnd = start + 8;
+            } else if (startsWithIgnoreCase(line, start, lineEnd, "http://")) {
+                prefixEnd = start + 7;
+            } else {
+                return -1;
+            }
+        } else if (first == 'w' || first == 'W') {
+            if (!startsWithIgnoreCase(line, start, lineEnd, "www.")) {
+                return -1;
+            }
+            prefixEnd = start + 4;
+        } else {
+            return -1;
+        }
+
+        int end = prefixEnd;
+        while (end < lineEnd && isUrlChar(line.charAt(end))) {
+            end++;
+        }
+
+        if (end == prefixEnd) {
+            return -1;
+        }
+
+        // Remove trailing punctuation (parentheses, periods, commas)
+        while (end > start && isPunctuation(line.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * ASCII-only case-insensitive prefix check, matching how URL prefixes have
+     * always been recognized.
+     */
+    private static boolean startsWithIgnoreCase(String line, int start, int end, String lowerPrefix) {
+        if (start + lowerPrefix.length() > end) {
+            return false;
+        }
+
+        for (int i = 0; i < lowerPrefix.length(); i++) {
+            char c = line.charAt(start + i);
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
             }
+            if (c != lowerPrefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isColorCode(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'k' && c <= 'o') || c == 'r';
+    }
+
+    private static boolean isUrlChar(char c) {
+        if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+            return true;
         }
 
-        return messages;
+        switch (c) {
+            case '_', '-', '.', '~', ':', '/', '?', '#', '[', ']', '@', '!', '$', '&', '\'', '(', ')', '*', '+',
+                    ',', ';', '=', '%':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isPunctuation(char c) {
+        return c == ')' || c == '.' || c == ',' || c == ';' || c == '!' || c == '?';
     }
 
-    private static Message buildMessage(String text, Color color, boolean bold, boolean italic, String linkUrl) {
+    static Message buildMessage(String text, Color color, boolean bold, boolean italic, String linkUrl) {
         if (text.isEmpty()) {
             return Message.raw("");
         }
 
-        Message msg = Message.raw(text).color(color);
+        Message msg = Message.raw(text);
+        if (color != null)
+            msg = msg.color(color);
         if (bold)
             msg = msg.bold(true);
         if (italic)
@@ -230,4 +439,288 @@ public class MessageFormatter {
             msg = msg.link(linkUrl);
         return msg;
     }
+
+    /**
+     * Receives the merged, styled text segments of parsed text.
+     */
+    @FunctionalInterface
+    interface SegmentSink {
+        void segment(String text, Color color, boolean bold, boolean italic, String linkUrl);
+    }
+
+    /**
+     * Text that was partly parsed beforehand, written as a sequence of
+     * already parsed segments, line parts still to be parsed and line breaks.
+     * Line breaks only count when more content follows them, the same way the
+     * trailing line breaks of multi-line text are dropped.
+     */
+    @FunctionalInterface
+    interface Pieces {
+        void writeTo(PieceSink sink);
+    }
+
+    /**
+     * Receives the pieces of partly parsed text, see {@link Pieces}.
+     */
+    interface PieceSink {
+        /**
+         * A segment parsed beforehand. An empty text marks a line part that
+         * only holds color codes.
+         */
+        void segment(String text, Color color, boolean bold, boolean italic, String linkUrl);
+
+        /**
+         * Parses the part of a line between start and end from the state,
+         * and updates the state to the one at the end.
+         */
+        void parse(String text, int start, int end, LineState state);
+
+        void lineBreak();
+
+        /**
+         * @return State at the start of a line, reused by every call
+         */
+        LineState lineStart();
+
+        /**
+         * @return Empty buffer for building a line part, reused by every call
+         */
+        StringBuilder buffer();
+    }
+
+    /**
+     * Color and formatting in effect at a point of a line. Every line starts
+     * from the default state.
+     */
+    static final class LineState {
+        private Color color = DEFAULT_COLOR;
+        private boolean bold;
+        private boolean italic;
+
+        void reset() {
+            color = DEFAULT_COLOR;
+            bold = italic = false;
+        }
+
+        void set(LineState other) {
+            color = other.color;
+            bold = other.bold;
+            italic = other.italic;
+        }
+
+        LineState copy() {
+            LineState copy = new LineState();
+            copy.set(this);
+            return copy;
+        }
+
+        boolean sameAs(LineState other) {
+            return color == other.color && bold == other.bold && italic == other.italic;
+        }
+    }
+
+    /**
+     * Passes pieces on to a merger, holding line breaks back until content
+     * follows them.
+     */
+    private static final class PieceWriter implements PieceSink {
+        private final SegmentMerger merger;
+        private final LineState lineState = new LineState();
+        private final StringBuilder buffer = new StringBuilder();
+        private int lineBreaks;
+
+        PieceWriter(SegmentMerger merger) {
+            this.merger = merger;
+        }
+
+        @Override
+        public void segment(String text, Color color, boolean bold, boolean italic, String linkUrl) {
+            content();
+            if (!text.isEmpty()) {
+                merger.range(text, 0, text.length(), color, bold, italic, linkUrl);
+            }
+        }
+
+        @Override
+        public void parse(String text, int start, int end, LineState state) {
+            if (start < end) {
+                content();
+                parseLine(text, start, end, state, merger);
+            }
+        }
+
+        @Override
+        public void lineBreak() {
+            lineBreaks++;
+        }
+
+        @Override
+        public LineState lineStart() {
+            lineState.reset();
+            return lineState;
+        }
+
+        @Override
+        public StringBuilder buffer() {
+            buffer.setLength(0);
+            return buffer;
+        }
+
+        void reset() {
+            lineBreaks = 0;
+        }
+
+        private void content() {
+            for (; lineBreaks > 0; lineBreaks--) {
+                merger.lineBreak();
+            }
+        }
+    }
+
+    /**
+     * Receives styled ranges of a parsed line without copying them out of the
+     * source text.
+     */
+    @FunctionalInterface
+    private interface RangeSink {
+        void range(String source, int start, int end, Color color, boolean bold, boolean italic, String linkUrl);
+    }
+
+    /**
+     * Merges adjacent ranges with identical style and folds line breaks into
+     * neighbouring segments before passing them on. The text of each merged
+     * segment is copied into a reused buffer, so only one String is created
+     * per reported segment.
+     */
+    private static final class SegmentMerger implements RangeSink {
+        private final StringBuilder text = new StringBuilder();
+        private final LineState lineState = new LineState();
+        private SegmentSink sink;
+        private boolean pending;
+        private Color color;
+        private boolean bold;
+        private boolean italic;
+        private String linkUrl;
+        private int lineBreaks;
+
+        void lineBreak() {
+            lineBreaks++;
+        }
+
+        @Override
+        public void range(String source, int start, int end, Color color, boolean bold, boolean italic,
+                String linkUrl) {
+            if (lineBreaks > 0) {
+                if (pending && this.linkUrl == null) {
+                    appendLineBreaks();
+                } else if (linkUrl == null) {
+                    // Start the next segment with the line breaks
+                    flush();
+                    start(color, bold, italic, null);
+                    appendLineBreaks();
+                    text.append(source, start, end);
+                    return;
+                } else {
+                    // Links on both sides: keep the line breaks unstyled and unlinked
+                    flush();
+                    start(null, false, false, null);
+                    appendLineBreaks();
+                }
+            }
+
+            if (pending && sameStyle(color, bold, italic, linkUrl)) {
+                text.append(source, start, end);
+                return;
+            }
+
+            flush();
+            start(color, bold, italic, linkUrl);
+            text.append(source, start, end);
+        }
+
+        void finish() {
+            if (lineBreaks > 0) {
+                if (!pending || linkUrl != null) {
+                    flush();
+                    start(null, false, false, null);
+                }
+                appendLineBreaks();
+            }
+            flush();
+        }
+
+        void reset() {
+            text.setLength(0);
+            pending = false;
+            color = null;
+            linkUrl = null;
+            lineBreaks = 0;
+        }
+
+        private boolean sameStyle(Color color, boolean bold, boolean italic, String linkUrl) {
+            return this.color == color && this.bold == bold && this.italic == italic
+                    && Objects.equals(this.linkUrl, linkUrl);
+        }
+
+        private void start(Color color, boolean bold, boolean italic, String linkUrl) {
+            this.pending = true;
+            this.color = color;
+            this.bold = bold;
+            this.italic = italic;
+            this.linkUrl = linkUrl;
+        }
+
+        private void appendLineBreaks() {
+            for (; lineBreaks > 0; lineBreaks--) {
+                text.append('\n');
+            }
+        }
+
+        private void flush() {
+            if (pending && text.length() > 0) {
+                sink.segment(text.toString(), color, bold, italic, linkUrl);
+            }
+            text.setLength(0);
+            pending = false;
+        }
+    }
+
+    /**
+     * Per-thread buffers reused by {@link #format(String)}, so formatting only
+     * allocates the resulting Message nodes, their text and the join array.
+     */
+    private static final class Scratch implements SegmentSink {
+        private final SegmentMerger merger = new SegmentMerger();
+        private final PieceWriter pieces = new PieceWriter(merger);
+        private Message[] messages = new Message[8];
+        private int count;
+        private boolean inUse;
+
+        Scratch() {
+            merger.sink = this;
+        }
+
+        @Override
+        public void segment(String text, Color color, boolean bold, boolean italic, String linkUrl) {
+            if (count == messages.length) {
+                messages = Arrays.copyOf(messages, count * 2);
+            }
+            messages[count++] = buildMessage(text, color, bold, italic, linkUrl);
+        }
+
+        Message toMessage() {
+            if (count == 0) {
+                return Message.raw("");
+            }
+            return count == 1 ? messages[0] : Message.join(Arrays.copyOf(messages, count));
+        }
+
+        void reset() {
+            Arrays.fill(messages, 0, count, null);
+            count = 0;
+            merger.reset();
+            pieces.reset();
+            inUse = false;
+        }
+    }
 }
@@ -0,0 +1,544 @@
+/**
+ * Precompiled, immutable form of a configured message.
+ * Templates without placeholders are parsed once and always render the same
+ * pre-built Message. For the others, the text is split at characters no color
+ * code or link can span (spaces, most punctuation, line breaks). Stretches
+ * without a placeholder are parsed into segments once when the template is
+ * compiled; each placeholder, with the text around it up to those
+ * characters, is a window parsed again on every render with its value filled
+ * in, continuing from the color and formatting in effect before it. Values
+ * are part of the text the formatter sees, so color codes and links come out
+ * exactly as if the placeholders had been replaced in the configured text.
+ * A value that changes the color or formatting carried into the next
+ * pre-parsed stretch has that stretch parsed again, and a value with a line
+ * break makes the whole text be formatted as before.
+ *
+ * @author github.com/rmaafs
+ * @website https://rmaafs.com
+ */
+package com.rmaafs.welcometale.utils;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import com.hypixel.hytale.server.core.Message;
+import com.rmaafs.welcometale.placeholders.PlaceholderContext;
+import com.rmaafs.welcometale.placeholders.Placeholders;
+
+public final class MessageTemplate {
+
+    private static final String[] NO_VALUES = new String[0];
+
+    private final String name;
+    private final String source;
+    private final String[] parts;
+    private final int[] slots;
+    private final String[] placeholders;
+    private final boolean blank;
+    private final int lineCount;
+    private final int nodeCount;
+    private final int unmergedNodeCount;
+    private final Message prebuilt;
+    /** Pre-parsed regions and windows in text order, null to always format the filled text */
+    private final Object[] layout;
+
+    private MessageTemplate(String name, String source, String[] parts, int[] slots, String[] placeholders) {
+        this.name = name;
+        this.source = source;
+        this.parts = parts;
+        this.slots = slots;
+        this.placeholders = placeholders;
+        this.blank = source == null || source.trim().isEmpty();
+        this.lineCount = source == null || source.isEmpty() ? 0
+                : (int) source.chars().filter(c -> c == '\n').count() + 1;
+
+        this.unmergedNodeCount = MessageFormatter.countUnmergedNodes(source);
+        this.prebuilt = placeholders.length == 0 ? MessageFormatter.format(source) : null;
+        this.layout = placeholders.length == 0 || !hasFixedLines(parts) ? null : layout(parts, slots, placeholders);
+
+        int nodes = 0;
+        if (layout != null) {
+            for (Object piece : layout) {
+                nodes += piece instanceof Region region ? region.getSegmentCount() : 1;
+            }
+        } else if (source != null && !source.isEmpty()) {
+            int[] segments = new int[1];
+            MessageFormatter.parse(source, (text, color, bold, italic, linkUrl) -> segments[0]++);
+            nodes = segments[0];
+        }
+        this.nodeCount = nodes > 1 ? nodes + 1 : 1;
+    }
+
+    /**
+     * Compiles text with color codes into a reusable template.
+     * Every {name} made of placeholder name characters becomes a slot.
+     * Rendering produces the same output as {@link MessageFormatter#format}
+     * on the text with the placeholders replaced.
+     *
+     * @param name Name of the template, e.g. its configuration key
+     * @param text Input text with color codes (can contain \n)
+     * @return Compiled template
+     */
+    public static MessageTemplate compile(String name, String text) {
+        if (text == null || text.isEmpty()) {
+            return new MessageTemplate(name, text, new String[] { "" }, new int[0], NO_VALUES);
+        }
+
+        List<String> placeholders = new ArrayList<>();
+        List<String> parts = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        int lastIndex = 0;
+        int open = lastIndex;
+        while ((open = text.indexOf('{', open)) >= 0) {
+            int close = open + 1;
+            while (close < text.length() && Placeholders.isKeyChar(text.charAt(close))) {
+                close++;
+            }
+
+            if (close == open + 1 || close == text.length() || text.charAt(close) != '}') {
+                open++;
+                continue;
+            }
+
+            String key = text.substring(open + 1, close);
+            int slot = placeholders.indexOf(key);
+            if (slot < 0) {
+                slot = placeholders.size();
+                placeholders.add(key);
+            }
+            parts.add(text.substring(lastIndex, open));
+            slots.add(slot);
+            lastIndex = close + 1;
+            open = lastIndex;
+        }
+        parts.add(text.substring(lastIndex));
+
+        return new MessageTemplate(name, text, parts.toArray(new String[0]),
+                slots.stream().mapToInt(Integer::intValue).toArray(), placeholders.toArray(new String[0]));
+    }
+
+    /**
+     * @return true if the template has no visible content and should not be sent
+     */
+    public boolean isBlank() {
+        return blank;
+    }
+
+    /**
+     * @return Name the template was compiled with
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Original text the template was compiled from
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return true if the template has no placeholder slots and always renders
+     *         the same pre-built Message
+     */
+    public boolean isStatic() {
+        return prebuilt != null;
+    }
+
+    /**
+     * @param key Placeholder name without braces, e.g. {@code "player"}
+     * @return true if the placeholder appears in the template
+     */
+    public boolean usesPlaceholder(String key) {
+        for (String placeholder : placeholders) {
+            if (placeholder.equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param key Placeholder name without braces
+     * @return true if the template uses that placeholder and no other
+     */
+    public boolean usesOnlyPlaceholder(String key) {
+        return placeholders.length == 1 && placeholders[0].equals(key);
+    }
+
+    /**
+     * @return Number of Message nodes the template is pre-built into: one per
+     *         pre-parsed segment and one per placeholder window, plus the
+     *         join node when there is more than one. For templates without
+     *         placeholders, or that are always formatted whole, the nodes of
+     *         the configured text with placeholders left as written
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return Number of Message nodes the message had before adjacent segments
+     *         were merged
+     */
+    public int getUnmergedNodeCount() {
+        return unmergedNodeCount;
+    }
+
+    /**
+     * Renders the template for a message that is not about a single player.
+     * Templates without placeholders return the same pre-built Message.
+     *
+     * @return Formatted Message object
+     */
+    public Message render() {
+        return prebuilt != null ? prebuilt : render(PlaceholderContext.global());
+    }
+
+    /**
+     * Renders the template, resolving each placeholder it uses once through
+     * the context. Placeholders nobody resolves are kept as written.
+     * Templates without placeholders return the same pre-built Message.
+     *
+     * @param context Player and event the message is rendered for
+     * @return Formatted Message object
+     */
+    public Message render(PlaceholderContext context) {
+        if (prebuilt != null) {
+            return prebuilt;
+        }
+        if (!FlightEvents.TEMPLATE_RENDER.isEnabled()) {
+            return format(resolve(context));
+        }
+
+        FlightEvents.TemplateRender event = new FlightEvents.TemplateRender();
+        event.begin();
+        Message message = format(resolve(context));
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.template = name;
+            event.lineCount = lineCount;
+            event.segmentCount = nodeCount;
+            event.commit();
+        }
+        return message;
+    }
+
+    /**
+     * Renders the template into styled segments instead of a Message.
+     */
+    void render(PlaceholderContext context, MessageFormatter.SegmentSink sink) {
+        if (source == null || source.isEmpty()) {
+            return;
+        }
+        if (prebuilt != null) {
+            MessageFormatter.parse(source, sink);
+            return;
+        }
+
+        String[] values = resolve(context);
+        if (usesLayout(values)) {
+            MessageFormatter.parse(out -> write(values, out), sink);
+        } else {
+            MessageFormatter.parse(fill(values), sink);
+        }
+    }
+
+    private Message format(String[] values) {
+        return usesLayout(values) ? MessageFormatter.format(out -> write(values, out))
+                : MessageFormatter.format(fill(values));
+    }
+
+    /**
+     * @return Value of every placeholder, or the placeholder as written if
+     *         nobody resolves it
+     */
+    private String[] resolve(PlaceholderContext context) {
+        String[] values = new String[placeholders.length];
+        for (int i = 0; i < placeholders.length; i++) {
+            String value = context.resolve(placeholders[i]);
+            values[i] = value != null ? value : '{' + placeholders[i] + '}';
+        }
+        return values;
+    }
+
+    /**
+     * @return true if the values can be rendered through the pre-parsed
+     *         layout, which assumes they add no line breaks
+     */
+    private boolean usesLayout(String[] values) {
+        if (layout == null) {
+            return false;
+        }
+        for (String value : values) {
+            if (value.indexOf('\n') >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the pre-parsed regions and the windows with the values filled
+     * in, carrying the line state from one to the next.
+     */
+    private void write(String[] values, MessageFormatter.PieceSink out) {
+        MessageFormatter.LineState state = out.lineStart();
+        for (Object piece : layout) {
+            if (piece instanceof Region region) {
+                region.write(out, state);
+            } else {
+                String window = ((Window) piece).fill(out.buffer(), values).toString();
+                out.parse(window, 0, window.length(), state);
+            }
+        }
+    }
+
+    /**
+     * @return Configured text with every placeholder replaced by its value
+     */
+    private String fill(String[] values) {
+        int length = source.length();
+        for (String value : values) {
+            length += value.length();
+        }
+
+        StringBuilder text = new StringBuilder(length).append(parts[0]);
+        for (int i = 0; i < slots.length; i++) {
+            text.append(values[slots[i]]).append(parts[i + 1]);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Checks that the text is split into lines the same way whatever values
+     * without line breaks are filled in: either it has no line break, or a
+     * line break is followed by text, which makes it multi-line. Line breaks
+     * followed only by placeholders and more line breaks would be trailing
+     * ones, dropped, for empty values only.
+     */
+    private static boolean hasFixedLines(String[] parts) {
+        boolean lineBreak = false;
+        for (String part : parts) {
+            for (int i = 0; i < part.length(); i++) {
+                if (part.charAt(i) == '\n') {
+                    lineBreak = true;
+                } else if (lineBreak) {
+                    return true;
+                }
+            }
+        }
+        return !lineBreak;
+    }
+
+    /**
+     * Splits the text into regions without placeholders and windows around
+     * them, at token boundaries, and pre-parses the regions from the state
+     * they get when values contain no color codes.
+     */
+    private static Object[] layout(String[] parts, int[] slots, String[] placeholders) {
+        List<Object> layout = new ArrayList<>();
+        List<String> windowTexts = new ArrayList<>();
+        List<Integer> windowSlots = new ArrayList<>();
+        MessageFormatter.LineState state = new MessageFormatter.LineState();
+
+        for (int i = 0; i < parts.length; i++) {
+            String part = parts[i];
+            if (i > 0) {
+                windowSlots.add(slots[i - 1]);
+            }
+
+            int first = 0;
+            while (first < part.length() && !MessageFormatter.isTokenBoundary(part.charAt(first))) {
+                first++;
+            }
+            if (first == part.length()) {
+                windowTexts.add(part);
+                continue;
+            }
+
+            int last = part.length() - 1;
+            while (!MessageFormatter.isTokenBoundary(part.charAt(last))) {
+                last--;
+            }
+
+            int regionStart = 0;
+            if (i > 0) {
+                windowTexts.add(part.substring(0, first));
+                Window window = new Window(windowTexts, windowSlots);
+                layout.add(window);
+                window.parse(placeholders, state);
+                windowTexts.clear();
+                windowSlots.clear();
+                regionStart = first;
+            }
+
+            // The last region runs to the end of the text
+            int regionEnd = i == parts.length - 1 ? part.length() : last + 1;
+            Region region = new Region(part.substring(regionStart, regionEnd), state);
+            layout.add(region);
+            state.set(region.exit);
+            windowTexts.add(part.substring(regionEnd));
+        }
+
+        if (!windowSlots.isEmpty()) {
+            layout.add(new Window(windowTexts, windowSlots));
+        }
+        return layout.toArray();
+    }
+
+    /**
+     * Text without placeholders, parsed into segments when the template is
+     * compiled. It is parsed again on render when it is entered with another
+     * line state than the one it was parsed from.
+     */
+    private static final class Region {
+        private final String text;
+        private final MessageFormatter.LineState entry;
+        private final MessageFormatter.LineState exit;
+        /** Segments merged within each line, null for a line break */
+        private final Segment[] segments;
+
+        Region(String text, MessageFormatter.LineState entry) {
+            this.text = text;
+            this.entry = entry.copy();
+            this.exit = entry.copy();
+
+            List<Segment> segments = new ArrayList<>();
+            int lineStart = 0;
+            while (true) {
+                int lineEnd = text.indexOf('\n', lineStart);
+                if (lineEnd < 0) {
+                    lineEnd = text.length();
+                }
+
+                int lineSegments = segments.size();
+                MessageFormatter.parseLine(text, lineStart, lineEnd, exit,
+                        (segment, color, bold, italic, linkUrl) -> add(segments, segment, color, bold, italic,
+                                linkUrl));
+                if (lineEnd > lineStart && segments.size() == lineSegments) {
+                    // Only color codes: no segment, but still content
+                    segments.add(new Segment("", null, false, false, null));
+                }
+
+                if (lineEnd == text.length()) {
+                    break;
+                }
+                segments.add(null);
+                exit.reset();
+                lineStart = lineEnd + 1;
+            }
+            this.segments = segments.toArray(new Segment[0]);
+        }
+
+        private static void add(List<Segment> segments, String text, Color color, boolean bold, boolean italic,
+                String linkUrl) {
+            Segment previous = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (previous != null && previous.sameStyle(color, bold, italic, linkUrl)) {
+                segments.set(segments.size() - 1,
+                        new Segment(previous.text + text, color, bold, italic, linkUrl));
+            } else {
+                segments.add(new Segment(text, color, bold, italic, linkUrl));
+            }
+        }
+
+        int getSegmentCount() {
+            int count = 0;
+            for (Segment segment : segments) {
+                if (segment != null && !segment.text.isEmpty()) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        void write(MessageFormatter.PieceSink out, MessageFormatter.LineState state) {
+            if (!state.sameAs(entry)) {
+                int lineStart = 0;
+                int lineEnd;
+                while ((lineEnd = text.indexOf('\n', lineStart)) >= 0) {
+                    out.parse(text, lineStart, lineEnd, state);
+                    out.lineBreak();
+                    state.reset();
+                    lineStart = lineEnd + 1;
+                }
+                out.parse(text, lineStart, text.length(), state);
+                return;
+            }
+
+            for (Segment segment : segments) {
+                if (segment == null) {
+                    out.lineBreak();
+                } else {
+                    out.segment(segment.text, segment.color, segment.bold, segment.italic, segment.linkUrl);
+                }
+            }
+            state.set(exit);
+        }
+    }
+
+    private static final class Segment {
+        private final String text;
+        private final Color color;
+        private final boolean bold;
+        private final boolean italic;
+        private final String linkUrl;
+
+        Segment(String text, Color color, boolean bold, boolean italic, String linkUrl) {
+            this.text = text;
+            this.color = color;
+            this.bold = bold;
+            this.italic = italic;
+            this.linkUrl = linkUrl;
+        }
+
+        boolean sameStyle(Color color, boolean bold, boolean italic, String linkUrl) {
+            return this.color == color && this.bold == bold && this.italic == italic
+                    && Objects.equals(this.linkUrl, linkUrl);
+        }
+    }
+
+    /**
+     * One or more placeholders with the text around them up to the nearest
+     * token boundaries, parsed on every render with the values filled in.
+     */
+    private static final class Window {
+        /** Text before, between and after the slots */
+        private final String[] texts;
+        private final int[] slots;
+
+        Window(List<String> texts, List<Integer> slots) {
+            this.texts = texts.toArray(new String[0]);
+            this.slots = slots.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        /**
+         * @return The buffer, holding the window with the values filled in
+         */
+        StringBuilder fill(StringBuilder window, String[] values) {
+            window.append(texts[0]);
+            for (int i = 0; i < slots.length; i++) {
+                window.append(values[slots[i]]).append(texts[i + 1]);
+            }
+            return window;
+        }
+
+        /**
+         * Advances the state over the window with placeholders as written,
+         * which is what values without color codes leave it at.
+         */
+        void parse(String[] placeholders, MessageFormatter.LineState state) {
+            String[] written = new String[placeholders.length];
+            for (int i = 0; i < placeholders.length; i++) {
+                written[i] = '{' + placeholders[i] + '}';
+            }
+            String window = fill(new StringBuilder(), written).toString();
+            MessageFormatter.parseLine(window, 0, window.length(), state, (text, color, bold, italic, link) -> {
+            });
+        }
+    }
+}
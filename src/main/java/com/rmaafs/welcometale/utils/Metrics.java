@@ -0,0 +1,184 @@
+/**
+ * Counters and latency histograms for everything WelcomeTale does per event.
+ * Shown by /welcometale stats and optionally dumped as JSON to stats.json in
+ * the plugin folder for external monitoring.
+ *
+ * @author github.com/rmaafs
+ * @website https://rmaafs.com
+ */
+package com.rmaafs.welcometale.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.hypixel.hytale.server.core.plugin.JavaPlugin;
+
+public class Metrics {
+
+    public static final LatencyRecorder CONNECT = new LatencyRecorder();
+    public static final LatencyRecorder DISCONNECT = new LatencyRecorder();
+    public static final LatencyRecorder FORMAT = new LatencyRecorder();
+    public static final LatencyRecorder BROADCAST = new LatencyRecorder();
+    public static final LatencyRecorder DELIVERY = new LatencyRecorder();
+    public static final LatencyRecorder RELOAD = new LatencyRecorder();
+    public static final Histogram RECIPIENTS = new Histogram();
+    public static final Histogram QUEUE_DEPTH = new Histogram();
+    public static final LongAdder SUPPRESSED_ANNOUNCEMENTS = new LongAdder();
+
+    private static final String DUMP_FILE_NAME = "stats.json";
+
+    private static final Map<String, LatencyRecorder> LATENCIES = new LinkedHashMap<>();
+
+    private static JavaPlugin pluginInstance;
+    private static ScheduledFuture<?> dumpTask;
+    private static int dumpIntervalSeconds;
+    private static volatile long resetAt = System.currentTimeMillis();
+
+    static {
+        LATENCIES.put("connect", CONNECT);
+        LATENCIES.put("disconnect", DISCONNECT);
+        LATENCIES.put("format", FORMAT);
+        LATENCIES.put("broadcast", BROADCAST);
+        LATENCIES.put("delivery", DELIVERY);
+        LATENCIES.put("reload", RELOAD);
+    }
+
+    /**
+     * @return Latency histograms by name, in display order
+     */
+    public static Map<String, LatencyRecorder> getLatencies() {
+        return LATENCIES;
+    }
+
+    /**
+     * @return Time the metrics were last reset, in epoch milliseconds
+     */
+    public static long getResetAt() {
+        return resetAt;
+    }
+
+    /**
+     * Clears all histograms.
+     */
+    public static void reset() {
+        LATENCIES.values().forEach(LatencyRecorder::reset);
+        RECIPIENTS.reset();
+        QUEUE_DEPTH.reset();
+        SUPPRESSED_ANNOUNCEMENTS.reset();
+        resetAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Starts, stops or reschedules the periodic JSON dump so it matches the
+     * configuration. Safe to call repeatedly, e.g. after every reload.
+     *
+     * @param intervalSeconds Seconds between dumps, 0 disables the dump
+     */
+    public static synchronized void setDumpInterval(JavaPlugin plugin, int intervalSeconds) {
+        pluginInstance = plugin;
+        if (intervalSeconds == dumpIntervalSeconds && (dumpTask != null) == (intervalSeconds > 0)) {
+            return;
+        }
+
+        stopDump();
+        dumpIntervalSeconds = intervalSeconds;
+        if (intervalSeconds > 0) {
+            dumpTask = Scheduler.get().scheduleAtFixedRate(Metrics::dump, intervalSeconds, intervalSeconds,
+                    TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Stops the periodic dump. Called when the plugin shuts down.
+     */
+    public static synchronized void stopDump() {
+        if (dumpTask != null) {
+            dumpTask.cancel(false);
+            dumpTask = null;
+        }
+        dumpIntervalSeconds = 0;
+    }
+
+    private static void dump() {
+        try {
+            writeJson(FileConfiguration.getPluginDirectory().resolve(DUMP_FILE_NAME));
+        } catch (IOException | RuntimeException e) {
+            if (pluginInstance != null) {
+                pluginInstance.getLogger().atWarning().log("Could not write " + DUMP_FILE_NAME, e);
+            }
+        }
+    }
+
+    /**
+     * Writes the current metrics as JSON, replacing the file atomically so a
+     * scraper never reads a partial dump.
+     */
+    public static void writeJson(Path file) throws IOException {
+        ResourceExtractor.writeAtomically(file, toJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return Current metrics as a JSON object. Latencies are in nanoseconds.
+     */
+    public static String toJson() {
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\n");
+        json.append("  \"timestamp\": ").append(System.currentTimeMillis()).append(",\n");
+        json.append("  \"resetAt\": ").append(resetAt).append(",\n");
+        json.append("  \"latencyNanos\": {\n");
+
+        int index = 0;
+        for (Map.Entry<String, LatencyRecorder> entry : LATENCIES.entrySet()) {
+            json.append("    \"").append(entry.getKey()).append("\": ");
+            appendHistogram(json, entry.getValue());
+            json.append(++index < LATENCIES.size() ? ",\n" : "\n");
+        }
+        json.append("  },\n");
+
+        json.append("  \"recipients\": ");
+        appendHistogram(json, RECIPIENTS);
+        json.append(",\n");
+        json.append("  \"queuedRecipients\": ").append(ServerUtils.getBroadcastPacer().getQueuedRecipients())
+                .append(",\n");
+        json.append("  \"queueDepth\": ");
+        appendHistogram(json, QUEUE_DEPTH);
+        json.append(",\n");
+        json.append("  \"suppressedAnnouncements\": ").append(SUPPRESSED_ANNOUNCEMENTS.sum()).append(",\n");
+
+        RenderCache renderCache = FileConfiguration.getRenderCache();
+        json.append("  \"renderCache\": {\"size\": ").append(renderCache.size())
+                .append(", \"hits\": ").append(renderCache.getHits())
+                .append(", \"misses\": ").append(renderCache.getMisses())
+                .append(", \"evictions\": ").append(renderCache.getEvictions()).append("}\n");
+        json.append("}\n");
+        return json.toString();
+    }
+
+    private static void appendHistogram(StringBuilder json, Histogram histogram) {
+        json.append("{\"count\": ").append(histogram.getCount())
+                .append(", \"mean\": ").append(histogram.getMean())
+                .append(", \"p50\": ").append(histogram.getPercentile(50))
+                .append(", \"p99\": ").append(histogram.getPercentile(99))
+                .append(", \"max\": ").append(histogram.getMax()).append('}');
+    }
+
+    /**
+     * Formats a duration for chat, e.g. {@code 850ns}, {@code 12.4µs} or
+     * {@code 3.1ms}.
+     */
+    public static String formatNanos(long nanos) {
+        if (nanos < 1_000) {
+            return nanos + "ns";
+        }
+        if (nanos < 1_000_000) {
+            return String.format("%.1fµs", nanos / 1_000.0);
+        }
+        return String.format("%.1fms", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,618 @@
+/**
+ * Checks whether the bytecode patches of the early plugin still match the
+ * running server, so a server update that moved a patched call is reported
+ * clearly instead of the patch silently doing nothing.
+ *
+ * The server jar is opened as a zip file system, so only the patched class
+ * entries are read, and each class file is parsed just far enough to find the
+ * patched method and the call inside it. Results are cached in the plugin
+ * folder, keyed by a hash of the jar's central directory (which holds the
+ * CRC of every entry) and of the patch specs, so later startups only map
+ * and hash the end of the jar.
+ *
+ * @author github.com/rmaafs
+ * @website https://rmaafs.com
+ */
+package com.rmaafs.welcometale.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.net.URISyntaxException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+
+import com.hypixel.hytale.server.core.plugin.JavaPlugin;
+import com.hypixel.hytale.server.core.universe.world.PlayerUtil;
+import com.rmaafs.welcometale.transformers.PatchSpec;
+
+public class PatchCompatibility {
+
+    public static final Path INSTALLED_TRANSFORMER = Paths.get("earlyplugins", "LeaveMessageTransformer.jar");
+
+    private static final String TRANSFORMER_RESOURCE = "/earlyplugins/LeaveMessageTransformer.jar";
+    private static final String BUNDLED_SPEC_ENTRY = "com/rmaafs/welcometale/transformers/patches.spec";
+    private static final Path EXTERNAL_SPEC = Paths.get("earlyplugins", "welcometale-patches.spec");
+    private static final String CACHE_FILE = "patch-compatibility.properties";
+    private static final String KEY_FINGERPRINT = "fingerprint";
+    private static final String KEY_PATCH_PREFIX = "patch.";
+
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int MAX_ZIP_COMMENT = 0xffff;
+
+    private static volatile CompletableFuture<Report> result;
+
+    public enum Status {
+        COMPATIBLE("compatible"),
+        CLASS_MISSING("class not found"),
+        METHOD_MISSING("method not found"),
+        CALL_MISSING("call not found"),
+        UNKNOWN("could not be checked");
+
+        private final String description;
+
+        Status(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    /**
+     * Runs the check in the background the first time it is called and
+     * returns the same result afterwards.
+     *
+     * @return Compatibility of every declared patch with the running server
+     */
+    public static CompletableFuture<Report> check() {
+        CompletableFuture<Report> current = result;
+        if (current == null) {
+            synchronized (PatchCompatibility.class) {
+                current = result;
+                if (current == null) {
+                    current = result = CompletableFuture.supplyAsync(PatchCompatibility::run, Scheduler.get());
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Logs the result once the check is done: a warning for every patch that
+     * will not apply if the patch is installed, and a single info line if not.
+     */
+    public static void logStatus(JavaPlugin plugin) {
+        check().thenAccept(report -> {
+            boolean installed = Files.exists(INSTALLED_TRANSFORMER);
+            if (!installed) {
+                plugin.getLogger().atInfo().log("Leave message patch is not installed (" + report.summary() + ")");
+            } else if (report.isCompatible()) {
+                plugin.getLogger().atInfo().log("Leave message patch is compatible with this server");
+            } else {
+                for (Result patch : report.getResults()) {
+                    if (patch.getStatus() != Status.COMPATIBLE) {
+                        plugin.getLogger().atWarning().log("Patch " + patch.getId()
+                                + " will not apply to this server: " + patch.getStatus().getDescription() + " ("
+                                + patch.getTarget() + ")");
+                    }
+                }
+            }
+        }).exceptionally(e -> {
+            plugin.getLogger().atWarning().log("Could not check leave message patch compatibility", e);
+            return null;
+        });
+    }
+
+    private static Report run() {
+        List<PatchSpec> targets;
+        byte[] specs;
+        try {
+            specs = readSpecs();
+            targets = parseSpecs(new String(specs, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            return Report.unknown("patch specs could not be read: " + e.getMessage(), List.of());
+        }
+
+        Path serverJar = findServerJar();
+        if (serverJar == null) {
+            return Report.unknown("server jar not found", targets);
+        }
+
+        String fingerprint;
+        try {
+            fingerprint = fingerprint(serverJar, specs);
+        } catch (IOException e) {
+            return Report.unknown("server jar could not be read: " + e.getMessage(), targets);
+        }
+
+        Path cacheFile = FileConfiguration.getPluginDirectory().resolve(CACHE_FILE);
+        Properties cache = readCache(cacheFile);
+        if (fingerprint.equals(cache.getProperty(KEY_FINGERPRINT))) {
+            List<Result> results = new ArrayList<>();
+            for (PatchSpec target : targets) {
+                Status status = parseStatus(cache.getProperty(KEY_PATCH_PREFIX + target.getId()));
+                if (status == null) {
+                    results = null;
+                    break;
+                }
+                results.add(new Result(target, status));
+            }
+            if (results != null) {
+                return new Report(serverJar.toString(), results, true);
+            }
+        }
+
+        List<Result> results;
+        try {
+            results = scan(serverJar, targets);
+        } catch (IOException e) {
+            return Report.unknown("server jar could not be opened: " + e.getMessage(), targets);
+        }
+
+        // Read errors are not cached, the check runs again on the next startup
+        if (results.stream().noneMatch(patch -> patch.getStatus() == Status.UNKNOWN)) {
+            cache.clear();
+            cache.setProperty(KEY_FINGERPRINT, fingerprint);
+            for (Result patch : results) {
+                cache.setProperty(KEY_PATCH_PREFIX + patch.getId(), patch.getStatus().name());
+            }
+            writeCache(cacheFile, cache);
+        }
+        return new Report(serverJar.toString(), results, false);
+    }
+
+    private static Status parseStatus(String status) {
+        try {
+            return status == null ? null : Status.valueOf(status);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return Bundled spec from the embedded transformer jar, followed by the
+     *         server's own spec if it has one
+     */
+    private static byte[] readSpecs() throws IOException {
+        ByteArrayOutputStream specs = new ByteArrayOutputStream();
+        try (InputStream transformer = PatchCompatibility.class.getResourceAsStream(TRANSFORMER_RESOURCE)) {
+            if (transformer == null) {
+                throw new NoSuchFileException(TRANSFORMER_RESOURCE);
+            }
+
+            JarInputStream jar = new JarInputStream(transformer);
+            JarEntry entry;
+            while ((entry = jar.getNextJarEntry()) != null) {
+                if (BUNDLED_SPEC_ENTRY.equals(entry.getName())) {
+                    jar.transferTo(specs);
+                    break;
+                }
+            }
+        }
+
+        if (Files.isRegularFile(EXTERNAL_SPEC)) {
+            specs.write('\n');
+            specs.write(Files.readAllBytes(EXTERNAL_SPEC));
+        }
+        return specs.toByteArray();
+    }
+
+    /**
+     * Parses the specs the same way the engine does. Invalid lines are
+     * skipped, the engine reports them itself.
+     */
+    static List<PatchSpec> parseSpecs(String specs) throws IOException {
+        Map<String, PatchSpec> patches = new LinkedHashMap<>();
+        PatchSpec.read(new StringReader(specs), "patches.spec", patches, invalid -> {
+        });
+        return new ArrayList<>(patches.values());
+    }
+
+    /**
+     * @return Jar the server classes are loaded from, or null if unknown
+     */
+    private static Path findServerJar() {
+        try {
+            CodeSource source = PlayerUtil.class.getProtectionDomain().getCodeSource();
+            if (source == null || source.getLocation() == null) {
+                return null;
+            }
+
+            Path jar = Paths.get(source.getLocation().toURI());
+            return Files.isRegularFile(jar) ? jar : null;
+        } catch (URISyntaxException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Hashes the jar's central directory, found through the end of central
+     * directory record at the end of the file, together with the specs. Only
+     * the end of the jar is mapped, the entries themselves are never read.
+     * Jars whose directory cannot be located fall back to size and
+     * modification time.
+     */
+    static String fingerprint(Path jar, byte[] specs) throws IOException {
+        MessageDigest digest = ResourceExtractor.newSha256();
+        digest.update(specs);
+
+        try (FileChannel channel = FileChannel.open(jar, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long tailStart = Math.max(0, size - END_OF_CENTRAL_DIRECTORY_SIZE - MAX_ZIP_COMMENT);
+            MappedByteBuffer tail = channel.map(FileChannel.MapMode.READ_ONLY, tailStart, size - tailStart);
+            tail.order(ByteOrder.LITTLE_ENDIAN);
+
+            for (int pos = tail.limit() - END_OF_CENTRAL_DIRECTORY_SIZE; pos >= 0; pos--) {
+                if (tail.getInt(pos) != END_OF_CENTRAL_DIRECTORY) {
+                    continue;
+                }
+
+                long directorySize = Integer.toUnsignedLong(tail.getInt(pos + 12));
+                long directoryOffset = Integer.toUnsignedLong(tail.getInt(pos + 16));
+                if (directoryOffset + directorySize > size) {
+                    break;
+                }
+
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, directoryOffset, directorySize));
+                return HexFormat.of().formatHex(digest.digest());
+            }
+
+            digest.update((size + ":" + Files.getLastModifiedTime(jar).toMillis()).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        }
+    }
+
+    /**
+     * Opens the jar once and looks for the call site of every target in it.
+     */
+    static List<Result> scan(Path serverJar, List<PatchSpec> targets) throws IOException {
+        List<Result> results = new ArrayList<>();
+        try (FileSystem jar = FileSystems.newFileSystem(serverJar)) {
+            for (PatchSpec target : targets) {
+                results.add(new Result(target, scan(jar, target)));
+            }
+        }
+        return results;
+    }
+
+    private static Status scan(FileSystem jar, PatchSpec target) {
+        Path entry = jar.getPath("/" + target.getClassName() + ".class");
+        byte[] classBytes;
+        try {
+            classBytes = Files.readAllBytes(entry);
+        } catch (NoSuchFileException e) {
+            return Status.CLASS_MISSING;
+        } catch (IOException e) {
+            return Status.UNKNOWN;
+        }
+
+        try {
+            return scan(classBytes, target);
+        } catch (IOException | RuntimeException e) {
+            return Status.UNKNOWN;
+        }
+    }
+
+    /**
+     * Walks the class file: constant pool, then the methods, and the bytecode
+     * of those matching the target, looking for an invoke of the target call.
+     */
+    static Status scan(byte[] classBytes, PatchSpec target) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(classBytes));
+        if (in.readInt() != 0xCAFEBABE) {
+            throw new IOException("Not a class file");
+        }
+        in.readUnsignedShort(); // minor version
+        in.readUnsignedShort(); // major version
+
+        int poolSize = in.readUnsignedShort();
+        String[] utf8 = new String[poolSize];
+        int[] firstIndex = new int[poolSize];
+        int[] secondIndex = new int[poolSize];
+        byte[] tags = new byte[poolSize];
+        for (int i = 1; i < poolSize; i++) {
+            int tag = in.readUnsignedByte();
+            tags[i] = (byte) tag;
+            switch (tag) {
+                case 1: // Utf8
+                    utf8[i] = in.readUTF();
+                    break;
+                case 7: // Class
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    firstIndex[i] = in.readUnsignedShort();
+                    break;
+                case 15: // MethodHandle
+                    in.readUnsignedByte();
+                    in.readUnsignedShort();
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                    in.readInt();
+                    break;
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    firstIndex[i] = in.readUnsignedShort();
+                    secondIndex[i] = in.readUnsignedShort();
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    in.readLong();
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+
+        in.readUnsignedShort(); // access flags
+        in.readUnsignedShort(); // this class
+        in.readUnsignedShort(); // super class
+        in.skipBytes(2 * in.readUnsignedShort()); // interfaces
+
+        int fieldCount = in.readUnsignedShort();
+        for (int i = 0; i < fieldCount; i++) {
+            in.skipBytes(6);
+            skipAttributes(in);
+        }
+
+        boolean methodFound = false;
+        int methodCount = in.readUnsignedShort();
+        for (int i = 0; i < methodCount; i++) {
+            in.readUnsignedShort(); // access flags
+            String name = utf8[in.readUnsignedShort()];
+            String descriptor = utf8[in.readUnsignedShort()];
+            boolean matches = target.matchesMethod(name, descriptor);
+            methodFound |= matches;
+
+            int attributeCount = in.readUnsignedShort();
+            for (int a = 0; a < attributeCount; a++) {
+                String attribute = utf8[in.readUnsignedShort()];
+                int length = in.readInt();
+                if (!matches || !"Code".equals(attribute)) {
+                    in.skipBytes(length);
+                    continue;
+                }
+
+                byte[] code = new byte[length];
+                in.readFully(code);
+                if (containsCall(code, target, tags, utf8, firstIndex, secondIndex)) {
+                    return Status.COMPATIBLE;
+                }
+            }
+        }
+        return methodFound ? Status.CALL_MISSING : Status.METHOD_MISSING;
+    }
+
+    private static void skipAttributes(DataInputStream in) throws IOException {
+        int attributeCount = in.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            in.readUnsignedShort();
+            in.skipBytes(in.readInt());
+        }
+    }
+
+    /**
+     * Decodes the instructions of a Code attribute and checks every invoke
+     * (except invokespecial, which the engine never patches) against the
+     * target call.
+     */
+    private static boolean containsCall(byte[] codeAttribute, PatchSpec target, byte[] tags, String[] utf8,
+            int[] firstIndex, int[] secondIndex) {
+        // max_stack (2), max_locals (2), code_length (4), then the bytecode
+        int codeLength = readInt(codeAttribute, 4);
+        int start = 8;
+        int pc = 0;
+        while (pc < codeLength) {
+            int opcode = codeAttribute[start + pc] & 0xff;
+            if (opcode == 0xb6 || opcode == 0xb8 || opcode == 0xb9) {
+                int ref = readShort(codeAttribute, start + pc + 1);
+                if (tags[ref] == 10 || tags[ref] == 11) {
+                    int nameAndType = secondIndex[ref];
+                    String owner = utf8[firstIndex[firstIndex[ref]]];
+                    String name = utf8[firstIndex[nameAndType]];
+                    String descriptor = utf8[secondIndex[nameAndType]];
+                    if (target.matchesCall(owner, name, descriptor)) {
+                        return true;
+                    }
+                }
+            }
+            pc += instructionLength(codeAttribute, start, pc, opcode);
+        }
+        return false;
+    }
+
+    private static int instructionLength(byte[] code, int start, int pc, int opcode) {
+        switch (opcode) {
+            case 0x10: // bipush
+            case 0x12: // ldc
+            case 0x15: case 0x16: case 0x17: case 0x18: case 0x19: // loads
+            case 0x36: case 0x37: case 0x38: case 0x39: case 0x3a: // stores
+            case 0xa9: // ret
+            case 0xbc: // newarray
+                return 2;
+            case 0x11: // sipush
+            case 0x13: case 0x14: // ldc_w, ldc2_w
+            case 0x84: // iinc
+            case 0xb2: case 0xb3: case 0xb4: case 0xb5: // field access
+            case 0xb6: case 0xb7: case 0xb8: // invokevirtual, invokespecial, invokestatic
+            case 0xbb: case 0xbd: case 0xc0: case 0xc1: // new, anewarray, checkcast, instanceof
+            case 0xc6: case 0xc7: // ifnull, ifnonnull
+                return 3;
+            case 0xc5: // multianewarray
+                return 4;
+            case 0xb9: case 0xba: // invokeinterface, invokedynamic
+            case 0xc8: case 0xc9: // goto_w, jsr_w
+                return 5;
+            case 0xc4: // wide
+                return (code[start + pc + 1] & 0xff) == 0x84 ? 6 : 4;
+            case 0xaa: { // tableswitch
+                int base = pc + 1 + (3 - (pc & 3));
+                int low = readInt(code, start + base + 4);
+                int high = readInt(code, start + base + 8);
+                return base - pc + 12 + (high - low + 1) * 4;
+            }
+            case 0xab: { // lookupswitch
+                int base = pc + 1 + (3 - (pc & 3));
+                int pairs = readInt(code, start + base + 4);
+                return base - pc + 8 + pairs * 8;
+            }
+            default:
+                // Branches take a 2 byte offset, everything else has no operands
+                return opcode >= 0x99 && opcode <= 0xa8 ? 3 : 1;
+        }
+    }
+
+    private static int readShort(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xff) << 8) | (bytes[offset + 1] & 0xff);
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xff) << 24) | ((bytes[offset + 1] & 0xff) << 16)
+                | ((bytes[offset + 2] & 0xff) << 8) | (bytes[offset + 3] & 0xff);
+    }
+
+    private static Properties readCache(Path cacheFile) {
+        Properties cache = new Properties();
+        if (Files.exists(cacheFile)) {
+            try (InputStream in = Files.newInputStream(cacheFile)) {
+                cache.load(in);
+            } catch (IOException | IllegalArgumentException e) {
+                cache.clear();
+            }
+        }
+        return cache;
+    }
+
+    private static void writeCache(Path cacheFile, Properties cache) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            cache.store(out, "WelcomeTale patch compatibility cache");
+            ResourceExtractor.writeAtomically(cacheFile, out.toByteArray());
+        } catch (IOException ignored) {
+            // The check simply runs again on the next startup
+        }
+    }
+
+    /**
+     * Compatibility of one patch.
+     */
+    public static final class Result {
+        private final PatchSpec target;
+        private final Status status;
+
+        Result(PatchSpec target, Status status) {
+            this.target = target;
+            this.status = status;
+        }
+
+        public String getId() {
+            return target.getId();
+        }
+
+        /**
+         * @return Short description of the patched call, e.g.
+         *         {@code PlayerUtil.broadcastMessageToPlayers in PlayerSystems$PlayerRemovedSystem.onEntityRemoved}
+         */
+        public String getTarget() {
+            String className = target.getClassName();
+            String callOwner = target.getCallOwner();
+            return callOwner.substring(callOwner.lastIndexOf('/') + 1) + "." + target.getCallName() + " in "
+                    + className.substring(className.lastIndexOf('/') + 1) + "." + target.getMethodName();
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+    }
+
+    /**
+     * Compatibility of every declared patch with one server jar.
+     */
+    public static final class Report {
+        private final String source;
+        private final List<Result> results;
+        private final boolean cached;
+
+        Report(String source, List<Result> results, boolean cached) {
+            this.source = source;
+            this.results = Collections.unmodifiableList(results);
+            this.cached = cached;
+        }
+
+        static Report unknown(String reason, List<PatchSpec> targets) {
+            List<Result> results = new ArrayList<>();
+            for (PatchSpec target : targets) {
+                results.add(new Result(target, Status.UNKNOWN));
+            }
+            return new Report(reason, results, false);
+        }
+
+        /**
+         * @return true if every patch found its call site
+         */
+        public boolean isCompatible() {
+            return !results.isEmpty() && results.stream().allMatch(patch -> patch.getStatus() == Status.COMPATIBLE);
+        }
+
+        public List<Result> getResults() {
+            return results;
+        }
+
+        /**
+         * @return Server jar that was checked, or why none could be
+         */
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * @return true if the result came from the cache
+         */
+        public boolean isCached() {
+            return cached;
+        }
+
+        /**
+         * @return One line summary, e.g. "1 of 1 patches compatible"
+         */
+        public String summary() {
+            long compatible = results.stream().filter(patch -> patch.getStatus() == Status.COMPATIBLE).count();
+            return compatible + " of " + results.size() + " patches compatible";
+        }
+    }
+}
@@ -0,0 +1,617 @@
+/**
+ * Persistent record of when each player was first and last seen.
+ * The store is a single memory-mapped file that is its own index: a header
+ * followed by fixed-size records in an open-addressing hash table keyed by
+ * UUID. Opening only maps the file, lookups and updates touch a few bytes of
+ * memory, and dirty pages are forced to disk in the background.
+ *
+ * Because the data lives in the page cache, a JVM crash loses nothing. After
+ * an unclean shutdown the record count is rebuilt on open. Growing the table
+ * also happens in the background: a complete new file is built next to the
+ * current one while joins keep going to the current table, the joins made
+ * meanwhile are copied over, and the new file atomically replaces the old one
+ * once the old mapping is released.
+ *
+ * @author github.com/rmaafs
+ * @website https://rmaafs.com
+ */
+package com.rmaafs.welcometale.utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+public final class PlayerSeenStore {
+
+    private static final int MAGIC = 0x57545053; // "WTPS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 40;
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    private static final int MAX_CAPACITY = Integer.highestOneBit((Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE);
+    private static final long FLUSH_INTERVAL_SECONDS = 5;
+    private static final long RESIZE_WAIT_MILLIS = 1_000;
+
+    // Header layout
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int COUNT_OFFSET = 12;
+    private static final int CLEAN_OFFSET = 16;
+
+    // Record layout
+    private static final int MSB_OFFSET = 0;
+    private static final int LSB_OFFSET = 8;
+    private static final int FIRST_SEEN_OFFSET = 16;
+    private static final int LAST_SEEN_OFFSET = 24;
+    private static final int JOIN_COUNT_OFFSET = 32;
+
+    private final Path file;
+    private final Path resizeFile;
+    /** Serializes forcing and releasing mappings, never held by joins */
+    private final Object mappingLock = new Object();
+    /** Set when the grown file is in use but could not replace the old one yet */
+    private volatile boolean renamePending;
+
+    // Guarded by this
+    private Mapping mapping;
+    private ByteBuffer buffer;
+    private int capacity;
+    private int count;
+    private boolean dirty;
+    private boolean closed;
+    private ScheduledFuture<?> flushTask;
+    /** Players joined since the running resize started, null if none runs */
+    private List<UUID> resizeJournal;
+    private IOException resizeFailure;
+    private long nextResizeMillis;
+
+    private PlayerSeenStore(Path file) {
+        this.file = file;
+        this.resizeFile = file.resolveSibling(file.getFileName() + ".tmp");
+    }
+
+    /**
+     * Opens the store, creating the file if it does not exist. A file that is
+     * not a valid store is moved aside and replaced by an empty one.
+     *
+     * @param file Store file
+     * @return Opened store, flushing itself periodically on the scheduler
+     */
+    public static PlayerSeenStore open(Path file) throws IOException {
+        PlayerSeenStore store = new PlayerSeenStore(file);
+        store.load();
+        store.flushTask = Scheduler.get().scheduleWithFixedDelay(store::flush, FLUSH_INTERVAL_SECONDS,
+                FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        return store;
+    }
+
+    private synchronized void load() throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+
+        if (Files.exists(file) && !isValid(file)) {
+            ResourceExtractor.moveAtomically(file, file.resolveSibling(file.getFileName() + ".corrupt"));
+        }
+
+        if (!Files.exists(file)) {
+            Mapping created = create(resizeFile, INITIAL_CAPACITY);
+            created.force();
+            created.release();
+            ResourceExtractor.moveAtomically(resizeFile, file);
+        }
+
+        mapping = Mapping.map(file);
+        buffer = mapping.buffer;
+        capacity = buffer.getInt(CAPACITY_OFFSET);
+        count = buffer.getInt(COUNT_OFFSET);
+
+        if (buffer.get(CLEAN_OFFSET) == 0) {
+            // Unclean shutdown: the count may lag behind the records
+            count = 0;
+            for (int slot = 0; slot < capacity; slot++) {
+                if (!isEmpty(buffer, slot)) {
+                    count++;
+                }
+            }
+            buffer.putInt(COUNT_OFFSET, count);
+        }
+
+        buffer.put(CLEAN_OFFSET, (byte) 0);
+        mapping.force();
+    }
+
+    private static boolean isValid(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                return false;
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                // Read until the header is complete
+            }
+            int capacity = header.getInt(CAPACITY_OFFSET);
+            return header.getInt(MAGIC_OFFSET) == MAGIC
+                    && header.getInt(VERSION_OFFSET) == FORMAT_VERSION
+                    && capacity > 0 && Integer.bitCount(capacity) == 1 && capacity <= MAX_CAPACITY
+                    && channel.size() == HEADER_SIZE + (long) capacity * RECORD_SIZE;
+        }
+    }
+
+    /**
+     * Creates a new empty store file with the given capacity and maps it.
+     */
+    private static Mapping create(Path path, int capacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Mapping created = Mapping.map(channel, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+            ByteBuffer table = created.buffer;
+            table.putInt(MAGIC_OFFSET, MAGIC);
+            table.putInt(VERSION_OFFSET, FORMAT_VERSION);
+            table.putInt(CAPACITY_OFFSET, capacity);
+            table.putInt(COUNT_OFFSET, 0);
+            table.put(CLEAN_OFFSET, (byte) 1);
+            return created;
+        }
+    }
+
+    /**
+     * Records a join and returns the player's history including this visit.
+     * Only touches memory, the change reaches disk with the next flush. Once
+     * the table is half full it is grown in the background; only if it fills
+     * up to three quarters before that finished does this wait for it.
+     *
+     * @param uuid      Player UUID
+     * @param nowMillis Join time in epoch milliseconds
+     * @return Visit with the first-seen time, the previous last-seen time and
+     *         the join count including this join
+     * @throws IOException if the store is closed or full
+     */
+    public synchronized Visit recordJoin(UUID uuid, long nowMillis) throws IOException {
+        if (uuid.getMostSignificantBits() == 0 && uuid.getLeastSignificantBits() == 0) {
+            // The nil UUID marks empty slots and cannot be stored
+            return new Visit(true, nowMillis, nowMillis, 1);
+        }
+        ensureOpen();
+
+        int slot = find(buffer, capacity, uuid);
+        if (!isEmpty(buffer, slot)) {
+            int base = offset(slot);
+            long firstSeen = buffer.getLong(base + FIRST_SEEN_OFFSET);
+            long lastSeen = buffer.getLong(base + LAST_SEEN_OFFSET);
+            int joinCount = buffer.getInt(base + JOIN_COUNT_OFFSET) + 1;
+
+            buffer.putLong(base + LAST_SEEN_OFFSET, nowMillis);
+            buffer.putInt(base + JOIN_COUNT_OFFSET, joinCount);
+            changed(uuid);
+            return new Visit(false, firstSeen, lastSeen, joinCount);
+        }
+
+        if ((count + 1) * 2L > capacity) {
+            startResize();
+        }
+        if ((count + 1) * 4L > capacity * 3L) {
+            awaitResize();
+            slot = find(buffer, capacity, uuid);
+        }
+
+        write(buffer, slot, uuid, nowMillis, nowMillis, 1);
+        buffer.putInt(COUNT_OFFSET, ++count);
+        changed(uuid);
+        return new Visit(true, nowMillis, nowMillis, 1);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Player store " + file.getFileName() + " is closed");
+        }
+    }
+
+    private void changed(UUID uuid) {
+        dirty = true;
+        if (resizeJournal != null) {
+            resizeJournal.add(uuid);
+        }
+    }
+
+    /**
+     * @return Number of players in the store
+     */
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * @return Number of slots in the table
+     */
+    synchronized int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Writes dirty pages to disk. Runs periodically on the scheduler. Joins
+     * are not blocked while the pages are written. A failed write is retried
+     * by the next flush.
+     */
+    public void flush() {
+        Mapping current;
+        synchronized (this) {
+            if (!dirty || closed) {
+                return;
+            }
+            current = mapping;
+            dirty = false;
+        }
+
+        synchronized (mappingLock) {
+            try {
+                current.force();
+            } catch (UncheckedIOException e) {
+                synchronized (this) {
+                    dirty = true;
+                }
+            }
+            if (renamePending) {
+                renameResized();
+            }
+        }
+    }
+
+    /**
+     * Flushes, marks the file as cleanly closed and releases the mapping.
+     * A running resize is given a moment to notice and clean up first. Joins
+     * recorded afterwards fail with an IOException.
+     */
+    public void close() {
+        Mapping current;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (flushTask != null) {
+                flushTask.cancel(false);
+                flushTask = null;
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RESIZE_WAIT_MILLIS);
+            long remaining;
+            while (resizeJournal != null && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            current = mapping;
+            buffer.put(CLEAN_OFFSET, (byte) 1);
+            mapping = null;
+            buffer = null;
+            notifyAll();
+        }
+
+        synchronized (mappingLock) {
+            current.force();
+            current.release();
+            if (renamePending) {
+                renameResized();
+            }
+        }
+    }
+
+    /**
+     * Starts growing the table on the scheduler, unless that is already
+     * running, the table is as large as it gets, or the last attempt failed
+     * a moment ago.
+     */
+    private void startResize() {
+        if (resizeJournal != null || renamePending || capacity >= MAX_CAPACITY
+                || System.currentTimeMillis() < nextResizeMillis) {
+            return;
+        }
+
+        resizeJournal = new ArrayList<>();
+        try {
+            Scheduler.get().execute(this::resize);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            resizeJournal = null;
+        }
+    }
+
+    /**
+     * Waits for the running resize to free up slots.
+     */
+    private void awaitResize() throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RESIZE_WAIT_MILLIS);
+        while ((count + 1) * 4L > capacity * 3L) {
+            ensureOpen();
+            if (capacity >= MAX_CAPACITY) {
+                throw new IOException("Player store is full (" + count + " players)");
+            }
+            startResize();
+            long remaining = deadline - System.nanoTime();
+            if ((resizeJournal == null && !renamePending) || remaining <= 0) {
+                throw new IOException("Player store is full and could not grow in time (" + count + " players)",
+                        resizeFailure);
+            }
+
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while the player store was growing");
+            }
+        }
+    }
+
+    /**
+     * Doubles the table into a new file on the scheduler. The records are
+     * copied and forced to disk while joins continue on the current table,
+     * then the joins made in the meantime are copied again and the tables
+     * are swapped. The old mapping is released before the new file replaces
+     * the old one, and a crash at any point leaves one of the two intact.
+     */
+    private void resize() {
+        ByteBuffer source;
+        int sourceCapacity;
+        synchronized (this) {
+            if (closed) {
+                resizeJournal = null;
+                notifyAll();
+                return;
+            }
+            source = buffer;
+            sourceCapacity = capacity;
+        }
+
+        int newCapacity = sourceCapacity * 2;
+        Mapping grown = null;
+        Mapping old;
+        try {
+            grown = create(resizeFile, newCapacity);
+            for (int slot = 0; slot < sourceCapacity; slot++) {
+                if (!isEmpty(source, slot)) {
+                    copy(source, slot, grown.buffer, newCapacity);
+                }
+            }
+            grown.force();
+
+            synchronized (this) {
+                if (closed) {
+                    grown.release();
+                    Files.deleteIfExists(resizeFile);
+                    resizeJournal = null;
+                    notifyAll();
+                    return;
+                }
+
+                for (UUID uuid : resizeJournal) {
+                    copy(buffer, find(buffer, capacity, uuid), grown.buffer, newCapacity);
+                }
+                grown.buffer.putInt(COUNT_OFFSET, count);
+                grown.buffer.put(CLEAN_OFFSET, (byte) 0);
+
+                old = mapping;
+                mapping = grown;
+                buffer = grown.buffer;
+                capacity = newCapacity;
+                resizeJournal = null;
+                resizeFailure = null;
+                dirty = true;
+                // The next resize would overwrite the file now in use
+                renamePending = true;
+                notifyAll();
+            }
+        } catch (IOException | RuntimeException e) {
+            if (grown != null) {
+                grown.release();
+            }
+            try {
+                Files.deleteIfExists(resizeFile);
+            } catch (IOException ignored) {
+                // Replaced by the next attempt
+            }
+            synchronized (this) {
+                resizeJournal = null;
+                resizeFailure = e instanceof IOException io ? io : new IOException(e);
+                nextResizeMillis = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(FLUSH_INTERVAL_SECONDS);
+                notifyAll();
+            }
+            return;
+        }
+
+        synchronized (mappingLock) {
+            old.release();
+            renameResized();
+        }
+    }
+
+    /**
+     * Moves the grown file over the old one. Called with the mapping lock
+     * held, after the old mapping was released; a failed move is retried by
+     * the next flush.
+     */
+    private void renameResized() {
+        try {
+            ResourceExtractor.moveAtomically(resizeFile, file);
+        } catch (IOException e) {
+            return;
+        }
+        renamePending = false;
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Copies a record into a table, at the slot its UUID belongs in there.
+     */
+    private static void copy(ByteBuffer from, int slot, ByteBuffer to, int toCapacity) {
+        int base = offset(slot);
+        UUID uuid = new UUID(from.getLong(base + MSB_OFFSET), from.getLong(base + LSB_OFFSET));
+        write(to, find(to, toCapacity, uuid), uuid, from.getLong(base + FIRST_SEEN_OFFSET),
+                from.getLong(base + LAST_SEEN_OFFSET), from.getInt(base + JOIN_COUNT_OFFSET));
+    }
+
+    /**
+     * Linear probing from the UUID's hash.
+     *
+     * @return Slot holding the UUID, or the empty slot where it belongs
+     */
+    private static int find(ByteBuffer table, int capacity, UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        int mask = capacity - 1;
+
+        int slot = mix(msb ^ lsb) & mask;
+        while (true) {
+            int base = offset(slot);
+            long slotMsb = table.getLong(base + MSB_OFFSET);
+            long slotLsb = table.getLong(base + LSB_OFFSET);
+            if ((slotMsb == 0 && slotLsb == 0) || (slotMsb == msb && slotLsb == lsb)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Writes a record, key last, so a half-written record is never found.
+     */
+    private static void write(ByteBuffer table, int slot, UUID uuid, long firstSeen, long lastSeen,
+            int joinCount) {
+        int base = offset(slot);
+        table.putLong(base + FIRST_SEEN_OFFSET, firstSeen);
+        table.putLong(base + LAST_SEEN_OFFSET, lastSeen);
+        table.putInt(base + JOIN_COUNT_OFFSET, joinCount);
+        table.putLong(base + LSB_OFFSET, uuid.getLeastSignificantBits());
+        table.putLong(base + MSB_OFFSET, uuid.getMostSignificantBits());
+    }
+
+    private static boolean isEmpty(ByteBuffer table, int slot) {
+        int base = offset(slot);
+        return table.getLong(base + MSB_OFFSET) == 0 && table.getLong(base + LSB_OFFSET) == 0;
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    private static int mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) hash;
+    }
+
+    /**
+     * A mapped store file. Releasing it unmaps the file right away instead of
+     * whenever the buffer is garbage collected, so it can be replaced.
+     */
+    private static final class Mapping {
+        private final Arena arena;
+        private final MemorySegment segment;
+        private final ByteBuffer buffer;
+        private boolean released;
+
+        private Mapping(Arena arena, MemorySegment segment) {
+            this.arena = arena;
+            this.segment = segment;
+            this.buffer = segment.asByteBuffer();
+        }
+
+        static Mapping map(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return map(channel, channel.size());
+            }
+        }
+
+        static Mapping map(FileChannel channel, long size) throws IOException {
+            Arena arena = Arena.ofShared();
+            try {
+                return new Mapping(arena, channel.map(FileChannel.MapMode.READ_WRITE, 0, size, arena));
+            } catch (IOException | RuntimeException e) {
+                arena.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Writes the mapping's dirty pages to disk, unless it was released.
+         */
+        void force() {
+            if (!released) {
+                segment.force();
+            }
+        }
+
+        void release() {
+            if (!released) {
+                released = true;
+                arena.close();
+            }
+        }
+    }
+
+    /**
+     * A player's history as of their latest join.
+     */
+    public static final class Visit {
+        private final boolean firstJoin;
+        private final long firstSeen;
+        private final long lastSeen;
+        private final int joinCount;
+
+        Visit(boolean firstJoin, long firstSeen, long lastSeen, int joinCount) {
+            this.firstJoin = firstJoin;
+            this.firstSeen = firstSeen;
+            this.lastSeen = lastSeen;
+            this.joinCount = joinCount;
+        }
+
+        /**
+         * @return true if the player had never joined before
+         */
+        public boolean isFirstJoin() {
+            return firstJoin;
+        }
+
+        /**
+         * @return Time of the first join in epoch milliseconds
+         */
+        public long getFirstSeen() {
+            return firstSeen;
+        }
+
+        /**
+         * @return Time of the previous join in epoch milliseconds, or of this
+         *         join on a first join
+         */
+        public long getLastSeen() {
+            return lastSeen;
+        }
+
+        /**
+         * @return Number of joins including this one
+         */
+        public int getJoinCount() {
+            return joinCount;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Bounded LRU cache of per-player rendered messages.
+ * Players who reconnect or hop between servers get the same join, welcome and
+ * leave messages over and over, so the Message built for a (template, player)
+ * pair is kept and reused until it is evicted or the configuration reloads.
+ *
+ * @author github.com/rmaafs
+ * @website https://rmaafs.com
+ */
+package com.rmaafs.welcometale.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+
+import com.hypixel.hytale.server.core.Message;
+import com.rmaafs.welcometale.placeholders.PlaceholderContext;
+import com.rmaafs.welcometale.placeholders.Placeholders;
+
+public class RenderCache {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final Entries entries = new Entries();
+
+    /**
+     * Renders a template for a player, reusing the cached Message when a
+     * template whose only placeholder is {player} was already rendered for
+     * that name. Templates without placeholders are returned as is, they are
+     * already built once, and templates using any other placeholder are
+     * rendered without caching since their values change between events.
+     *
+     * @param template Template to render
+     * @param context  Player and event the message is rendered for
+     * @return Rendered message
+     */
+    public Message render(@Nonnull MessageTemplate template, @Nonnull PlaceholderContext context) {
+        if (template.isStatic()) {
+            return template.render();
+        }
+
+        String playerName = context.getPlayerName();
+        if (playerName == null || !template.usesOnlyPlaceholder(Placeholders.PLAYER)) {
+            return template.render(context);
+        }
+
+        Key key = new Key(template, playerName);
+        synchronized (entries) {
+            if (entries.maxSize > 0) {
+                Message cached = entries.get(key);
+                if (cached != null) {
+                    hits.increment();
+                    return cached;
+                }
+            }
+        }
+
+        misses.increment();
+        Message rendered = template.render(context);
+        synchronized (entries) {
+            if (entries.maxSize > 0) {
+                entries.put(key, rendered);
+            }
+        }
+        return rendered;
+    }
+
+    /**
+     * Drops every cached message and applies a new maximum size.
+     * Called whenever a configuration snapshot is published, so messages
+     * rendered from old templates are never served.
+     *
+     * @param maxSize Maximum number of cached messages, 0 disables the cache
+     */
+    public void reset(int maxSize) {
+        synchronized (entries) {
+            entries.clear();
+            entries.maxSize = Math.max(0, maxSize);
+        }
+    }
+
+    /**
+     * @return Number of cached messages
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Access-ordered map that drops its least recently used entry once it
+     * grows past the maximum size.
+     */
+    private final class Entries extends LinkedHashMap<Key, Message> {
+        private static final long serialVersionUID = 1L;
+
+        private int maxSize;
+
+        Entries() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Message> eldest) {
+            if (size() > maxSize) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Template identity plus player name. Every reload compiles new template
+     * instances, so keys never match across configuration versions.
+     */
+    private static final class Key {
+        private final MessageTemplate template;
+        private final String playerName;
+
+        Key(MessageTemplate template, String playerName) {
+            this.template = template;
+            this.playerName = playerName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return template == other.template && playerName.equals(other.playerName);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(template) + playerName.hashCode();
+        }
+    }
+}
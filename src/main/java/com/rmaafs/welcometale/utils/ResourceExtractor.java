@@ -0,0 +1,208 @@
+/**
+ * Extracts bundled resources to disk without redundant writes.
+ * A small marker next to each extracted file records the CRC-32 and size of
+ * the resource it came from; when the JAR entry still has the same ones, the
+ * resource is not even read. Every write goes through a temp file and an
+ * atomic move so a crash never leaves a truncated file behind.
+ * 
+ * @author github.com/rmaafs
+ * @website https://rmaafs.com
+ */
+package com.rmaafs.welcometale.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.jar.JarEntry;
+import java.util.zip.CRC32;
+
+public class ResourceExtractor {
+
+    private static final String MARKER_SUFFIX = ".crc32";
+    private static final String LEGACY_MARKER_SUFFIX = ".sha256";
+
+    /**
+     * Reads a bundled resource fully and closes its stream.
+     * 
+     * @param owner    Class whose class loader holds the resource
+     * @param resource Absolute resource path (e.g. "/config.example.json")
+     * @return Resource content, or null if the resource does not exist
+     */
+    public static byte[] readResource(Class<?> owner, String resource) throws IOException {
+        try (InputStream in = owner.getResourceAsStream(resource)) {
+            return in == null ? null : in.readAllBytes();
+        }
+    }
+
+    /**
+     * Extracts a bundled resource to target unless the marker shows the file
+     * on disk already holds this version of it. For resources inside a JAR,
+     * the CRC-32 and size stored in the JAR entry are compared with the
+     * marker, so an up-to-date file costs no read of the resource at all.
+     * 
+     * @param owner    Class whose class loader holds the resource
+     * @param resource Absolute resource path (e.g. "/config.example.json")
+     * @return true if the file was written, false if it was already up to date
+     *         or the resource does not exist
+     */
+    public static boolean extract(Class<?> owner, String resource, Path target) throws IOException {
+        URL url = owner.getResource(resource);
+        if (url == null) {
+            return false;
+        }
+
+        URLConnection connection = url.openConnection();
+        Path marker = markerFor(target);
+        byte[] content;
+        String fingerprint;
+
+        JarEntry entry = connection instanceof JarURLConnection jar ? jar.getJarEntry() : null;
+        if (entry != null && entry.getCrc() != -1 && entry.getSize() != -1) {
+            fingerprint = fingerprint(entry.getCrc(), entry.getSize());
+            if (isUpToDate(target, entry.getSize(), marker, fingerprint)) {
+                return false;
+            }
+            content = readAll(connection);
+        } else {
+            content = readAll(connection);
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            fingerprint = fingerprint(crc.getValue(), content.length);
+            if (isUpToDate(target, content.length, marker, fingerprint)) {
+                return false;
+            }
+        }
+
+        writeAtomically(target, content);
+        writeAtomically(marker, fingerprint.getBytes(StandardCharsets.US_ASCII));
+        Files.deleteIfExists(target.resolveSibling("." + target.getFileName() + LEGACY_MARKER_SUFFIX));
+        return true;
+    }
+
+    private static boolean isUpToDate(Path target, long size, Path marker, String fingerprint) throws IOException {
+        return Files.exists(target) && Files.size(target) == size && Files.exists(marker)
+                && fingerprint.equals(Files.readString(marker, StandardCharsets.US_ASCII).trim());
+    }
+
+    private static String fingerprint(long crc, long size) {
+        return String.format("%08x %d", crc, size);
+    }
+
+    private static byte[] readAll(URLConnection connection) throws IOException {
+        try (InputStream in = connection.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Writes content to target only if the file does not exist yet.
+     * 
+     * @return true if the file was created
+     */
+    public static boolean extractIfMissing(byte[] content, Path target) throws IOException {
+        if (Files.exists(target)) {
+            return false;
+        }
+
+        writeAtomically(target, content);
+        return true;
+    }
+
+    /**
+     * Writes content to a temp file in the target's folder and moves it into
+     * place atomically, replacing any existing file.
+     */
+    public static void writeAtomically(Path target, byte[] content) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        Path temp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, content);
+            moveAtomically(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Like {@link #writeAtomically}, but the temp file is synced to disk and
+     * its SHA-256 checked before it is moved into place, so the target only
+     * ever holds the previous file or a complete, verified copy.
+     * 
+     * @param checksum Expected lowercase hex SHA-256 of the content
+     * @throws IOException if the file could not be written or does not match
+     *                     the checksum; the target is then left untouched
+     */
+    public static void writeVerified(Path target, byte[] content, String checksum) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        Path temp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+
+            String written = sha256(Files.readAllBytes(temp));
+            if (!written.equals(checksum)) {
+                throw new IOException("Checksum mismatch for " + target.getFileName() + ": expected " + checksum
+                        + ", wrote " + written);
+            }
+            moveAtomically(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Moves a file into place atomically, falling back to a plain replace on
+     * file systems without atomic move support.
+     */
+    public static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * @return Lowercase hex SHA-256 of the content
+     */
+    public static String sha256(byte[] content) {
+        return HexFormat.of().formatHex(newSha256().digest(content));
+    }
+
+    /**
+     * @return New SHA-256 digest instance
+     */
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Path markerFor(Path target) {
+        return target.resolveSibling("." + target.getFileName() + MARKER_SUFFIX);
+    }
+}
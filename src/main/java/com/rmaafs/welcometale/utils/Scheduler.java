@@ -0,0 +1,40 @@
+/**
+ * Shared background executor for WelcomeTale's own work (config watching,
+ * deferred broadcasts, periodic tasks), so none of it runs on server threads.
+ * 
+ * @author github.com/rmaafs
+ * @website https://rmaafs.com
+ */
+package com.rmaafs.welcometale.utils;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class Scheduler {
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    private static final ScheduledThreadPoolExecutor EXECUTOR = new ScheduledThreadPoolExecutor(2, runnable -> {
+        Thread thread = new Thread(runnable, "WelcomeTale-Scheduler-" + THREAD_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        EXECUTOR.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * @return Shared scheduled executor, backed by daemon threads
+     */
+    public static ScheduledExecutorService get() {
+        return EXECUTOR;
+    }
+
+    /**
+     * Stops all pending and periodic tasks. Called when the plugin shuts down.
+     */
+    public static void shutdown() {
+        EXECUTOR.shutdownNow();
+    }
+}
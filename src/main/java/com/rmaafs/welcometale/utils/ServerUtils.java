@@ -5,21 +5,196 @@
 
 package com.rmaafs.welcometale.utils;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import com.hypixel.hytale.server.core.Message;
 import com.hypixel.hytale.server.core.permissions.PermissionsModule;
 import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.Universe;
 import com.hypixel.hytale.server.core.universe.world.PlayerUtil;
+import com.hypixel.hytale.server.core.universe.world.World;
 
 public class ServerUtils {
+
+    private static final BroadcastPacer PACER = new BroadcastPacer();
+
+    /**
+     * Sends a message to every player in every world, with NORMAL priority.
+     *
+     * @see #broadcast(Message, BroadcastPacer.Priority)
+     */
     public static void broadcast(@Nonnull Message message) {
-        Universe.get().getWorlds().forEach((name, world) -> {
-            PlayerUtil.broadcastMessageToPlayers(null, message, world.getEntityStore().getStore());
-        });
+        broadcast(message, BroadcastPacer.Priority.NORMAL);
+    }
+
+    /**
+     * Sends a message to every player in every world.
+     * By default worlds are served one after the other on the calling thread.
+     * With BroadcastOnWorldThreads enabled, each world's send is handed to
+     * that world's own thread, so worlds are served in parallel and no other
+     * thread touches their store.
+     * With BroadcastRecipientsPerTick set, broadcasts to more players than
+     * that, and any broadcast made while others are still queued, are paced
+     * over several ticks instead.
+     * With EncodeBroadcastsOnce enabled, the message is converted to its chat
+     * packet once and that packet is written to every recipient (see
+     * {@link EncodedMessage}). Otherwise, or on servers where that is not
+     * possible, the same Message instance is handed to every world. Templates
+     * reuse pre-built messages, so it must not be modified after it is
+     * broadcast.
+     *
+     * @param priority Lane used when the broadcast is paced
+     */
+    public static void broadcast(@Nonnull Message message, @Nonnull BroadcastPacer.Priority priority) {
+        FlightEvents.Broadcast event = new FlightEvents.Broadcast();
+        event.begin();
+        long start = System.nanoTime();
+        ConfigSnapshot config = FileConfiguration.getSnapshot();
+        boolean onWorldThreads = config.isBroadcastOnWorldThreads();
+        int budget = config.getBroadcastRecipientsPerTick();
+
+        Map<String, World> worlds = Universe.get().getWorlds();
+        boolean paced = budget > 0 && (Universe.get().getPlayerCount() > budget || !PACER.isIdle());
+        event.worldCount = worlds.size();
+        event.onWorldThreads = onWorldThreads;
+        event.paced = paced;
+
+        EncodedMessage encoded = encode(config, message);
+        if (paced) {
+            PACER.submit(message, encoded, new ArrayList<>(Universe.get().getPlayers()), priority,
+                    new Delivered(event, 1));
+        } else {
+            Delivered delivered = new Delivered(event, worlds.size());
+            worlds.forEach((name, world) -> {
+                if (onWorldThreads) {
+                    broadcastOnWorldThread(world, message, encoded, delivered);
+                } else {
+                    delivered.accept(deliver(world, message, encoded));
+                }
+            });
+        }
+
+        Metrics.BROADCAST.recordSince(start);
+    }
+
+    /**
+     * Sends a message to the players of one world, on that world's thread.
+     * Used for world-local announcements, which are never paced.
+     */
+    public static void broadcastToWorld(@Nonnull World world, @Nonnull Message message) {
+        broadcastOnWorldThread(world, message, encode(FileConfiguration.getSnapshot(), message), null);
+    }
+
+    /**
+     * Sends a message to one player. While paced broadcasts are queued, the
+     * message is queued too, so a HIGH priority notice is delivered ahead of
+     * them and a NORMAL one does not overtake them.
+     */
+    public static void sendMessage(@Nonnull PlayerRef player, @Nonnull Message message,
+            @Nonnull BroadcastPacer.Priority priority) {
+        ConfigSnapshot config = FileConfiguration.getSnapshot();
+        if (config.getBroadcastRecipientsPerTick() > 0 && !PACER.isIdle()) {
+            PACER.submit(message, encode(config, message), List.of(player), priority, null);
+        } else {
+            player.sendMessage(message);
+        }
+    }
+
+    /**
+     * @return Pacer holding broadcasts that are being spread over ticks
+     */
+    public static BroadcastPacer getBroadcastPacer() {
+        return PACER;
+    }
+
+    /**
+     * @return The message's chat packet if EncodeBroadcastsOnce is enabled
+     *         and the server supports it, null to send the Message itself
+     */
+    @Nullable
+    private static EncodedMessage encode(ConfigSnapshot config, Message message) {
+        return config.isEncodeBroadcastsOnce() ? EncodedMessage.encode(message) : null;
+    }
+
+    private static void broadcastOnWorldThread(World world, Message message, @Nullable EncodedMessage encoded,
+            @Nullable IntConsumer onDelivered) {
+        long enqueuedAt = System.nanoTime();
+        try {
+            world.execute(() -> {
+                int recipients = deliver(world, message, encoded);
+                Metrics.DELIVERY.recordSince(enqueuedAt);
+                if (onDelivered != null) {
+                    onDelivered.accept(recipients);
+                }
+            });
+        } catch (RejectedExecutionException ignored) {
+            // World is shutting down, its players are being moved or disconnected
+            if (onDelivered != null) {
+                onDelivered.accept(0);
+            }
+        }
+    }
+
+    /**
+     * Sends a message to the players of one world on the calling thread,
+     * writing the encoded packet when there is one.
+     *
+     * @return Number of players the message was sent to
+     */
+    private static int deliver(World world, Message message, @Nullable EncodedMessage encoded) {
+        if (encoded != null) {
+            return encoded.sendTo(world);
+        }
+        int recipients = world.getPlayerRefs().size();
+        PlayerUtil.broadcastMessageToPlayers(null, message, world.getEntityStore().getStore());
+        return recipients;
+    }
+
+    /**
+     * Adds up the players a broadcast reached over the worlds, or paced ticks,
+     * it was delivered in. Once the last part is in, the total is recorded in
+     * the recipients histogram and the broadcast's flight event.
+     */
+    private static final class Delivered implements IntConsumer {
+        private final FlightEvents.Broadcast event;
+        private final AtomicInteger pendingParts;
+        private final AtomicInteger recipients = new AtomicInteger();
+
+        Delivered(FlightEvents.Broadcast event, int parts) {
+            this.event = event;
+            this.pendingParts = new AtomicInteger(parts);
+            if (parts == 0) {
+                complete();
+            }
+        }
+
+        @Override
+        public void accept(int delivered) {
+            recipients.addAndGet(delivered);
+            if (pendingParts.decrementAndGet() == 0) {
+                complete();
+            }
+        }
+
+        private void complete() {
+            int total = recipients.get();
+            Metrics.RECIPIENTS.record(total);
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.recipientCount = total;
+                event.commit();
+            }
+        }
     }
 
     public static boolean isOp(@Nonnull UUID playerUuid) {
@@ -1,48 +1,149 @@
 package com.rmaafs.welcometale.utils;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * Checks GitHub for newer releases without blocking the caller.
+ * The last result is cached on disk together with the response ETag, so a
+ * restart within {@link #CACHE_TTL} makes no request at all and a later one
+ * is usually answered with a bodyless 304.
+ */
 public class UpdateChecker {
 
-    public final String REPO_URL = "https://github.com/rmaafs/WelcomeTale";
-    private final String API_URL = REPO_URL.replace("github.com", "api.github.com/repos") + "/releases/latest";
+    public static final String REPO_URL = "https://github.com/rmaafs/WelcomeTale";
+    private static final String API_URL = REPO_URL.replace("github.com", "api.github.com/repos") + "/releases/latest";
+    private static final Duration CACHE_TTL = Duration.ofHours(6);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    private static final Pattern TAG_PATTERN = Pattern.compile("\"tag_name\"\\s*:\\s*\"v?([^\"]+)\"");
+    private static final Pattern VERSION_PATTERN = Pattern.compile("(\\d+)\\.(\\d+)\\.(\\d+)");
+
+    private static final String KEY_VERSION = "latestVersion";
+    private static final String KEY_ETAG = "etag";
+    private static final String KEY_CHECKED_AT = "checkedAt";
 
     private final String currentVersion;
-    private String latestVersion;
-    private boolean usingLatest;
+    private final Path cacheFile;
+    private final URI apiUri;
+    private volatile String latestVersion;
+    private volatile boolean usingLatest;
+
+    /**
+     * @param currentVersion Version of the running plugin
+     * @param cacheFile      File used to persist the last check result
+     */
+    public UpdateChecker(String currentVersion, Path cacheFile) {
+        this(currentVersion, cacheFile, URI.create(API_URL));
+    }
 
-    public UpdateChecker(String currentVersion) {
+    /**
+     * Creates a checker against a custom releases endpoint, e.g. a local stub
+     * server when testing offline.
+     */
+    UpdateChecker(String currentVersion, Path cacheFile, URI apiUri) {
         this.currentVersion = currentVersion;
+        this.cacheFile = cacheFile;
+        this.apiUri = apiUri;
         this.latestVersion = currentVersion;
         this.usingLatest = true;
-        fetchLatestVersion();
     }
 
-    private void fetchLatestVersion() {
+    /**
+     * Starts the update check in the background. Until it completes the
+     * checker reports the current version as the latest one.
+     *
+     * @return Future completed with this checker once the result is known
+     */
+    public CompletableFuture<UpdateChecker> check() {
+        return CompletableFuture.supplyAsync(this::readCache)
+                .thenCompose(cache -> {
+                    long checkedAt = parseLong(cache.getProperty(KEY_CHECKED_AT));
+                    if (cache.getProperty(KEY_VERSION) != null
+                            && System.currentTimeMillis() - checkedAt < CACHE_TTL.toMillis()) {
+                        apply(cache.getProperty(KEY_VERSION));
+                        return CompletableFuture.completedFuture(this);
+                    }
+                    return fetchLatestVersion(cache);
+                })
+                .exceptionally(e -> this);
+    }
+
+    private CompletableFuture<UpdateChecker> fetchLatestVersion(Properties cache) {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(apiUri)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Accept", "application/vnd.github+json")
+                .GET();
+
+        String etag = cache.getProperty(KEY_ETAG);
+        if (etag != null && cache.getProperty(KEY_VERSION) != null) {
+            request.header("If-None-Match", etag);
+        }
+
+        return Client.INSTANCE.sendAsync(request.build(), HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    if (response.statusCode() == 304) {
+                        apply(cache.getProperty(KEY_VERSION));
+                        cache.setProperty(KEY_CHECKED_AT, Long.toString(System.currentTimeMillis()));
+                        writeCache(cache);
+                    } else if (response.statusCode() == 200) {
+                        Matcher matcher = TAG_PATTERN.matcher(response.body());
+                        if (matcher.find()) {
+                            apply(matcher.group(1));
+                            cache.setProperty(KEY_VERSION, matcher.group(1));
+                            cache.setProperty(KEY_CHECKED_AT, Long.toString(System.currentTimeMillis()));
+                            response.headers().firstValue("ETag").ifPresentOrElse(
+                                    value -> cache.setProperty(KEY_ETAG, value),
+                                    () -> cache.remove(KEY_ETAG));
+                            writeCache(cache);
+                        }
+                    } else if (cache.getProperty(KEY_VERSION) != null) {
+                        // Rate limited or unavailable: fall back to the last known release
+                        apply(cache.getProperty(KEY_VERSION));
+                    }
+                    return this;
+                });
+    }
+
+    private void apply(String version) {
+        this.latestVersion = version;
+        this.usingLatest = !isNewer(currentVersion, version);
+    }
+
+    private Properties readCache() {
+        Properties cache = new Properties();
+        if (Files.exists(cacheFile)) {
+            try (InputStream in = Files.newInputStream(cacheFile)) {
+                cache.load(in);
+            } catch (IOException | IllegalArgumentException ignored) {
+                cache.clear();
+            }
+        }
+        return cache;
+    }
+
+    private void writeCache(Properties cache) {
         try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(API_URL))
-                    .timeout(Duration.ofSeconds(10))
-                    .GET()
-                    .build();
-
-            HttpResponse<String> response = HttpClient.newHttpClient().send(request,
-                    HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() == 200) {
-                Matcher matcher = Pattern.compile("\"tag_name\"\\s*:\\s*\"v?([^\"]+)\"").matcher(response.body());
-                if (matcher.find()) {
-                    this.latestVersion = matcher.group(1);
-                    this.usingLatest = !isNewer(currentVersion, latestVersion);
-                }
+            Files.createDirectories(cacheFile.toAbsolutePath().getParent());
+            Path temp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                cache.store(out, "WelcomeTale update check cache");
             }
-        } catch (Exception ignored) {
+            Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ignored) {
         }
     }
 
@@ -58,6 +159,14 @@ public class UpdateChecker {
         return usingLatest;
     }
 
+    private static long parseLong(String value) {
+        try {
+            return value == null ? 0L : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
     private boolean isNewer(String current, String latest) {
         try {
             int[] c = parseVersion(current);
@@ -72,10 +181,20 @@ public class UpdateChecker {
     }
 
     private int[] parseVersion(String version) {
-        Matcher m = Pattern.compile("(\\d+)\\.(\\d+)\\.(\\d+)").matcher(version);
+        Matcher m = VERSION_PATTERN.matcher(version);
         if (m.find())
             return new int[] { Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)),
                     Integer.parseInt(m.group(3)) };
         throw new IllegalArgumentException("Invalid version: " + version);
     }
+
+    /**
+     * Shared HTTP client, created on first use.
+     */
+    private static final class Client {
+        private static final HttpClient INSTANCE = HttpClient.newBuilder()
+                .connectTimeout(REQUEST_TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
 }
@@ -0,0 +1,25 @@
+# WelcomeTale bytecode patches, applied by the early plugin when the server loads.
+#
+# One patch per line, columns separated by whitespace:
+#   id  action  class  method  methodDescriptor  callOwner  callName  callDescriptor  [rerouteOwner  rerouteName]
+#
+# action  drop     removes the call, a non-void call yields 0/false/null
+#         reroute  calls the static method rerouteOwner.rerouteName with the same
+#                  arguments instead (receiver first for instance calls); it
+#                  declares reference parameters and return types as Object.
+#                  The hook is resolved from the transformer jar and reached
+#                  through a system property, so the server's class loader
+#                  never has to load it
+# Class names are internal names (slashes, $ for nested classes) and * matches
+# any descriptor.
+#
+# Server owners can add or replace patches (by id) in
+# earlyplugins/welcometale-patches.spec without a new transformer jar.
+
+# Default "player left world" broadcast, handed to LeaveHook so WelcomeTale can
+# announce world changes with LeaveWorldMessage
+leave-message  reroute  com/hypixel/hytale/server/core/modules/entity/player/PlayerSystems$PlayerRemovedSystem  onEntityRemoved  *  com/hypixel/hytale/server/core/universe/world/PlayerUtil  broadcastMessageToPlayers  *  com/rmaafs/welcometale/transformers/LeaveHook  onLeaveBroadcast
+
+# To only remove the broadcast, copy this line without the leading "#" into
+# earlyplugins/welcometale-patches.spec, where it replaces the patch above.
+# leave-message  drop  com/hypixel/hytale/server/core/modules/entity/player/PlayerSystems$PlayerRemovedSystem  onEntityRemoved  *  com/hypixel/hytale/server/core/universe/world/PlayerUtil  broadcastMessageToPlayers  *
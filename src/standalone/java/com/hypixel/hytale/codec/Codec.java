@@ -0,0 +1,16 @@
+package com.hypixel.hytale.codec;
+
+/**
+ * Stand-in for the server's codec. Values are decoded from the plain text
+ * overrides given to {@link com.hypixel.hytale.server.core.util.Config}.
+ */
+public interface Codec<T> {
+
+    Codec<String> STRING = text -> text;
+    Codec<String[]> STRING_ARRAY = text -> text.split("\n", -1);
+    Codec<Boolean> BOOLEAN = Boolean::valueOf;
+    Codec<Integer> INTEGER = Integer::valueOf;
+    Codec<Long> LONG = Long::valueOf;
+
+    T decode(String text);
+}
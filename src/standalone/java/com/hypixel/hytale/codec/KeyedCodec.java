@@ -0,0 +1,23 @@
+package com.hypixel.hytale.codec;
+
+/**
+ * Stand-in for the server's keyed codec: a configuration key and its codec.
+ */
+public class KeyedCodec<T> {
+
+    private final String key;
+    private final Codec<T> codec;
+
+    public KeyedCodec(String key, Codec<T> codec) {
+        this.key = key;
+        this.codec = codec;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Codec<T> getChildCodec() {
+        return codec;
+    }
+}
@@ -0,0 +1,91 @@
+package com.hypixel.hytale.codec.builder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import com.hypixel.hytale.codec.KeyedCodec;
+
+/**
+ * Stand-in for the server's object codec. Decodes an object from its
+ * defaults and a map of plain text overrides, one per configuration key.
+ */
+public class BuilderCodec<T> {
+
+    private final Supplier<T> constructor;
+    private final Map<String, Field<T, ?>> fields;
+
+    private BuilderCodec(Supplier<T> constructor, Map<String, Field<T, ?>> fields) {
+        this.constructor = constructor;
+        this.fields = fields;
+    }
+
+    public static <T> Builder<T> builder(Class<T> type, Supplier<T> constructor) {
+        return new Builder<>(constructor);
+    }
+
+    /**
+     * @param overrides Values by configuration key, e.g. {@code CoalesceJoinLeave=true}
+     * @return New object with the overrides applied to its defaults
+     * @throws IllegalArgumentException if a key is unknown
+     */
+    public T decode(Map<String, String> overrides) {
+        T value = constructor.get();
+        overrides.forEach((key, text) -> {
+            Field<T, ?> field = fields.get(key);
+            if (field == null) {
+                throw new IllegalArgumentException("Unknown configuration key: " + key);
+            }
+            field.set(value, text);
+        });
+        return value;
+    }
+
+    @FunctionalInterface
+    public interface Setter<T, V> {
+        void set(T target, V value, Object extraInfo);
+    }
+
+    @FunctionalInterface
+    public interface Getter<T, V> {
+        V get(T target, Object extraInfo);
+    }
+
+    public static class Builder<T> {
+        private final Supplier<T> constructor;
+        private final Map<String, Field<T, ?>> fields = new LinkedHashMap<>();
+
+        Builder(Supplier<T> constructor) {
+            this.constructor = constructor;
+        }
+
+        public <V> Field<T, V> append(KeyedCodec<V> codec, Setter<T, V> setter, Getter<T, V> getter) {
+            return new Field<>(this, codec, setter);
+        }
+
+        public BuilderCodec<T> build() {
+            return new BuilderCodec<>(constructor, new LinkedHashMap<>(fields));
+        }
+    }
+
+    public static class Field<T, V> {
+        private final Builder<T> builder;
+        private final KeyedCodec<V> codec;
+        private final Setter<T, V> setter;
+
+        Field(Builder<T> builder, KeyedCodec<V> codec, Setter<T, V> setter) {
+            this.builder = builder;
+            this.codec = codec;
+            this.setter = setter;
+        }
+
+        public Builder<T> add() {
+            builder.fields.put(codec.getKey(), this);
+            return builder;
+        }
+
+        void set(T target, String text) {
+            setter.set(target, codec.getChildCodec().decode(text), null);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.hypixel.hytale.codec.function;
+
+import java.util.function.Function;
+
+import com.hypixel.hytale.codec.Codec;
+
+/**
+ * Stand-in for the server's codec mapping another codec's values.
+ */
+public class FunctionCodec<A, B> implements Codec<B> {
+
+    private final Codec<A> codec;
+    private final Function<A, B> decode;
+
+    public FunctionCodec(Codec<A> codec, Function<A, B> decode, Function<B, A> encode) {
+        this.codec = codec;
+        this.decode = decode;
+    }
+
+    @Override
+    public B decode(String text) {
+        return decode.apply(codec.decode(text));
+    }
+}
@@ -0,0 +1,17 @@
+package com.hypixel.hytale.component;
+
+/**
+ * Stand-in for the server's component store, holding only its owner.
+ */
+public class Store<T> {
+
+    private final T externalData;
+
+    public Store(T externalData) {
+        this.externalData = externalData;
+    }
+
+    public T getExternalData() {
+        return externalData;
+    }
+}
@@ -0,0 +1,30 @@
+package com.hypixel.hytale.event;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Stand-in for the server's event registry. Events are dispatched by the
+ * caller of {@link #dispatch(Object)}, on its own thread.
+ */
+public class EventRegistry {
+
+    private final Map<Class<?>, List<Consumer<Object>>> handlers = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public <E> void registerGlobal(Class<E> type, Consumer<E> handler) {
+        handlers.computeIfAbsent(type, key -> new CopyOnWriteArrayList<>()).add((Consumer<Object>) handler);
+    }
+
+    /**
+     * Calls every handler registered for the event's class.
+     */
+    public void dispatch(Object event) {
+        for (Consumer<Object> handler : handlers.getOrDefault(event.getClass(), List.of())) {
+            handler.accept(event);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.hypixel.hytale.logger;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stand-in for the server's logger, backed by java.util.logging.
+ */
+public class HytaleLogger {
+
+    private final Logger logger;
+
+    public HytaleLogger(String name) {
+        this.logger = Logger.getLogger(name);
+    }
+
+    public Api atInfo() {
+        return new Api(logger, Level.INFO);
+    }
+
+    public Api atWarning() {
+        return new Api(logger, Level.WARNING);
+    }
+
+    public Api atSevere() {
+        return new Api(logger, Level.SEVERE);
+    }
+
+    public Api atFine() {
+        return new Api(logger, Level.FINE);
+    }
+
+    public static class Api {
+        private final Logger logger;
+        private final Level level;
+        private Throwable cause;
+
+        Api(Logger logger, Level level) {
+            this.logger = logger;
+            this.level = level;
+        }
+
+        public Api withCause(Throwable cause) {
+            this.cause = cause;
+            return this;
+        }
+
+        public void log(String message) {
+            logger.log(level, message, cause);
+        }
+
+        public void log(String message, Throwable thrown) {
+            logger.log(level, message, thrown);
+        }
+    }
+}
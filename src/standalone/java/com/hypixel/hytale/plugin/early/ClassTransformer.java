@@ -0,0 +1,13 @@
+package com.hypixel.hytale.plugin.early;
+
+/**
+ * Stand-in for the server's early plugin class transformer.
+ */
+public interface ClassTransformer {
+
+    default int priority() {
+        return 0;
+    }
+
+    byte[] transform(String name, String transformedName, byte[] classBytes);
+}
@@ -0,0 +1,15 @@
+package com.hypixel.hytale.protocol;
+
+/**
+ * Stand-in for the protocol form of a chat message, which a Message is
+ * converted to before it is sent.
+ */
+public class FormattedMessage {
+
+    public String rawText;
+    public String color;
+    public boolean bold;
+    public boolean italic;
+    public String link;
+    public FormattedMessage[] children;
+}
@@ -0,0 +1,7 @@
+package com.hypixel.hytale.protocol;
+
+/**
+ * Stand-in for a packet sent to a client.
+ */
+public interface Packet {
+}
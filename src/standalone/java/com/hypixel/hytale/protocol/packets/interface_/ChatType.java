@@ -0,0 +1,8 @@
+package com.hypixel.hytale.protocol.packets.interface_;
+
+/**
+ * Stand-in for the kind of a chat packet.
+ */
+public enum ChatType {
+    Chat
+}
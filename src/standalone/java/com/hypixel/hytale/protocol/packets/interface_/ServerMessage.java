@@ -0,0 +1,18 @@
+package com.hypixel.hytale.protocol.packets.interface_;
+
+import com.hypixel.hytale.protocol.FormattedMessage;
+import com.hypixel.hytale.protocol.Packet;
+
+/**
+ * Stand-in for the chat message packet.
+ */
+public class ServerMessage implements Packet {
+
+    public ChatType type;
+    public FormattedMessage message;
+
+    public ServerMessage(ChatType type, FormattedMessage message) {
+        this.type = type;
+        this.message = message;
+    }
+}
@@ -0,0 +1,19 @@
+package com.hypixel.hytale.server.core;
+
+/**
+ * Stand-in for the server singleton, exposing only its configuration.
+ */
+public class HytaleServer {
+
+    private static final HytaleServer INSTANCE = new HytaleServer();
+
+    private final HytaleServerConfig config = new HytaleServerConfig();
+
+    public static HytaleServer get() {
+        return INSTANCE;
+    }
+
+    public HytaleServerConfig getConfig() {
+        return config;
+    }
+}
@@ -0,0 +1,17 @@
+package com.hypixel.hytale.server.core;
+
+/**
+ * Stand-in for the server configuration.
+ */
+public class HytaleServerConfig {
+
+    private volatile int maxPlayers = 100;
+
+    public int getMaxPlayers() {
+        return maxPlayers;
+    }
+
+    public void setMaxPlayers(int maxPlayers) {
+        this.maxPlayers = maxPlayers;
+    }
+}
@@ -0,0 +1,108 @@
+package com.hypixel.hytale.server.core;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+
+import com.hypixel.hytale.protocol.FormattedMessage;
+
+/**
+ * Stand-in for the server's chat message: a styled text node or a list of
+ * child messages.
+ */
+public class Message {
+
+    private final String text;
+    private final List<Message> children;
+    private Color color;
+    private boolean bold;
+    private boolean italic;
+    private String link;
+
+    private Message(String text, List<Message> children) {
+        this.text = text;
+        this.children = children;
+    }
+
+    public static Message raw(String text) {
+        return new Message(text, List.of());
+    }
+
+    public static Message join(Message... messages) {
+        return new Message(null, Arrays.asList(messages));
+    }
+
+    public Message color(Color color) {
+        this.color = color;
+        return this;
+    }
+
+    public Message bold(boolean bold) {
+        this.bold = bold;
+        return this;
+    }
+
+    public Message italic(boolean italic) {
+        this.italic = italic;
+        return this;
+    }
+
+    public Message link(String link) {
+        this.link = link;
+        return this;
+    }
+
+    public String getRawText() {
+        return text;
+    }
+
+    public List<Message> getChildren() {
+        return children;
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    public boolean isBold() {
+        return bold;
+    }
+
+    public boolean isItalic() {
+        return italic;
+    }
+
+    public String getLink() {
+        return link;
+    }
+
+    /**
+     * @return New protocol form of the message, as sent to clients
+     */
+    public FormattedMessage getFormattedMessage() {
+        FormattedMessage formatted = new FormattedMessage();
+        formatted.rawText = text;
+        formatted.color = color == null ? null : "#" + HexFormat.of().toHexDigits(color.getRGB()).substring(2);
+        formatted.bold = bold;
+        formatted.italic = italic;
+        formatted.link = link;
+        if (!children.isEmpty()) {
+            formatted.children = new FormattedMessage[children.size()];
+            for (int i = 0; i < children.size(); i++) {
+                formatted.children[i] = children.get(i).getFormattedMessage();
+            }
+        }
+        return formatted;
+    }
+
+    @Override
+    public String toString() {
+        if (text == null) {
+            StringBuilder joined = new StringBuilder();
+            children.forEach(joined::append);
+            return joined.toString();
+        }
+        return text;
+    }
+}
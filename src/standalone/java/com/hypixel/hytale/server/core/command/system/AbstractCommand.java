@@ -0,0 +1,39 @@
+package com.hypixel.hytale.server.core.command.system;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stand-in for the server's command base class.
+ */
+public abstract class AbstractCommand {
+
+    private final String name;
+    private final String description;
+    private final List<AbstractCommand> subCommands = new ArrayList<>();
+
+    protected AbstractCommand(String name, String description, boolean requiresConfirmation) {
+        this.name = name;
+        this.description = description;
+    }
+
+    protected AbstractCommand(String name, String description) {
+        this(name, description, false);
+    }
+
+    public void addSubCommand(AbstractCommand command) {
+        subCommands.add(command);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public List<AbstractCommand> getSubCommands() {
+        return subCommands;
+    }
+}
@@ -0,0 +1,17 @@
+package com.hypixel.hytale.server.core.command.system;
+
+/**
+ * Stand-in for the context a command runs in.
+ */
+public class CommandContext {
+
+    private final CommandSender sender;
+
+    public CommandContext(CommandSender sender) {
+        this.sender = sender;
+    }
+
+    public CommandSender sender() {
+        return sender;
+    }
+}
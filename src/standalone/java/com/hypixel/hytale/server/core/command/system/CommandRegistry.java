@@ -0,0 +1,20 @@
+package com.hypixel.hytale.server.core.command.system;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Stand-in for the server's command registry.
+ */
+public class CommandRegistry {
+
+    private final List<AbstractCommand> commands = new CopyOnWriteArrayList<>();
+
+    public void registerCommand(AbstractCommand command) {
+        commands.add(command);
+    }
+
+    public List<AbstractCommand> getCommands() {
+        return commands;
+    }
+}
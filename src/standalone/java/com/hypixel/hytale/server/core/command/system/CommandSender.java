@@ -0,0 +1,17 @@
+package com.hypixel.hytale.server.core.command.system;
+
+import java.util.UUID;
+
+import com.hypixel.hytale.server.core.Message;
+
+/**
+ * Stand-in for a command sender.
+ */
+public interface CommandSender {
+
+    boolean hasPermission(String permission);
+
+    void sendMessage(Message message);
+
+    UUID getUuid();
+}
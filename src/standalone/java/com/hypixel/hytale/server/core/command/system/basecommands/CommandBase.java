@@ -0,0 +1,27 @@
+package com.hypixel.hytale.server.core.command.system.basecommands;
+
+import com.hypixel.hytale.server.core.command.system.AbstractCommand;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+
+/**
+ * Stand-in for the server's synchronous command.
+ */
+public abstract class CommandBase extends AbstractCommand {
+
+    public CommandBase(String name, String description, boolean requiresConfirmation) {
+        super(name, description, requiresConfirmation);
+    }
+
+    public CommandBase(String name, String description) {
+        super(name, description);
+    }
+
+    protected abstract void executeSync(CommandContext context);
+
+    /**
+     * Runs the command as the server would.
+     */
+    public void execute(CommandContext context) {
+        executeSync(context);
+    }
+}
@@ -0,0 +1,35 @@
+package com.hypixel.hytale.server.core.event.events.player;
+
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.World;
+
+/**
+ * Stand-in for the event fired when a player is added to a world.
+ */
+public class AddPlayerToWorldEvent {
+
+    private final PlayerRef playerRef;
+    private final World world;
+    private boolean broadcastJoinMessage = true;
+
+    public AddPlayerToWorldEvent(PlayerRef playerRef, World world) {
+        this.playerRef = playerRef;
+        this.world = world;
+    }
+
+    public PlayerRef getPlayerRef() {
+        return playerRef;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public boolean shouldBroadcastJoinMessage() {
+        return broadcastJoinMessage;
+    }
+
+    public void setBroadcastJoinMessage(boolean broadcastJoinMessage) {
+        this.broadcastJoinMessage = broadcastJoinMessage;
+    }
+}
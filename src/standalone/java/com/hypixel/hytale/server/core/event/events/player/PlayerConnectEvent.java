@@ -0,0 +1,26 @@
+package com.hypixel.hytale.server.core.event.events.player;
+
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.World;
+
+/**
+ * Stand-in for the event fired when a player connects.
+ */
+public class PlayerConnectEvent {
+
+    private final PlayerRef playerRef;
+    private final World world;
+
+    public PlayerConnectEvent(PlayerRef playerRef, World world) {
+        this.playerRef = playerRef;
+        this.world = world;
+    }
+
+    public PlayerRef getPlayerRef() {
+        return playerRef;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+}
@@ -0,0 +1,38 @@
+package com.hypixel.hytale.server.core.io;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.hypixel.hytale.protocol.Packet;
+import com.hypixel.hytale.protocol.packets.interface_.ServerMessage;
+
+/**
+ * Stand-in for a player's connection. Chat packets are counted, not sent.
+ */
+public class PacketHandler {
+
+    private static final LongAdder TOTAL_CHAT_PACKETS = new LongAdder();
+
+    private final AtomicLong chatPackets = new AtomicLong();
+
+    public void write(Packet packet) {
+        if (packet instanceof ServerMessage) {
+            chatPackets.incrementAndGet();
+            TOTAL_CHAT_PACKETS.increment();
+        }
+    }
+
+    /**
+     * @return Number of chat packets written to any connection
+     */
+    public static long getTotalChatPackets() {
+        return TOTAL_CHAT_PACKETS.sum();
+    }
+
+    /**
+     * @return Number of chat packets written to this connection
+     */
+    public long getChatPackets() {
+        return chatPackets.get();
+    }
+}
@@ -0,0 +1,46 @@
+package com.hypixel.hytale.server.core.permissions;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stand-in for the server's permissions. Players in the OP group have every
+ * permission.
+ */
+public class PermissionsModule {
+
+    private static final PermissionsModule INSTANCE = new PermissionsModule();
+
+    private final Map<UUID, Set<String>> groups = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<String>> permissions = new ConcurrentHashMap<>();
+
+    public static PermissionsModule get() {
+        return INSTANCE;
+    }
+
+    public Set<String> getGroupsForUser(UUID uuid) {
+        return groups.getOrDefault(uuid, Set.of());
+    }
+
+    public boolean hasPermission(UUID uuid, String permission) {
+        return getGroupsForUser(uuid).contains("OP") || permissions.getOrDefault(uuid, Set.of()).contains(permission);
+    }
+
+    public void addUserToGroup(UUID uuid, String group) {
+        groups.computeIfAbsent(uuid, key -> ConcurrentHashMap.newKeySet()).add(group);
+    }
+
+    public void addUserPermission(UUID uuid, String permission) {
+        permissions.computeIfAbsent(uuid, key -> ConcurrentHashMap.newKeySet()).add(permission);
+    }
+
+    /**
+     * Forgets every group and permission.
+     */
+    public void clear() {
+        groups.clear();
+        permissions.clear();
+    }
+}
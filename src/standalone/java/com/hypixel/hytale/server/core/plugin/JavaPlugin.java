@@ -0,0 +1,82 @@
+package com.hypixel.hytale.server.core.plugin;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.hypixel.hytale.codec.builder.BuilderCodec;
+import com.hypixel.hytale.event.EventRegistry;
+import com.hypixel.hytale.logger.HytaleLogger;
+import com.hypixel.hytale.server.core.command.system.CommandRegistry;
+import com.hypixel.hytale.server.core.util.Config;
+
+/**
+ * Stand-in for the server's plugin base class. Whoever hosts the plugin
+ * drives its lifecycle through {@link #enable()} and {@link #disable()}.
+ */
+public abstract class JavaPlugin {
+
+    private final PluginManifest manifest;
+    private final HytaleLogger logger;
+    private final EventRegistry eventRegistry = new EventRegistry();
+    private final CommandRegistry commandRegistry = new CommandRegistry();
+    private final Map<String, Config<?>> configs = new ConcurrentHashMap<>();
+
+    public JavaPlugin(JavaPluginInit init) {
+        this.manifest = init.getManifest();
+        this.logger = new HytaleLogger(manifest.getName());
+    }
+
+    protected void setup() {
+    }
+
+    protected void start() {
+    }
+
+    protected void shutdown() {
+    }
+
+    public HytaleLogger getLogger() {
+        return logger;
+    }
+
+    public PluginManifest getManifest() {
+        return manifest;
+    }
+
+    public <T> Config<T> withConfig(String name, BuilderCodec<T> codec) {
+        Config<T> config = new Config<>(codec);
+        configs.put(name, config);
+        return config;
+    }
+
+    /**
+     * @return Configuration created with {@link #withConfig}, or null
+     */
+    public Config<?> getConfig(String name) {
+        return configs.get(name);
+    }
+
+    /**
+     * Runs {@link #setup()} and {@link #start()}, as the server does once
+     * every plugin is loaded.
+     */
+    public void enable() {
+        setup();
+        start();
+    }
+
+    /**
+     * Runs {@link #shutdown()}, as the server does when it stops.
+     */
+    public void disable() {
+        shutdown();
+    }
+
+    public EventRegistry getEventRegistry() {
+        return eventRegistry;
+    }
+
+    public CommandRegistry getCommandRegistry() {
+        return commandRegistry;
+    }
+}
@@ -0,0 +1,17 @@
+package com.hypixel.hytale.server.core.plugin;
+
+/**
+ * Stand-in for what the server hands a plugin's constructor.
+ */
+public class JavaPluginInit {
+
+    private final PluginManifest manifest;
+
+    public JavaPluginInit(PluginManifest manifest) {
+        this.manifest = manifest;
+    }
+
+    public PluginManifest getManifest() {
+        return manifest;
+    }
+}
@@ -0,0 +1,29 @@
+package com.hypixel.hytale.server.core.plugin;
+
+/**
+ * Stand-in for a plugin's manifest.json.
+ */
+public class PluginManifest {
+
+    private final String group;
+    private final String name;
+    private final String version;
+
+    public PluginManifest(String group, String name, String version) {
+        this.group = group;
+        this.name = name;
+        this.version = version;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Object getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,68 @@
+package com.hypixel.hytale.server.core.universe;
+
+import java.util.UUID;
+
+import com.hypixel.hytale.protocol.packets.interface_.ChatType;
+import com.hypixel.hytale.protocol.packets.interface_.ServerMessage;
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.io.PacketHandler;
+import com.hypixel.hytale.server.core.universe.world.World;
+
+/**
+ * Stand-in for a connected player. Like the server, each sent message is
+ * converted to its protocol form and written to the player's connection,
+ * where it is counted.
+ */
+public class PlayerRef {
+
+    private final UUID uuid;
+    private final String username;
+    private final PacketHandler packetHandler = new PacketHandler();
+    private volatile World world;
+
+    public PlayerRef(UUID uuid, String username) {
+        this.uuid = uuid;
+        this.username = username;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public void sendMessage(Message message) {
+        packetHandler.write(new ServerMessage(ChatType.Chat, message.getFormattedMessage()));
+    }
+
+    public PacketHandler getPacketHandler() {
+        return packetHandler;
+    }
+
+    /**
+     * @return Number of messages sent to any player
+     */
+    public static long getTotalReceivedMessages() {
+        return PacketHandler.getTotalChatPackets();
+    }
+
+    /**
+     * @return Number of messages sent to the player
+     */
+    public long getReceivedMessages() {
+        return packetHandler.getChatPackets();
+    }
+
+    /**
+     * @return World the player is in, or null if none
+     */
+    public World getWorld() {
+        return world;
+    }
+
+    void setWorld(World world) {
+        this.world = world;
+    }
+}
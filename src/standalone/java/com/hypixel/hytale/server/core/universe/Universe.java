@@ -0,0 +1,81 @@
+package com.hypixel.hytale.server.core.universe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.hypixel.hytale.server.core.universe.world.World;
+
+/**
+ * Stand-in for the server's universe: worlds and online players, managed by
+ * the caller instead of the network.
+ */
+public class Universe {
+
+    private static final Universe INSTANCE = new Universe();
+
+    private final Map<String, World> worlds = new ConcurrentHashMap<>();
+    private final Map<UUID, PlayerRef> players = new ConcurrentHashMap<>();
+
+    public static Universe get() {
+        return INSTANCE;
+    }
+
+    public Map<String, World> getWorlds() {
+        return Collections.unmodifiableMap(worlds);
+    }
+
+    public int getPlayerCount() {
+        return players.size();
+    }
+
+    public List<PlayerRef> getPlayers() {
+        return new ArrayList<>(players.values());
+    }
+
+    public PlayerRef getPlayer(UUID uuid) {
+        return players.get(uuid);
+    }
+
+    /**
+     * Creates a world with its own thread.
+     */
+    public World addWorld(String name) {
+        World world = new World(name);
+        worlds.put(name, world);
+        return world;
+    }
+
+    /**
+     * Puts a player online, in the given world.
+     */
+    public void addPlayer(PlayerRef player, World world) {
+        players.put(player.getUuid(), player);
+        player.setWorld(world);
+        world.addPlayer(player);
+    }
+
+    /**
+     * Takes a player offline.
+     */
+    public void removePlayer(PlayerRef player) {
+        players.remove(player.getUuid());
+        World world = player.getWorld();
+        if (world != null) {
+            world.removePlayer(player);
+            player.setWorld(null);
+        }
+    }
+
+    /**
+     * Stops every world thread and forgets all worlds and players.
+     */
+    public void clear() {
+        worlds.values().forEach(World::shutdown);
+        worlds.clear();
+        players.clear();
+    }
+}
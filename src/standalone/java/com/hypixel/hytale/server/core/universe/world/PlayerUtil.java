@@ -0,0 +1,23 @@
+package com.hypixel.hytale.server.core.universe.world;
+
+import java.util.UUID;
+
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+/**
+ * Stand-in for the server's player helpers.
+ */
+public class PlayerUtil {
+
+    /**
+     * Sends a message to every player in the store's world.
+     */
+    public static void broadcastMessageToPlayers(UUID sender, Message message, Store<EntityStore> store) {
+        for (PlayerRef player : store.getExternalData().getWorld().getPlayerRefs()) {
+            player.sendMessage(message);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.hypixel.hytale.server.core.universe.world;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+/**
+ * Stand-in for a world. Tasks run one at a time on the world's own thread.
+ */
+public class World implements Executor {
+
+    private final String name;
+    private final EntityStore entityStore = new EntityStore(this);
+    private final Set<PlayerRef> players = ConcurrentHashMap.newKeySet();
+    private final ExecutorService thread;
+
+    public World(String name) {
+        this.name = name;
+        this.thread = Executors.newSingleThreadExecutor(task -> {
+            Thread worldThread = new Thread(task, "WorldThread - " + name);
+            worldThread.setDaemon(true);
+            return worldThread;
+        });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @throws java.util.concurrent.RejectedExecutionException if the world
+     *                                                         was shut down
+     */
+    @Override
+    public void execute(Runnable task) {
+        thread.execute(task);
+    }
+
+    public EntityStore getEntityStore() {
+        return entityStore;
+    }
+
+    public Collection<PlayerRef> getPlayerRefs() {
+        return Collections.unmodifiableSet(players);
+    }
+
+    public void addPlayer(PlayerRef player) {
+        players.add(player);
+    }
+
+    public void removePlayer(PlayerRef player) {
+        players.remove(player);
+    }
+
+    public void shutdown() {
+        thread.shutdown();
+    }
+}
@@ -0,0 +1,25 @@
+package com.hypixel.hytale.server.core.universe.world.storage;
+
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.server.core.universe.world.World;
+
+/**
+ * Stand-in for a world's entity storage.
+ */
+public class EntityStore {
+
+    private final World world;
+    private final Store<EntityStore> store = new Store<>(this);
+
+    public EntityStore(World world) {
+        this.world = world;
+    }
+
+    public Store<EntityStore> getStore() {
+        return store;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+}
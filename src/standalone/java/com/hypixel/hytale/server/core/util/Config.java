@@ -0,0 +1,45 @@
+package com.hypixel.hytale.server.core.util;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.hypixel.hytale.codec.builder.BuilderCodec;
+
+/**
+ * Stand-in for a plugin's configuration file. Instead of a file, the
+ * configuration is the codec's defaults plus the values set with
+ * {@link #set(String, String)}, applied on the next {@link #load()}.
+ */
+public class Config<T> {
+
+    private final BuilderCodec<T> codec;
+    private final Map<String, String> overrides = new ConcurrentHashMap<>();
+    private volatile T value;
+
+    public Config(BuilderCodec<T> codec) {
+        this.codec = codec;
+        this.value = codec.decode(Map.of());
+    }
+
+    public T get() {
+        return value;
+    }
+
+    public CompletableFuture<T> load() {
+        try {
+            value = codec.decode(Map.copyOf(overrides));
+            return CompletableFuture.completedFuture(value);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * @param key   Configuration key, e.g. {@code CoalesceJoinLeave}
+     * @param value Value as text, lines separated by \n
+     */
+    public void set(String key, String value) {
+        overrides.put(key, value);
+    }
+}
@@ -0,0 +1,134 @@
+package com.rmaafs.welcometale.standalone;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import com.hypixel.hytale.server.core.event.events.player.AddPlayerToWorldEvent;
+import com.hypixel.hytale.server.core.event.events.player.PlayerConnectEvent;
+import com.hypixel.hytale.server.core.event.events.player.PlayerDisconnectEvent;
+import com.hypixel.hytale.server.core.plugin.JavaPluginInit;
+import com.hypixel.hytale.server.core.plugin.PluginManifest;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.Universe;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.util.Config;
+import com.rmaafs.welcometale.Main;
+
+/**
+ * Runs WelcomeTale on the server stand-ins, for the benchmarks and the storm
+ * simulator: the plugin as the server would load it, worlds with their own
+ * threads, and players connecting and disconnecting on request.
+ * Files the plugin writes go to mods/ under the working directory.
+ */
+public final class StandaloneServer implements AutoCloseable {
+
+    private static final Map<String, String> DEFAULT_CONFIG = Map.of(
+            "CheckForUpdates", "false",
+            "WatchConfig", "false");
+
+    private final Main plugin;
+    private final List<World> worlds;
+
+    private StandaloneServer(Main plugin, List<World> worlds) {
+        this.plugin = plugin;
+        this.worlds = worlds;
+    }
+
+    /**
+     * Creates the worlds and enables the plugin.
+     *
+     * @param worldCount Number of worlds, at least 1
+     * @param config     Configuration values by key, e.g.
+     *                   {@code CoalesceJoinLeave=true}; the update check and
+     *                   the config watcher are off unless set here
+     */
+    public static StandaloneServer start(int worldCount, Map<String, String> config) {
+        List<World> worlds = new ArrayList<>();
+        for (int i = 0; i < worldCount; i++) {
+            worlds.add(Universe.get().addWorld("world-" + i));
+        }
+
+        Main plugin = new Main(new JavaPluginInit(new PluginManifest("Standalone", "WelcomeTale", "0.0.0")));
+        Config<?> pluginConfig = plugin.getConfig("config");
+        Map<String, String> values = new LinkedHashMap<>(DEFAULT_CONFIG);
+        values.putAll(config);
+        values.forEach(pluginConfig::set);
+        pluginConfig.load().join();
+
+        plugin.enable();
+        return new StandaloneServer(plugin, Collections.unmodifiableList(worlds));
+    }
+
+    /**
+     * @return A player who is not online yet, always in the same world
+     */
+    public PlayerRef createPlayer(int id) {
+        return new PlayerRef(new UUID(0x5741_4E44_414C_4F4EL, id), "Player" + id);
+    }
+
+    /**
+     * Puts a player online without firing events, e.g. to fill the server
+     * before a storm.
+     */
+    public void addPlayer(PlayerRef player) {
+        Universe.get().addPlayer(player, worldOf(player));
+    }
+
+    /**
+     * Connects a player: adds them to their world and fires the connect
+     * events on the calling thread, as the server does on its network thread.
+     */
+    public void connect(PlayerRef player) {
+        World world = worldOf(player);
+        Universe.get().addPlayer(player, world);
+        plugin.getEventRegistry().dispatch(new PlayerConnectEvent(player, world));
+        plugin.getEventRegistry().dispatch(new AddPlayerToWorldEvent(player, world));
+    }
+
+    /**
+     * Disconnects a player: fires the disconnect event on the calling thread,
+     * then takes them offline.
+     */
+    public void disconnect(PlayerRef player) {
+        plugin.getEventRegistry().dispatch(new PlayerDisconnectEvent(player));
+        Universe.get().removePlayer(player);
+    }
+
+    /**
+     * Waits until every world ran the tasks queued on it so far, such as
+     * broadcasts handed to world threads.
+     */
+    public void awaitWorlds() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(worlds.size());
+        for (World world : worlds) {
+            world.execute(done::countDown);
+        }
+        done.await();
+    }
+
+    public List<World> getWorlds() {
+        return worlds;
+    }
+
+    public Main getPlugin() {
+        return plugin;
+    }
+
+    private World worldOf(PlayerRef player) {
+        return worlds.get(Math.floorMod(player.getUuid().hashCode(), worlds.size()));
+    }
+
+    /**
+     * Disables the plugin, then stops the worlds and forgets all players.
+     */
+    @Override
+    public void close() {
+        plugin.disable();
+        Universe.get().clear();
+    }
+}
@@ -0,0 +1,13 @@
+package javax.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Stand-in for the JSR 305 annotation bundled with the server.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Nullable {
+}
@@ -0,0 +1,226 @@
+package com.rmaafs.welcometale.storm;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.rmaafs.welcometale.standalone.StandaloneServer;
+import com.rmaafs.welcometale.utils.LatencyRecorder;
+import com.rmaafs.welcometale.utils.Metrics;
+import com.rmaafs.welcometale.utils.ServerUtils;
+
+/**
+ * Fires connect/disconnect storms at WelcomeTale on the server stand-ins and
+ * reports how it copes: throughput, handler latency percentiles, messages
+ * delivered and bytes allocated.
+ * Each round, storm.threads threads connect storm.players players between
+ * them, all at once, then disconnect them again, while storm.online other
+ * players stay online and receive the announcements. The first
+ * storm.warmupRounds rounds are not measured.
+ * Configuration values for the plugin are passed as storm.config, e.g.
+ * {@code CoalesceJoinLeave=true,BroadcastRecipientsPerTick=200}.
+ * When a storm.max* or storm.min* threshold is set and missed, the simulator
+ * exits with status 1, so a build can be gated on it.
+ */
+public final class StormSimulator {
+
+    private static final int ID_OFFSET = 1 << 20;
+    private static final long SETTLE_MILLIS = 200;
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory
+            .getThreadMXBean();
+
+    private final StandaloneServer server;
+    private final int threads;
+    private final PlayerRef[] players;
+    /** Bytes allocated by storm threads, which are gone when a round ends */
+    private final LongAdder workerBytes = new LongAdder();
+
+    private StormSimulator(StandaloneServer server, int threads, int playerCount) {
+        this.server = server;
+        this.threads = threads;
+        this.players = new PlayerRef[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            players[i] = server.createPlayer(ID_OFFSET + i);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = Integer.getInteger("storm.threads", 8);
+        int playerCount = Integer.getInteger("storm.players", 2000);
+        int online = Integer.getInteger("storm.online", 500);
+        int worlds = Integer.getInteger("storm.worlds", 4);
+        int rounds = Integer.getInteger("storm.rounds", 10);
+        int warmupRounds = Integer.getInteger("storm.warmupRounds", 2);
+
+        List<String> failures = new ArrayList<>();
+        try (StandaloneServer server = StandaloneServer.start(worlds, parseConfig(System.getProperty("storm.config")))) {
+            for (int i = 0; i < online; i++) {
+                server.addPlayer(server.createPlayer(i));
+            }
+            StormSimulator simulator = new StormSimulator(server, threads, playerCount);
+
+            for (int round = 0; round < warmupRounds; round++) {
+                simulator.round();
+            }
+            simulator.settle();
+
+            Metrics.reset();
+            simulator.workerBytes.reset();
+            long delivered = PlayerRef.getTotalReceivedMessages();
+            Map<Long, Long> allocated = allocatedBytes();
+            long start = System.nanoTime();
+            for (int round = 0; round < rounds; round++) {
+                simulator.round();
+            }
+            long elapsed = System.nanoTime() - start;
+            simulator.settle();
+            delivered = PlayerRef.getTotalReceivedMessages() - delivered;
+            long bytes = allocatedSince(allocated) + simulator.workerBytes.sum();
+
+            long operations = 2L * rounds * playerCount;
+            double opsPerSecond = operations * 1e9 / elapsed;
+            long bytesPerOp = operations == 0 ? 0 : bytes / operations;
+
+            System.out.printf("Storm: %d rounds of %d players on %d threads, %d online in %d worlds%n", rounds,
+                    playerCount, threads, online, worlds);
+            System.out.printf("Throughput: %.0f connects and disconnects per second%n", opsPerSecond);
+            report("Connect", Metrics.CONNECT);
+            report("Disconnect", Metrics.DISCONNECT);
+            report("Broadcast", Metrics.BROADCAST);
+            report("Delivery", Metrics.DELIVERY);
+            System.out.printf("Messages delivered: %d (%.1f per connect or disconnect)%n", delivered,
+                    operations == 0 ? 0.0 : (double) delivered / operations);
+            System.out.printf("Allocated: %d MB (%d bytes per connect or disconnect)%n", bytes >> 20, bytesPerOp);
+
+            checkMax(failures, "storm.maxConnectP99Micros", Metrics.CONNECT.getPercentile(99) / 1_000);
+            checkMax(failures, "storm.maxDisconnectP99Micros", Metrics.DISCONNECT.getPercentile(99) / 1_000);
+            checkMax(failures, "storm.maxBytesPerOp", bytesPerOp);
+            checkMin(failures, "storm.minOpsPerSecond", (long) opsPerSecond);
+            checkMin(failures, "storm.minDelivered", delivered);
+        }
+
+        for (String failure : failures) {
+            System.out.println("FAILED: " + failure);
+        }
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    /**
+     * Connects every player, spread over the threads and started at the same
+     * moment, then disconnects them the same way.
+     */
+    private void round() throws InterruptedException {
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            Thread worker = new Thread(() -> {
+                long allocatedAtStart = THREADS.getCurrentThreadAllocatedBytes();
+                try {
+                    barrier.await();
+                    for (int i = first; i < players.length; i += threads) {
+                        server.connect(players[i]);
+                    }
+                    barrier.await();
+                    for (int i = first; i < players.length; i += threads) {
+                        server.disconnect(players[i]);
+                    }
+                } catch (InterruptedException | BrokenBarrierException e) {
+                    Thread.currentThread().interrupt();
+                }
+                workerBytes.add(THREADS.getCurrentThreadAllocatedBytes() - allocatedAtStart);
+            }, "Storm-" + t);
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    /**
+     * Waits until paced broadcasts are drained, the worlds ran everything
+     * handed to them, and no more messages arrive.
+     */
+    private void settle() throws InterruptedException {
+        long received;
+        do {
+            received = PlayerRef.getTotalReceivedMessages();
+            while (ServerUtils.getBroadcastPacer().getQueuedRecipients() > 0) {
+                Thread.sleep(10);
+            }
+            server.awaitWorlds();
+            Thread.sleep(SETTLE_MILLIS);
+        } while (received != PlayerRef.getTotalReceivedMessages());
+    }
+
+    private static void report(String name, LatencyRecorder latency) {
+        System.out.printf("%-11s p50 %s, p99 %s, max %s (%d)%n", name + ":",
+                Metrics.formatNanos(latency.getPercentile(50)),
+                Metrics.formatNanos(latency.getPercentile(99)),
+                Metrics.formatNanos(latency.getMax()), latency.getCount());
+    }
+
+    private static void checkMax(List<String> failures, String property, long value) {
+        Long limit = Long.getLong(property);
+        if (limit != null && limit > 0 && value > limit) {
+            failures.add(property + "=" + limit + ", measured " + value);
+        }
+    }
+
+    private static void checkMin(List<String> failures, String property, long value) {
+        Long limit = Long.getLong(property);
+        if (limit != null && limit > 0 && value < limit) {
+            failures.add(property + "=" + limit + ", measured " + value);
+        }
+    }
+
+    private static Map<String, String> parseConfig(String config) {
+        Map<String, String> values = new LinkedHashMap<>();
+        if (config == null || config.isBlank()) {
+            return values;
+        }
+        for (String entry : config.split(",")) {
+            int equals = entry.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("storm.config entries are Key=value, got " + entry);
+            }
+            values.put(entry.substring(0, equals).trim(), entry.substring(equals + 1).trim());
+        }
+        return values;
+    }
+
+    /**
+     * @return Bytes allocated so far by each live thread, by thread id
+     */
+    private static Map<Long, Long> allocatedBytes() {
+        long[] ids = THREADS.getAllThreadIds();
+        long[] bytes = THREADS.getThreadAllocatedBytes(ids);
+        Map<Long, Long> allocated = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] >= 0) {
+                allocated.put(ids[i], bytes[i]);
+            }
+        }
+        return allocated;
+    }
+
+    /**
+     * @return Bytes allocated since the snapshot by threads still alive,
+     *         such as the world and scheduler threads
+     */
+    private static long allocatedSince(Map<Long, Long> snapshot) {
+        long total = 0;
+        for (Map.Entry<Long, Long> thread : allocatedBytes().entrySet()) {
+            total += thread.getValue() - snapshot.getOrDefault(thread.getKey(), 0L);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,317 @@
+package com.rmaafs.welcometale.transformers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.util.CheckClassAdapter;
+
+/**
+ * Patches a synthetic replica of the server class the bundled patch targets
+ * and checks the result with ASM's verifier and the JVM's. The engine writes
+ * with ClassWriter flags 0, keeping the original frames and max stack, so a
+ * patch that changes the stack shape only shows up here.
+ * The replica is loaded by a class loader that sees only the JDK and the
+ * server stand-ins, like a server class loader that cannot see the
+ * transformer jar.
+ */
+class PatchEngineTest {
+
+    private static final String TARGET = "com/hypixel/hytale/server/core/modules/entity/player/"
+            + "PlayerSystems$PlayerRemovedSystem";
+    private static final String PLAYER_UTIL = "com/hypixel/hytale/server/core/universe/world/PlayerUtil";
+    private static final String MESSAGE = "com/hypixel/hytale/server/core/Message";
+    private static final String STORE = "com/hypixel/hytale/component/Store";
+
+    private static final String BROADCAST = "(Ljava/util/UUID;L" + MESSAGE + ";L" + STORE + ";)V";
+    private static final String RAW = "(Ljava/lang/String;J)L" + MESSAGE + ";";
+    private static final String LEAVE_HOOK = "com/rmaafs/welcometale/transformers/LeaveHook";
+    private static final String HOOKS = "com/rmaafs/welcometale/transformers/PatchEngineTest$Hooks";
+    private static final String BRIDGE = TARGET + ".welcometale$";
+
+    @Test
+    void droppedCallsVerify() throws Exception {
+        byte[] patched = patch(
+                "leave  drop  " + TARGET + "  onEntityRemoved  *  " + PLAYER_UTIL + "  broadcastMessageToPlayers  *",
+                "raw    drop  " + TARGET + "  describe  *  " + MESSAGE + "  raw  " + RAW);
+
+        assertVerifies(patched);
+        assertEquals(List.of(), calls(patched, PLAYER_UTIL));
+        assertEquals(List.of(), calls(patched, MESSAGE + ".raw"));
+    }
+
+    @Test
+    void reroutedCallsVerify() throws Exception {
+        byte[] patched = patch(
+                "leave  reroute  " + TARGET + "  onEntityRemoved  *  " + PLAYER_UTIL + "  broadcastMessageToPlayers  *  "
+                        + LEAVE_HOOK + "  onLeaveBroadcast",
+                "raw    reroute  " + TARGET + "  describe  *  " + MESSAGE + "  raw  " + RAW + "  " + HOOKS + "  raw");
+
+        assertVerifies(patched);
+        assertEquals(List.of(), calls(patched, LEAVE_HOOK));
+        assertEquals(List.of(), calls(patched, HOOKS));
+        assertEquals(List.of(BRIDGE + "leave(Ljava/lang/Object;Ljava/lang/Object;Ljava/lang/Object;)V",
+                BRIDGE + "raw(Ljava/lang/Object;J)Ljava/lang/Object;"), calls(patched, BRIDGE));
+        assertTrue(System.getProperties().get(PatchSpec.hookProperty("raw")) instanceof MethodHandle);
+    }
+
+    @Test
+    void bundledPatchHandsTheLeaveToTheHook() throws Throwable {
+        List<PatchSpec> bundled = PatchEngine.get().getPatches();
+        assertEquals(1, bundled.size());
+        assertEquals(PatchSpec.Action.REROUTE, bundled.get(0).getAction());
+
+        byte[] patched = PatchEngine.get().transform(TARGET, replica());
+        assertNotNull(patched);
+        assertVerifies(patched);
+        assertEquals(List.of(), calls(patched, PLAYER_UTIL));
+
+        ReplicaLoader loader = new ReplicaLoader(patched);
+        assertThrows(ClassNotFoundException.class, () -> loader.loadClass(LeaveHook.class.getName()));
+        Class<?> target = loader.loadClass(TARGET.replace('/', '.'));
+        Class<?> message = loader.loadClass(MESSAGE.replace('/', '.'));
+        Class<?> store = loader.loadClass(STORE.replace('/', '.'));
+        Object worldStore = store.getConstructor().newInstance();
+        UUID player = UUID.randomUUID();
+
+        long[] uuids = new long[2];
+        Object[] stores = new Object[1];
+        while (LeaveHook.drain(uuids, stores, System.nanoTime()) > 0) {
+            // Records of other tests
+        }
+        target.getMethod("onEntityRemoved", UUID.class, message, store).invoke(
+                target.getConstructor().newInstance(), player, message.getConstructor().newInstance(), worldStore);
+
+        assertEquals(1, LeaveHook.drain(uuids, stores, System.nanoTime()));
+        assertEquals(player, new UUID(uuids[0], uuids[1]));
+        assertSame(worldStore, stores[0]);
+
+        // How the plugin finds drain
+        MethodHandle hook = (MethodHandle) System.getProperties().get(PatchSpec.hookProperty("leave-message"));
+        assertSame(LeaveHook.class, MethodHandles.reflectAs(Method.class, hook).getDeclaringClass());
+    }
+
+    @Test
+    void rerouteToMissingHookKeepsTheCall() {
+        PatchEngine engine = new PatchEngine(List.of(PatchSpec.parse(
+                "missing  reroute  " + TARGET + "  onEntityRemoved  *  " + PLAYER_UTIL + "  broadcastMessageToPlayers  *  "
+                        + "com/rmaafs/welcometale/transformers/MissingHook  onLeaveBroadcast")));
+
+        assertNull(engine.transform(TARGET, replica()));
+        assertFalse(engine.getPatches().get(0).isApplied());
+        assertNull(System.getProperties().get(PatchSpec.hookProperty("missing")));
+    }
+
+    @Test
+    void classWithoutCallSiteIsLeftAlone() {
+        PatchEngine engine = new PatchEngine(List.of(PatchSpec.parse(
+                "other  drop  " + TARGET + "  onEntityRemoved  *  " + PLAYER_UTIL + "  sendMessage  *")));
+
+        assertNull(engine.transform(TARGET, replica()));
+        assertTrue(engine.getPatches().stream().noneMatch(PatchSpec::isApplied));
+    }
+
+    private static byte[] patch(String... lines) {
+        List<PatchSpec> patches = new ArrayList<>();
+        for (String line : lines) {
+            patches.add(PatchSpec.parse(line));
+        }
+
+        byte[] patched = new PatchEngine(patches).transform(TARGET, replica());
+        assertNotNull(patched);
+        for (PatchSpec patch : patches) {
+            assertEquals(1, patch.getAppliedCount(), patch::toString);
+        }
+        return patched;
+    }
+
+    /**
+     * Runs ASM's data flow verifier over every method, then has the JVM load
+     * and verify the class.
+     */
+    private static void assertVerifies(byte[] patched) throws ClassNotFoundException {
+        ReplicaLoader loader = new ReplicaLoader(patched);
+        StringWriter errors = new StringWriter();
+        CheckClassAdapter.verify(new ClassReader(patched), loader, false, new PrintWriter(errors));
+        assertEquals("", errors.toString());
+
+        Class.forName(TARGET.replace('/', '.'), true, loader).getDeclaredMethods();
+    }
+
+    /**
+     * @return owner.name+descriptor of the method calls whose owner starts
+     *         with the prefix
+     */
+    private static List<String> calls(byte[] classBytes, String prefix) {
+        List<String> calls = new ArrayList<>();
+        new ClassReader(classBytes).accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                    String[] exceptions) {
+                return new MethodVisitor(Opcodes.ASM9) {
+                    @Override
+                    public void visitMethodInsn(int opcode, String owner, String callName, String callDescriptor,
+                            boolean isInterface) {
+                        String call = owner + "." + callName + callDescriptor;
+                        if (call.startsWith(prefix)) {
+                            calls.add(call);
+                        }
+                    }
+                };
+            }
+        }, 0);
+        return calls;
+    }
+
+    /**
+     * The server class, reduced to what the patches touch: a leave broadcast
+     * behind a branch, so the method carries stack map frames, and a static
+     * call with a long argument and a reference result that is used
+     * afterwards, inside a loop.
+     */
+    private static byte[] replica() {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                return "java/lang/Object";
+            }
+        };
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, TARGET, null, "java/lang/Object", null);
+        constructor(writer);
+
+        MethodVisitor removed = writer.visitMethod(Opcodes.ACC_PUBLIC, "onEntityRemoved",
+                "(Ljava/util/UUID;L" + MESSAGE + ";L" + STORE + ";)V", null, null);
+        removed.visitCode();
+        Label skip = new Label();
+        removed.visitVarInsn(Opcodes.ALOAD, 2);
+        removed.visitJumpInsn(Opcodes.IFNULL, skip);
+        removed.visitVarInsn(Opcodes.ALOAD, 1);
+        removed.visitVarInsn(Opcodes.ALOAD, 2);
+        removed.visitVarInsn(Opcodes.ALOAD, 3);
+        removed.visitMethodInsn(Opcodes.INVOKESTATIC, PLAYER_UTIL, "broadcastMessageToPlayers", BROADCAST, false);
+        removed.visitLabel(skip);
+        removed.visitInsn(Opcodes.RETURN);
+        removed.visitMaxs(0, 0);
+        removed.visitEnd();
+
+        MethodVisitor describe = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "describe",
+                "(J)L" + MESSAGE + ";", null, null);
+        describe.visitCode();
+        Label loop = new Label();
+        Label end = new Label();
+        describe.visitInsn(Opcodes.ACONST_NULL);
+        describe.visitVarInsn(Opcodes.ASTORE, 2);
+        describe.visitInsn(Opcodes.ICONST_0);
+        describe.visitVarInsn(Opcodes.ISTORE, 3);
+        describe.visitLabel(loop);
+        describe.visitVarInsn(Opcodes.ILOAD, 3);
+        describe.visitInsn(Opcodes.ICONST_3);
+        describe.visitJumpInsn(Opcodes.IF_ICMPGE, end);
+        describe.visitLdcInsn("value");
+        describe.visitVarInsn(Opcodes.LLOAD, 0);
+        describe.visitMethodInsn(Opcodes.INVOKESTATIC, MESSAGE, "raw", RAW, false);
+        describe.visitVarInsn(Opcodes.ASTORE, 2);
+        describe.visitIincInsn(3, 1);
+        describe.visitJumpInsn(Opcodes.GOTO, loop);
+        describe.visitLabel(end);
+        describe.visitVarInsn(Opcodes.ALOAD, 2);
+        describe.visitInsn(Opcodes.ARETURN);
+        describe.visitMaxs(0, 0);
+        describe.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    /**
+     * @return An empty public class, standing in for a server type
+     */
+    private static byte[] emptyClass(String name) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, "java/lang/Object", null);
+        constructor(writer);
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static void constructor(ClassWriter writer) {
+        MethodVisitor init = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+    }
+
+    /**
+     * Defines the patched class and the server types it refers to itself.
+     * Everything else comes from the JDK: the test classpath, with the hooks
+     * and any server classes, is not visible.
+     */
+    private static final class ReplicaLoader extends ClassLoader {
+
+        private final Map<String, byte[]> classes = new HashMap<>();
+
+        ReplicaLoader(byte[] patched) {
+            super(ClassLoader.getPlatformClassLoader());
+            classes.put(TARGET, patched);
+            classes.put(PLAYER_UTIL, emptyClass(PLAYER_UTIL));
+            classes.put(MESSAGE, emptyClass(MESSAGE));
+            classes.put(STORE, emptyClass(STORE));
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            synchronized (getClassLoadingLock(name)) {
+                byte[] bytes = classes.get(name.replace('.', '/'));
+                if (bytes == null) {
+                    return super.loadClass(name, resolve);
+                }
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    loaded = defineClass(name, bytes, 0, bytes.length);
+                }
+                if (resolve) {
+                    resolveClass(loaded);
+                }
+                return loaded;
+            }
+        }
+    }
+
+    /**
+     * Replacement for the rerouted Message.raw call.
+     */
+    public static final class Hooks {
+
+        private Hooks() {
+        }
+
+        public static Object raw(Object text, long value) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.rmaafs.welcometale.utils;
+
+import java.awt.Color;
+import java.util.HashMap;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The regex based formatter WelcomeTale shipped before the single-pass lexer,
+ * kept as the reference the current formatter is compared against. Instead
+ * of building Messages it reports the segments it would have built, in
+ * order, including the unstyled line break nodes.
+ */
+final class LegacyMessageFormatter {
+
+    private static final Map<Character, Color> COLOR_MAP = new HashMap<>();
+    private static final Pattern COLOR_PATTERN = Pattern.compile("[&§]([0-9a-fk-or])");
+    private static final Pattern URL_PATTERN = Pattern.compile(
+            "(?:https?://|www\\.)[\\w\\-._~:/?#\\[\\]@!$&'()*+,;=%]+", Pattern.CASE_INSENSITIVE);
+    private static final Color DEFAULT_COLOR = Color.WHITE;
+
+    static {
+        COLOR_MAP.put('0', Color.BLACK);
+        COLOR_MAP.put('1', new Color(0x0000AA));
+        COLOR_MAP.put('2', new Color(0x00AA00));
+        COLOR_MAP.put('3', new Color(0x00AAAA));
+        COLOR_MAP.put('4', new Color(0xAA0000));
+        COLOR_MAP.put('5', new Color(0xAA00AA));
+        COLOR_MAP.put('6', new Color(0xFFAA00));
+        COLOR_MAP.put('7', new Color(0xAAAAAA));
+        COLOR_MAP.put('8', new Color(0x555555));
+        COLOR_MAP.put('9', new Color(0x5555FF));
+        COLOR_MAP.put('a', new Color(0x55FF55));
+        COLOR_MAP.put('b', new Color(0x55FFFF));
+        COLOR_MAP.put('c', new Color(0xFF5555));
+        COLOR_MAP.put('d', new Color(0xFF55FF));
+        COLOR_MAP.put('e', new Color(0xFFFF55));
+        COLOR_MAP.put('f', Color.WHITE);
+    }
+
+    private LegacyMessageFormatter() {
+    }
+
+    static void format(String text, MessageFormatter.SegmentSink sink) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+
+        String[] lines = text.split("\n");
+        if (lines.length == 1) {
+            processLine(text, sink);
+            return;
+        }
+
+        for (int i = 0; i < lines.length; i++) {
+            if (i > 0) {
+                sink.segment("\n", null, false, false, null);
+            }
+            processLine(lines[i], sink);
+        }
+    }
+
+    static String stripColorCodes(String text) {
+        return (text == null || text.isEmpty()) ? text : COLOR_PATTERN.matcher(text).replaceAll("");
+    }
+
+    private static void processLine(String line, MessageFormatter.SegmentSink sink) {
+        if (line == null || line.isEmpty()) {
+            return;
+        }
+
+        Matcher urlMatcher = URL_PATTERN.matcher(line);
+        Matcher colorMatcher = COLOR_PATTERN.matcher(line);
+
+        int lastIndex = 0;
+        Color currentColor = DEFAULT_COLOR;
+        boolean bold = false;
+        boolean italic = false;
+
+        List<int[]> urlRanges = new ArrayList<>();
+        while (urlMatcher.find()) {
+            int start = urlMatcher.start();
+            int end = urlMatcher.end();
+            while (end > start && isPunctuation(line.charAt(end - 1))) {
+                end--;
+            }
+            urlRanges.add(new int[] { start, end });
+        }
+
+        while (colorMatcher.find()) {
+            int colorStart = colorMatcher.start();
+            int colorEnd = colorMatcher.end();
+            if (isInsideUrl(colorStart, urlRanges)) {
+                continue;
+            }
+
+            if (colorStart > lastIndex) {
+                processSegmentWithUrls(line.substring(lastIndex, colorStart), lastIndex, urlRanges, currentColor,
+                        bold, italic, line, sink);
+            }
+
+            char colorCode = colorMatcher.group(1).charAt(0);
+            if (COLOR_MAP.containsKey(colorCode)) {
+                currentColor = COLOR_MAP.get(colorCode);
+            } else if (colorCode == 'r') {
+                currentColor = DEFAULT_COLOR;
+                bold = italic = false;
+            } else if (colorCode == 'l') {
+                bold = true;
+            } else if (colorCode == 'o') {
+                italic = true;
+            }
+
+            lastIndex = colorEnd;
+        }
+
+        if (lastIndex < line.length()) {
+            processSegmentWithUrls(line.substring(lastIndex), lastIndex, urlRanges, currentColor, bold, italic,
+                    line, sink);
+        }
+    }
+
+    private static boolean isInsideUrl(int position, List<int[]> urlRanges) {
+        for (int[] range : urlRanges) {
+            if (position >= range[0] && position < range[1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isPunctuation(char c) {
+        return c == ')' || c == '.' || c == ',' || c == ';' || c == '!' || c == '?';
+    }
+
+    private static void processSegmentWithUrls(String segment, int segmentStart, List<int[]> urlRanges,
+            Color color, boolean bold, boolean italic, String fullLine, MessageFormatter.SegmentSink sink) {
+        int lastIndex = 0;
+
+        for (int[] urlRange : urlRanges) {
+            int relativeStart = urlRange[0] - segmentStart;
+            int relativeEnd = urlRange[1] - segmentStart;
+            if (relativeEnd <= 0 || relativeStart >= segment.length()) {
+                continue;
+            }
+
+            int urlStartInSegment = Math.max(0, relativeStart);
+            int urlEndInSegment = Math.min(segment.length(), relativeEnd);
+
+            if (urlStartInSegment > lastIndex) {
+                String textBeforeUrl = segment.substring(lastIndex, urlStartInSegment);
+                if (!textBeforeUrl.isEmpty()) {
+                    sink.segment(textBeforeUrl, color, bold, italic, null);
+                }
+            }
+
+            String url = segment.substring(urlStartInSegment, urlEndInSegment);
+            if (!url.isEmpty()) {
+                String fullUrl = fullLine.substring(urlRange[0], urlRange[1]);
+                String linkTarget = fullUrl.startsWith("www.") ? "https://" + fullUrl : fullUrl;
+                sink.segment(url, color, bold, italic, linkTarget);
+            }
+
+            lastIndex = urlEndInSegment;
+        }
+
+        if (lastIndex < segment.length()) {
+            sink.segment(segment.substring(lastIndex), color, bold, italic, null);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.rmaafs.welcometale.utils;
+
+import java.util.Random;
+
+/**
+ * Generates random configured messages from the pieces that matter to the
+ * formatter: color codes, broken color codes, link prefixes in mixed case,
+ * characters allowed inside links, punctuation trimmed from their end, spaces
+ * and line breaks.
+ */
+final class MessageCorpus {
+
+    private static final String[] TOKENS = {
+            "&a", "&c", "&l", "&o", "&r", "&k", "&m", "&n", "&f", "&0", "§e", "§l", "§r", "&z", "&A", "&", "§",
+            "http://", "https://", "HTTPS://", "Http://", "www.", "WWW.", "wWw.", "http:/", "www",
+            "example.com", "rmaafs.com", "/path", "/", "?q=1", "#top", "a&b", "%20", "~x", "@", "$", "*", "+",
+            "=", "'", "(", ")", "[", "]", ":", "_", "-", ".", ",", ";", "!", "?", " ", " ", "\n", "\n\n",
+            "Hi", "x", "Welcome", "é", "<", ">", "\"",
+    };
+
+    private static final String[] TEMPLATE_TOKENS = {
+            "{v0}", "{v1}", "{v0}", "{c}", "{WwW.o}", "{http://x}", "{}", "{v0", "v1}", "{ v0}", "_wtslot0_",
+            "_wtslot1_",
+    };
+
+    private MessageCorpus() {
+    }
+
+    /**
+     * @return Random message text without placeholders
+     */
+    static String text(Random random, int maxTokens) {
+        StringBuilder text = new StringBuilder();
+        int tokens = random.nextInt(maxTokens + 1);
+        for (int i = 0; i < tokens; i++) {
+            text.append(TOKENS[random.nextInt(TOKENS.length)]);
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return Random message text mixing placeholders {v0} and {v1},
+     *         placeholders nobody resolves, and text that only looks like one
+     */
+    static String template(Random random, int maxTokens) {
+        StringBuilder text = new StringBuilder();
+        int tokens = random.nextInt(maxTokens + 1);
+        for (int i = 0; i < tokens; i++) {
+            text.append(random.nextInt(4) == 0 ? TEMPLATE_TOKENS[random.nextInt(TEMPLATE_TOKENS.length)]
+                    : TOKENS[random.nextInt(TOKENS.length)]);
+        }
+        return text.toString();
+    }
+}
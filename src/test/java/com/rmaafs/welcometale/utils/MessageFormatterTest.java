@@ -0,0 +1,53 @@
+package com.rmaafs.welcometale.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The single-pass formatter must style every character exactly like the
+ * regex formatter it replaced.
+ */
+class MessageFormatterTest {
+
+    private static final int ITERATIONS = 500_000;
+
+    private static final String[] CASES = {
+            "", "\n", "\n\n", "a\n", "\na", "a\n\nb", "&", "§", "&&a", "&a&", "&z", "&A", "&l&o&cBold&r plain",
+            "&aGreen\n&lstill bold?", "Visit www.example.com.", "Visit WWW.Example.com!", "(https://example.com)",
+            "https://example.com/a&cb", "&chttps://example.com/&a", "https://", "www.", "http://a.b?!).,;",
+            "https://a.com https://b.com", "https://a.com\nhttps://b.com", "a www.x &lb www.y", "wwww.x",
+            "hTTp://x", "https://example.com/%20~'()*+,;=[]@$", "é&aé", "&r&r&r", "§l§oboth&r",
+    };
+
+    @Test
+    void formatsEdgeCasesLikeLegacy() {
+        for (String text : CASES) {
+            assertFormatsLikeLegacy(text);
+        }
+    }
+
+    @Test
+    void formatsRandomMessagesLikeLegacy() {
+        Random random = new Random(0x5EED_0002L);
+        for (int i = 0; i < ITERATIONS; i++) {
+            assertFormatsLikeLegacy(MessageCorpus.text(random, 16));
+        }
+    }
+
+    @Test
+    void stripsColorCodesLikeLegacy() {
+        Random random = new Random(0x5EED_0003L);
+        for (int i = 0; i < ITERATIONS / 10; i++) {
+            String text = MessageCorpus.text(random, 16);
+            assertEquals(LegacyMessageFormatter.stripColorCodes(text), MessageFormatter.stripColorCodes(text),
+                    () -> MessageTemplateTest.escape(text));
+        }
+    }
+
+    private static void assertFormatsLikeLegacy(String text) {
+        assertEquals(StyledText.legacy(text), StyledText.of(text), () -> MessageTemplateTest.escape(text));
+    }
+}
@@ -0,0 +1,131 @@
+package com.rmaafs.welcometale.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.rmaafs.welcometale.placeholders.PlaceholderContext;
+
+/**
+ * A compiled template must render exactly like the original code path:
+ * replace the placeholders in the configured text, then format the result.
+ */
+class MessageTemplateTest {
+
+    private static final int ITERATIONS = 300_000;
+
+    @Test
+    void rendersLikeReplacingThenFormatting() {
+        Random random = new Random(0x5EED_0001L);
+        for (int i = 0; i < ITERATIONS; i++) {
+            String text = MessageCorpus.template(random, 12);
+            String v0 = MessageCorpus.text(random, 4);
+            String v1 = MessageCorpus.text(random, 4);
+
+            assertRendersLikeLegacy(text, v0, v1);
+        }
+    }
+
+    @Test
+    void rendersTheSameSegmentsAsFormattingTheFilledText() {
+        Random random = new Random(0x5EED_0002L);
+        for (int i = 0; i < ITERATIONS; i++) {
+            String text = MessageCorpus.template(random, 12);
+            String v0 = MessageCorpus.text(random, 4);
+            String v1 = MessageCorpus.text(random, 4);
+
+            List<String> expected = new ArrayList<>();
+            MessageFormatter.parse(text.replace("{v0}", v0).replace("{v1}", v1), segments(expected));
+            List<String> actual = new ArrayList<>();
+            MessageTemplate.compile("test", text).render(PlaceholderContext.global().with("v0", v0).with("v1", v1),
+                    segments(actual));
+
+            assertEquals(expected, actual,
+                    () -> "text=" + escape(text) + " v0=" + escape(v0) + " v1=" + escape(v1));
+        }
+    }
+
+    @Test
+    void nodeCountDescribesThePrebuiltSegments() {
+        // "&3&l > " and " &bjoined" are pre-built into 3 segments, "&3{player}" is parsed on every render
+        assertEquals(5, MessageTemplate.compile("test", "&3&l > &3{player} &bjoined").getNodeCount());
+        assertEquals(1, MessageTemplate.compile("test", "{player}").getNodeCount());
+        assertEquals(3, MessageTemplate.compile("test", "&aWelcome &b{player}").getNodeCount());
+    }
+
+    @Test
+    void keepsUnknownPlaceholdersAsWritten() {
+        assertRendersLikeLegacy("&aHello {c}, see www.example.com/{WwW.o}!", "", "");
+        assertRendersLikeLegacy("{c}https://example.com", "", "");
+
+        MessageTemplate template = MessageTemplate.compile("test", "{c}{v0}");
+        assertTrue(template.usesPlaceholder("c"));
+        assertFalse(template.isStatic());
+    }
+
+    @Test
+    void valuesCanEndOrChangeLinks() {
+        assertRendersLikeLegacy("https://example.com/{v0}/page", "a b", "");
+        assertRendersLikeLegacy("https://example.com/{v0}", "&cred", "");
+        assertRendersLikeLegacy("Visit {v0}example.com{v1}", "www.", "!");
+        assertRendersLikeLegacy("{v0}{v1}", "http", "s://example.com");
+        assertRendersLikeLegacy("&{v0}Colored", "a", "");
+    }
+
+    @Test
+    void treatsFormerProbeTextAsText() {
+        assertRendersLikeLegacy("_wtslot0_ {v0} _wtslot0_", "value", "");
+        assertRendersLikeLegacy("https://example.com/_wtslot0_{v0}", "/x", "");
+    }
+
+    @Test
+    void staticTemplatesRenderTheSource() {
+        MessageTemplate template = MessageTemplate.compile("test", "&aWelcome to www.example.com!");
+        assertTrue(template.isStatic());
+        assertRendersLikeLegacy(template.getSource(), "", "");
+    }
+
+    @Test
+    void contextResolversOnlyRunForUsedPlaceholders() {
+        int[] calls = new int[2];
+        PlaceholderContext context = PlaceholderContext.global()
+                .with("v0", c -> Integer.toString(++calls[0]))
+                .with("v1", c -> Integer.toString(++calls[1]));
+
+        StyledText first = new StyledText();
+        StyledText second = new StyledText();
+        MessageTemplate.compile("test", "&a{v0} and {v0}").render(context, first);
+        MessageTemplate.compile("test", "&a{v0}").render(context, second);
+
+        assertEquals(StyledText.legacy("&a1 and 1"), first.toString());
+        assertEquals(StyledText.legacy("&a1"), second.toString());
+        assertEquals(1, calls[0]);
+        assertEquals(0, calls[1]);
+    }
+
+    private static void assertRendersLikeLegacy(String text, String v0, String v1) {
+        String expected = StyledText.legacy(text.replace("{v0}", v0).replace("{v1}", v1));
+
+        StyledText actual = new StyledText();
+        MessageTemplate.compile("test", text)
+                .render(PlaceholderContext.global().with("v0", v0).with("v1", v1), actual);
+
+        assertEquals(expected, actual.toString(),
+                () -> "text=" + escape(text) + " v0=" + escape(v0) + " v1=" + escape(v1));
+    }
+
+    private static MessageFormatter.SegmentSink segments(List<String> segments) {
+        return (text, color, bold, italic, linkUrl) -> segments
+                .add(escape(text) + " " + color + " " + bold + " " + italic + " " + linkUrl);
+    }
+
+    static String escape(String text) {
+        return '"' + text.replace("\n", "\\n") + '"';
+    }
+}
@@ -0,0 +1,201 @@
+package com.rmaafs.welcometale.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import com.rmaafs.welcometale.transformers.PatchSpec;
+
+/**
+ * Runs the compatibility check against synthetic server jars: one where the
+ * patched call is where the bundled spec expects it, and ones where a server
+ * update removed the class, renamed the method or moved the call.
+ */
+class PatchCompatibilityTest {
+
+    private static final String TARGET = "com/hypixel/hytale/server/core/modules/entity/player/"
+            + "PlayerSystems$PlayerRemovedSystem";
+    private static final String PLAYER_UTIL = "com/hypixel/hytale/server/core/universe/world/PlayerUtil";
+    private static final String BROADCAST = "(Ljava/util/UUID;Lcom/hypixel/hytale/server/core/Message;"
+            + "Lcom/hypixel/hytale/component/Store;)V";
+
+    private static final String SPECS = """
+            # Same columns as the bundled patches.spec
+            leave-message  drop  %s  onEntityRemoved  *  %s  broadcastMessageToPlayers  *
+            """.formatted(TARGET, PLAYER_UTIL);
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void matchingJarIsCompatible() throws IOException {
+        Path jar = jar("server.jar", Map.of(TARGET, replica("onEntityRemoved", "broadcastMessageToPlayers")));
+
+        assertEquals(List.of(PatchCompatibility.Status.COMPATIBLE), check(jar, SPECS));
+    }
+
+    @Test
+    void exactDescriptorsMustMatch() throws IOException {
+        Path jar = jar("server.jar", Map.of(TARGET, replica("onEntityRemoved", "broadcastMessageToPlayers")));
+        String specs = """
+                exact  drop  %1$s  onEntityRemoved  (Ljava/util/UUID;I)V  %2$s  broadcastMessageToPlayers  %3$s
+                other  drop  %1$s  onEntityRemoved  (Ljava/util/UUID;I)V  %2$s  broadcastMessageToPlayers  ()V
+                """.formatted(TARGET, PLAYER_UTIL, BROADCAST);
+
+        assertEquals(List.of(PatchCompatibility.Status.COMPATIBLE, PatchCompatibility.Status.CALL_MISSING),
+                check(jar, specs));
+    }
+
+    @Test
+    void missingClassIsReported() throws IOException {
+        Path jar = jar("server.jar", Map.of(PLAYER_UTIL, replica("onEntityRemoved", "broadcastMessageToPlayers")));
+
+        assertEquals(List.of(PatchCompatibility.Status.CLASS_MISSING), check(jar, SPECS));
+    }
+
+    @Test
+    void renamedMethodIsReported() throws IOException {
+        Path jar = jar("server.jar", Map.of(TARGET, replica("onPlayerRemoved", "broadcastMessageToPlayers")));
+
+        assertEquals(List.of(PatchCompatibility.Status.METHOD_MISSING), check(jar, SPECS));
+    }
+
+    @Test
+    void movedCallIsReported() throws IOException {
+        Path jar = jar("server.jar", Map.of(TARGET, replica("onEntityRemoved", "sendMessageToPlayers")));
+
+        assertEquals(List.of(PatchCompatibility.Status.CALL_MISSING), check(jar, SPECS));
+    }
+
+    @Test
+    void laterSpecLinesReplaceEarlierOnes() throws IOException {
+        List<PatchSpec> targets = PatchCompatibility.parseSpecs(SPECS + """
+                leave-message  drop  %s  onEntityRemoved  *  %s  sendMessageToPlayers  *
+                too  few  columns
+                """.formatted(TARGET, PLAYER_UTIL));
+
+        assertEquals(1, targets.size());
+        assertEquals("PlayerUtil.sendMessageToPlayers in PlayerSystems$PlayerRemovedSystem.onEntityRemoved",
+                new PatchCompatibility.Result(targets.get(0), PatchCompatibility.Status.COMPATIBLE).getTarget());
+    }
+
+    @Test
+    void fingerprintFollowsJarContentAndSpecs() throws IOException {
+        byte[] specs = SPECS.getBytes(StandardCharsets.UTF_8);
+        Path original = jar("a.jar", Map.of(TARGET, replica("onEntityRemoved", "broadcastMessageToPlayers")));
+        Path rebuilt = jar("b.jar", Map.of(TARGET, replica("onEntityRemoved", "broadcastMessageToPlayers")));
+        Path updated = jar("c.jar", Map.of(TARGET, replica("onEntityRemoved", "sendMessageToPlayers")));
+
+        String fingerprint = PatchCompatibility.fingerprint(original, specs);
+        assertEquals(fingerprint, PatchCompatibility.fingerprint(rebuilt, specs));
+        assertNotEquals(fingerprint, PatchCompatibility.fingerprint(updated, specs));
+        assertNotEquals(fingerprint, PatchCompatibility.fingerprint(original, new byte[0]));
+    }
+
+    private static List<PatchCompatibility.Status> check(Path jar, String specs) throws IOException {
+        List<PatchCompatibility.Status> statuses = new ArrayList<>();
+        for (PatchCompatibility.Result result : PatchCompatibility.scan(jar, PatchCompatibility.parseSpecs(specs))) {
+            statuses.add(result.getStatus());
+        }
+        return statuses;
+    }
+
+    /**
+     * Writes a jar with fixed entry times, so equal content gives equal bytes.
+     */
+    private Path jar(String name, Map<String, byte[]> classes) throws IOException {
+        Path jar = folder.resolve(name);
+        try (OutputStream file = Files.newOutputStream(jar); JarOutputStream out = new JarOutputStream(file)) {
+            for (Map.Entry<String, byte[]> entry : new TreeMap<>(classes).entrySet()) {
+                JarEntry jarEntry = new JarEntry(entry.getKey() + ".class");
+                jarEntry.setTime(0);
+                out.putNextEntry(jarEntry);
+                out.write(entry.getValue());
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    /**
+     * A server class with the patched method calling the given PlayerUtil
+     * method, after instructions of every length the scanner has to step
+     * over: switches with padding, wide locals, long constants and an
+     * invokeinterface.
+     */
+    private static byte[] replica(String methodName, String callName) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                return "java/lang/Object";
+            }
+        };
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, TARGET, null, "java/lang/Object", null);
+        writer.visitField(Opcodes.ACC_PRIVATE, "removed", "J", null, null).visitEnd();
+
+        MethodVisitor other = writer.visitMethod(Opcodes.ACC_PUBLIC, "tick", "()V", null, null);
+        other.visitCode();
+        other.visitInsn(Opcodes.RETURN);
+        other.visitMaxs(0, 0);
+        other.visitEnd();
+
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC, methodName,
+                "(Ljava/util/UUID;I)V", null, null);
+        method.visitCode();
+
+        method.visitInsn(Opcodes.ICONST_0);
+        method.visitVarInsn(Opcodes.ISTORE, 310);
+
+        Label first = new Label();
+        Label second = new Label();
+        Label afterTable = new Label();
+        method.visitVarInsn(Opcodes.ILOAD, 2);
+        method.visitTableSwitchInsn(0, 1, afterTable, first, second);
+        method.visitLabel(first);
+        method.visitLdcInsn(1234567890123L);
+        method.visitVarInsn(Opcodes.LSTORE, 300);
+        method.visitJumpInsn(Opcodes.GOTO, afterTable);
+        method.visitLabel(second);
+        method.visitIincInsn(310, 1000);
+        method.visitLabel(afterTable);
+
+        Label afterLookup = new Label();
+        method.visitVarInsn(Opcodes.ILOAD, 2);
+        method.visitLookupSwitchInsn(afterLookup, new int[] { 7, 4000 }, new Label[] { afterLookup, afterLookup });
+        method.visitLabel(afterLookup);
+
+        method.visitVarInsn(Opcodes.ALOAD, 1);
+        method.visitMethodInsn(Opcodes.INVOKEINTERFACE, "java/lang/Comparable", "compareTo",
+                "(Ljava/lang/Object;)I", true);
+        method.visitInsn(Opcodes.POP);
+
+        method.visitVarInsn(Opcodes.ALOAD, 1);
+        method.visitInsn(Opcodes.ACONST_NULL);
+        method.visitInsn(Opcodes.ACONST_NULL);
+        method.visitMethodInsn(Opcodes.INVOKESTATIC, PLAYER_UTIL, callName, BROADCAST, false);
+        method.visitInsn(Opcodes.RETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+}
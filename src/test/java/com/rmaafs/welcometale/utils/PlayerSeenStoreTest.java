@@ -0,0 +1,85 @@
+package com.rmaafs.welcometale.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The player-seen store must keep every player across reopening and across
+ * the background resizes, and refuse joins once closed.
+ */
+class PlayerSeenStoreTest {
+
+    private static final int PLAYERS = 20_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void remembersPlayersAcrossReopening() throws IOException {
+        UUID uuid = UUID.randomUUID();
+        PlayerSeenStore store = PlayerSeenStore.open(file());
+        assertTrue(store.recordJoin(uuid, 1_000).isFirstJoin());
+        store.close();
+
+        store = PlayerSeenStore.open(file());
+        PlayerSeenStore.Visit visit = store.recordJoin(uuid, 2_000);
+        store.close();
+
+        assertFalse(visit.isFirstJoin());
+        assertEquals(1_000, visit.getFirstSeen());
+        assertEquals(1_000, visit.getLastSeen());
+        assertEquals(2, visit.getJoinCount());
+    }
+
+    @Test
+    void growsWithoutLosingPlayers() throws IOException {
+        PlayerSeenStore store = PlayerSeenStore.open(file());
+        int initialCapacity = store.capacity();
+        for (int i = 0; i < PLAYERS; i++) {
+            store.recordJoin(uuid(i), i);
+            // Rejoins land in the old table while it is being copied
+            store.recordJoin(uuid(i / 2), i);
+        }
+
+        assertEquals(PLAYERS, store.size());
+        assertTrue(store.capacity() > initialCapacity);
+        store.close();
+        assertFalse(Files.exists(file().resolveSibling(file().getFileName() + ".tmp")));
+
+        store = PlayerSeenStore.open(file());
+        assertEquals(PLAYERS, store.size());
+        for (int i = 0; i < PLAYERS; i++) {
+            int joins = i < PLAYERS / 2 ? 3 : 1;
+            assertEquals(joins + 1, store.recordJoin(uuid(i), PLAYERS).getJoinCount(), "player " + i);
+        }
+        store.close();
+    }
+
+    @Test
+    void rejectsJoinsOnceClosed() throws IOException {
+        PlayerSeenStore store = PlayerSeenStore.open(file());
+        store.close();
+        store.close();
+
+        assertThrows(IOException.class, () -> store.recordJoin(UUID.randomUUID(), 0));
+        store.flush();
+    }
+
+    private Path file() {
+        return directory.resolve("players.dat");
+    }
+
+    private static UUID uuid(int i) {
+        return new UUID(0x5741_4E44_414C_4F4EL, i + 1);
+    }
+}
@@ -0,0 +1,51 @@
+package com.rmaafs.welcometale.utils;
+
+import java.awt.Color;
+import java.util.Objects;
+
+/**
+ * Collects formatter segments into a normalized description of what a player
+ * sees: runs of characters with the same color, formatting and link. How the
+ * text is split into Message nodes does not matter, and neither does the
+ * style of line breaks, which are not drawn.
+ */
+final class StyledText implements MessageFormatter.SegmentSink {
+
+    private final StringBuilder runs = new StringBuilder();
+    private String style;
+
+    static String of(String text) {
+        StyledText styled = new StyledText();
+        MessageFormatter.parse(text, styled);
+        return styled.toString();
+    }
+
+    static String legacy(String text) {
+        StyledText styled = new StyledText();
+        LegacyMessageFormatter.format(text, styled);
+        return styled.toString();
+    }
+
+    @Override
+    public void segment(String text, Color color, boolean bold, boolean italic, String linkUrl) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String charStyle = c == '\n' ? "" : style(color, bold, italic, linkUrl);
+            if (!Objects.equals(style, charStyle)) {
+                runs.append('[').append(charStyle).append(']');
+                style = charStyle;
+            }
+            runs.append(c == '\n' ? "\\n" : String.valueOf(c));
+        }
+    }
+
+    private static String style(Color color, boolean bold, boolean italic, String linkUrl) {
+        return (color == null ? "-" : Integer.toHexString(color.getRGB())) + (bold ? "|B" : "")
+                + (italic ? "|I" : "") + (linkUrl != null ? "|L=" + linkUrl : "");
+    }
+
+    @Override
+    public String toString() {
+        return runs.toString();
+    }
+}
@@ -0,0 +1,183 @@
+package com.rmaafs.welcometale.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs the update check against a local stub of the GitHub releases API.
+ */
+class UpdateCheckerTest {
+
+    private static final String RELEASE = "{\"tag_name\": \"v2.0.0\", \"name\": \"WelcomeTale 2.0.0\"}";
+
+    @TempDir
+    Path directory;
+
+    private HttpServer server;
+    private final List<String> ifNoneMatch = new CopyOnWriteArrayList<>();
+    private volatile int status = 200;
+    private volatile String etag = "\"release-etag\"";
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/releases/latest", this::respond);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        String received = exchange.getRequestHeaders().getFirst("If-None-Match");
+        ifNoneMatch.add(received == null ? "" : received);
+
+        if (etag != null) {
+            exchange.getResponseHeaders().set("ETag", etag);
+        }
+        if (status == 200 && (received == null || !received.equals(etag))) {
+            byte[] body = RELEASE.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } else {
+            exchange.sendResponseHeaders(status == 200 ? 304 : status, -1);
+        }
+        exchange.close();
+    }
+
+    @Test
+    void fetchesAndCachesTheLatestRelease() throws Exception {
+        UpdateChecker checker = check("1.3.0");
+
+        assertFalse(checker.isUsingLatest());
+        assertEquals("2.0.0", checker.getLatestVersion());
+        assertEquals(List.of(""), ifNoneMatch);
+
+        Properties cache = readCache();
+        assertEquals("2.0.0", cache.getProperty("latestVersion"));
+        assertEquals(etag, cache.getProperty("etag"));
+    }
+
+    @Test
+    void skipsTheRequestWhileTheCacheIsFresh() throws Exception {
+        check("1.3.0");
+        UpdateChecker checker = check("1.3.0");
+
+        assertEquals("2.0.0", checker.getLatestVersion());
+        assertEquals(1, ifNoneMatch.size());
+    }
+
+    @Test
+    void revalidatesAnExpiredCacheWithItsETag() throws Exception {
+        writeCache("2.0.0", etag, 0);
+
+        UpdateChecker checker = check("2.0.0");
+
+        assertTrue(checker.isUsingLatest());
+        assertEquals("2.0.0", checker.getLatestVersion());
+        assertEquals(List.of(etag), ifNoneMatch);
+        long checkedAt = Long.parseLong(readCache().getProperty("checkedAt"));
+        assertTrue(System.currentTimeMillis() - checkedAt < TimeUnit.MINUTES.toMillis(1));
+    }
+
+    @Test
+    void replacesAChangedRelease() throws Exception {
+        writeCache("1.9.0", "\"old-etag\"", 0);
+
+        UpdateChecker checker = check("1.3.0");
+
+        assertEquals("2.0.0", checker.getLatestVersion());
+        assertEquals(List.of("\"old-etag\""), ifNoneMatch);
+        assertEquals(etag, readCache().getProperty("etag"));
+    }
+
+    @Test
+    void forgetsTheETagWhenTheServerSendsNone() throws Exception {
+        writeCache("1.9.0", "\"old-etag\"", 0);
+        etag = null;
+
+        check("1.3.0");
+
+        assertNull(readCache().getProperty("etag"));
+        assertEquals("2.0.0", readCache().getProperty("latestVersion"));
+    }
+
+    @Test
+    void fallsBackToTheCacheWhenRateLimited() throws Exception {
+        writeCache("1.9.0", etag, 0);
+        status = 403;
+
+        UpdateChecker checker = check("1.3.0");
+
+        assertEquals("1.9.0", checker.getLatestVersion());
+        assertFalse(checker.isUsingLatest());
+        assertEquals("0", readCache().getProperty("checkedAt"));
+    }
+
+    @Test
+    void reportsTheCurrentVersionWhenNothingIsKnown() throws Exception {
+        status = 503;
+
+        UpdateChecker checker = check("1.3.0");
+
+        assertTrue(checker.isUsingLatest());
+        assertEquals("1.3.0", checker.getLatestVersion());
+        assertFalse(Files.exists(cacheFile()));
+    }
+
+    private UpdateChecker check(String currentVersion) throws Exception {
+        URI uri = URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort()
+                + "/releases/latest");
+        return new UpdateChecker(currentVersion, cacheFile(), uri).check().get(10, TimeUnit.SECONDS);
+    }
+
+    private Path cacheFile() {
+        return directory.resolve("update-cache.properties");
+    }
+
+    private Properties readCache() throws IOException {
+        Properties cache = new Properties();
+        try (InputStream in = Files.newInputStream(cacheFile())) {
+            cache.load(in);
+        }
+        return cache;
+    }
+
+    private void writeCache(String version, String cachedEtag, long checkedAt) throws IOException {
+        Properties cache = new Properties();
+        cache.setProperty("latestVersion", version);
+        cache.setProperty("etag", cachedEtag);
+        cache.setProperty("checkedAt", Long.toString(checkedAt));
+        try (OutputStream out = Files.newOutputStream(cacheFile())) {
+            cache.store(out, null);
+        }
+    }
+}